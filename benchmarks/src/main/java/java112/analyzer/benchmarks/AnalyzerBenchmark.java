@@ -0,0 +1,108 @@
+package java112.analyzer.benchmarks;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java112.analyzer.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  AnalyzerBenchmark class: Measures the throughput of one analyzer over a
+ *  fixed number of corpus tokens. The processToken benchmark passes the
+ *  tokens one String at a time; the processTokens benchmark passes them in
+ *  batches through a TokenDispatcher, which resolves them with a dictionary
+ *  the way an AnalyzerSet does. A new analyzer is created for every
+ *  invocation, so each one starts empty.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({"summary", "unique", "bigwords", "tokencount", "tokensize",
+            "keyword"})
+    public String analyzerName;
+
+    @Param({"1MB"})
+    public String corpusSize;
+
+    @Param({"1000000"})
+    public int tokenCount;
+
+    private Properties properties;
+    private String[] tokens;
+    private TokenDictionary dictionary;
+    private Analyzer analyzer;
+
+
+    /**
+     *  Method reads the tokens of the corpus.
+     *
+     *@exception  IOException  if the corpus cannot be read
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        properties = BenchmarkSupport.loadProperties(
+                Paths.get("target", "benchmark-output", "analyzer"));
+        tokens = BenchmarkSupport.readTokens(
+                CorpusGenerator.corpus(corpusSize), tokenCount);
+    }
+
+
+    /**
+     *  Method creates an empty analyzer for the next invocation.
+     */
+    @Setup(Level.Invocation)
+    public void createAnalyzer() {
+
+        dictionary = new TokenDictionary();
+        analyzer = BenchmarkSupport.createAnalyzer(analyzerName, properties,
+                dictionary);
+    }
+
+
+    /**
+     *  Method passes every token to processToken.
+     *
+     *@return    the analyzer
+     */
+    @Benchmark
+    public Analyzer processToken() {
+
+        for (String token : tokens) {
+            analyzer.processToken(token);
+        }
+
+        return analyzer;
+    }
+
+
+    /**
+     *  Method passes every token to the analyzer in batches.
+     *
+     *@return    the analyzer
+     */
+    @Benchmark
+    public Analyzer processTokens() {
+
+        TokenDispatcher dispatcher = new TokenDispatcher(
+                Collections.singletonList(analyzer), dictionary);
+
+        for (String token : tokens) {
+            dispatcher.handleToken(token);
+        }
+
+        dispatcher.finish();
+
+        return analyzer;
+    }
+
+}
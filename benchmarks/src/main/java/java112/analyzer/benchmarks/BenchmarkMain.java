@@ -0,0 +1,35 @@
+package java112.analyzer.benchmarks;
+
+import java.util.*;
+
+/**
+ *  BenchmarkMain class: Runs the JMH benchmarks with the gc allocation
+ *  profiler, so every result also shows the bytes allocated per operation.
+ *  The profiler is only added when no profiler is given on the command
+ *  line; all other arguments are passed to JMH unchanged.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class BenchmarkMain {
+
+    /**
+     *  The main program for the BenchmarkMain class
+     *
+     *@param  arguments      JMH command line arguments
+     *@exception  Exception  if JMH fails
+     */
+    public static void main(String[] arguments) throws Exception {
+
+        List<String> jmhArguments = new ArrayList<String>(
+                Arrays.asList(arguments));
+
+        if (!jmhArguments.contains("-prof")) {
+            jmhArguments.add(0, "-prof");
+            jmhArguments.add(1, "gc");
+        }
+
+        org.openjdk.jmh.Main.main(jmhArguments.toArray(new String[0]));
+    }
+
+}
@@ -0,0 +1,128 @@
+package java112.analyzer.benchmarks;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java112.analyzer.*;
+
+/**
+ *  BenchmarkSupport class: Shared setup for the benchmarks. It loads the
+ *  analyzer properties, points the keyword file and the output directory at
+ *  benchmark files, reads tokens from a corpus the same way the buffered
+ *  input mode does, and creates analyzers by name.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class BenchmarkSupport {
+
+    /** Names of the analyzers that can be benchmarked */
+    public final static String[] ANALYZER_NAMES = {"summary", "unique",
+            "bigwords", "tokencount", "tokensize", "keyword"};
+
+    private final static String PROPERTIES_RESOURCE = "/analyzer.properties";
+
+
+    /**
+     *  Constructor for the BenchmarkSupport object
+     */
+    private BenchmarkSupport() {
+    }
+
+
+    /**
+     *  Method loads the analyzer properties and directs the reports to the
+     *  given output directory.
+     *
+     *@param  outputDirectory  directory for the reports
+     *@return                  benchmark properties
+     *@exception  IOException  if the properties cannot be loaded
+     */
+    public static Properties loadProperties(Path outputDirectory)
+             throws IOException {
+
+        Properties properties = new Properties();
+
+        try (InputStream input = AnalyzeFile.class.getResourceAsStream(
+                PROPERTIES_RESOURCE)) {
+            properties.load(input);
+        }
+
+        Files.createDirectories(outputDirectory);
+
+        properties.setProperty("output.dir",
+                outputDirectory.toAbsolutePath() + File.separator);
+        properties.setProperty("file.path.keywords",
+                CorpusGenerator.keywords().toAbsolutePath().toString());
+
+        return properties;
+    }
+
+
+    /**
+     *  Method reads up to the given number of tokens from a corpus, splitting
+     *  each line on non-word characters.
+     *
+     *@param  corpusPath       path of the corpus
+     *@param  maximumTokens    largest number of tokens to read
+     *@return                  tokens in input order
+     *@exception  IOException  if the corpus cannot be read
+     */
+    public static String[] readTokens(Path corpusPath, int maximumTokens)
+             throws IOException {
+
+        List<String> tokens = new ArrayList<String>();
+
+        try (BufferedReader input = Files.newBufferedReader(corpusPath,
+                StandardCharsets.UTF_8)) {
+
+            String line;
+
+            while (tokens.size() < maximumTokens
+                     && (line = input.readLine()) != null) {
+
+                for (String token : line.split("\\W")) {
+
+                    if (token.length() > 0 && tokens.size() < maximumTokens) {
+                        tokens.add(token);
+                    }
+                }
+            }
+        }
+
+        return tokens.toArray(new String[0]);
+    }
+
+
+    /**
+     *  Method creates an analyzer by name. Analyzers that keep tokens use
+     *  the given dictionary.
+     *
+     *@param  name        analyzer name, one of ANALYZER_NAMES
+     *@param  properties  analyzer properties
+     *@param  dictionary  token dictionary
+     *@return             new analyzer
+     */
+    public static Analyzer createAnalyzer(String name, Properties properties,
+            TokenDictionary dictionary) {
+
+        switch (name) {
+            case "summary":
+                return new SummaryReport(properties);
+            case "unique":
+                return new UniqueTokenAnalyzer(properties, dictionary);
+            case "bigwords":
+                return new BigWordAnalyzer(properties, dictionary);
+            case "tokencount":
+                return new TokenCountAnalyzer(properties, dictionary);
+            case "tokensize":
+                return new TokenSizeAnalyzer(properties);
+            case "keyword":
+                return new KeywordAnalyzer(properties, dictionary);
+            default:
+                throw new IllegalArgumentException("Unknown analyzer " + name);
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+package java112.analyzer.benchmarks;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ *  CorpusGenerator class: Writes a synthetic text corpus for the benchmarks.
+ *  Words are drawn from a fixed vocabulary with Zipfian frequencies, so a
+ *  few words are very common and most are rare, the way they are in real
+ *  text. The most common words are ordinary English words, which include
+ *  the benchmark keywords. Words are separated by spaces and punctuation
+ *  and the text is broken into lines of about 80 characters. The same size
+ *  and seed always give the same corpus.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class CorpusGenerator {
+
+    /** Directory where generated corpora are kept between runs */
+    public final static String CORPUS_DIRECTORY = "target/corpus";
+
+    /** Keywords written to the benchmark keyword file */
+    public final static String[] KEYWORDS = {"the", "of the", "and",
+            "London", "time", "in the world"};
+
+    private final static int VOCABULARY_SIZE = 200000;
+    private final static double ZIPF_EXPONENT = 1.0;
+    private final static int LINE_WIDTH = 80;
+    private final static long DEFAULT_SEED = 112L;
+
+    private final static String[] COMMON_WORDS = {"the", "of", "and", "to",
+            "a", "in", "that", "is", "was", "he", "for", "it", "with", "as",
+            "his", "on", "be", "at", "by", "I", "had", "not", "are", "but",
+            "from", "or", "have", "an", "they", "which", "one", "you",
+            "were", "her", "all", "she", "there", "would", "their", "we",
+            "him", "been", "has", "when", "who", "will", "more", "no", "if",
+            "out", "so", "said", "what", "up", "its", "about", "into",
+            "than", "them", "can", "only", "other", "new", "some", "could",
+            "time", "these", "two", "may", "then", "do", "first", "any",
+            "my", "now", "such", "like", "our", "over", "man", "me", "even",
+            "most", "made", "after", "also", "did", "many", "before",
+            "must", "through", "back", "years", "where", "much", "your",
+            "way", "well", "down", "should", "because", "each", "just",
+            "those", "people", "Mr", "how", "too", "little", "state",
+            "good", "very", "make", "world", "still", "own", "see", "men",
+            "work", "long", "get", "here", "between", "both", "life",
+            "being", "under", "never", "day", "same", "another", "know",
+            "while", "last", "might", "us", "great", "old", "year", "off",
+            "come", "since", "against", "go", "came", "right", "used",
+            "take", "three", "London", "France", "Spain", "England",
+            "David", "Wisconsin"};
+
+    private final static String[] SEPARATORS = {" ", " ", " ", " ", " ",
+            " ", " ", " ", ", ", ". ", "; ", " - ", "'s ", ": ", "! ", "? "};
+
+    private String[] vocabulary;
+    private double[] cumulativeFrequencies;
+    private SplittableRandom random;
+
+
+    /**
+     *  Constructor for the CorpusGenerator object
+     *
+     *@param  seed  random seed
+     */
+    public CorpusGenerator(long seed) {
+
+        random = new SplittableRandom(seed);
+
+        buildVocabulary();
+        buildFrequencies();
+    }
+
+
+    /**
+     *  The main program for the CorpusGenerator class. The arguments are the
+     *  corpus size, such as 1MB, 100MB or 1GB, the output file path and an
+     *  optional random seed.
+     *
+     *@param  arguments        command line arguments
+     *@exception  IOException  if the corpus cannot be written
+     */
+    public static void main(String[] arguments) throws IOException {
+
+        if (arguments.length < 2) {
+            System.out.println("Enter the corpus size (1MB, 100MB or 1GB) "
+                     + "and the output file path.");
+            return;
+        }
+
+        long seed = DEFAULT_SEED;
+
+        if (arguments.length > 2) {
+            seed = Long.parseLong(arguments[2]);
+        }
+
+        new CorpusGenerator(seed).write(Paths.get(arguments[1]),
+                parseSize(arguments[0]));
+    }
+
+
+    /**
+     *  Method returns the path of a generated corpus of the given size,
+     *  generating it first if it is not already in the corpus directory.
+     *
+     *@param  size             corpus size, such as 1MB, 100MB or 1GB
+     *@return                  path of the corpus
+     *@exception  IOException  if the corpus cannot be written
+     */
+    public static synchronized Path corpus(String size) throws IOException {
+
+        Path corpusPath = Paths.get(CORPUS_DIRECTORY, "zipf-" + size + ".txt");
+
+        if (!Files.exists(corpusPath)) {
+
+            Path partialPath = Paths.get(CORPUS_DIRECTORY,
+                    "zipf-" + size + ".partial");
+
+            new CorpusGenerator(DEFAULT_SEED).write(partialPath,
+                    parseSize(size));
+
+            Files.move(partialPath, corpusPath,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return corpusPath;
+    }
+
+
+    /**
+     *  Method returns the path of the benchmark keyword file, writing it if
+     *  it is not already in the corpus directory.
+     *
+     *@return                  path of the keyword file
+     *@exception  IOException  if the file cannot be written
+     */
+    public static synchronized Path keywords() throws IOException {
+
+        Path keywordPath = Paths.get(CORPUS_DIRECTORY, "keywords.txt");
+
+        if (!Files.exists(keywordPath)) {
+            Files.createDirectories(keywordPath.getParent());
+            Files.write(keywordPath, Arrays.asList(KEYWORDS),
+                    StandardCharsets.UTF_8);
+        }
+
+        return keywordPath;
+    }
+
+
+    /**
+     *  Method converts a size such as 1MB, 100MB or 1GB into bytes. A number
+     *  without a unit is a number of bytes.
+     *
+     *@param  size  size text
+     *@return       number of bytes
+     */
+    public static long parseSize(String size) {
+
+        String upperSize = size.trim().toUpperCase();
+        long multiplier = 1;
+
+        if (upperSize.endsWith("KB")) {
+            multiplier = 1L << 10;
+        } else if (upperSize.endsWith("MB")) {
+            multiplier = 1L << 20;
+        } else if (upperSize.endsWith("GB")) {
+            multiplier = 1L << 30;
+        }
+
+        if (multiplier > 1) {
+            upperSize = upperSize.substring(0, upperSize.length() - 2);
+        }
+
+        return Long.parseLong(upperSize.trim()) * multiplier;
+    }
+
+
+    /**
+     *  Method writes a corpus of about the given number of bytes. The last
+     *  line is completed, so the file can be a little larger.
+     *
+     *@param  outputPath       path of the corpus file
+     *@param  size             number of bytes to write
+     *@exception  IOException  if the corpus cannot be written
+     */
+    public void write(Path outputPath, long size) throws IOException {
+
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+
+        long written = 0;
+        StringBuilder line = new StringBuilder(LINE_WIDTH * 2);
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(outputPath), StandardCharsets.UTF_8),
+                1 << 16)) {
+
+            while (written < size) {
+
+                line.setLength(0);
+
+                while (line.length() < LINE_WIDTH) {
+                    line.append(nextWord());
+                    line.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+                }
+
+                line.append('\n');
+                out.write(line.toString());
+                written += line.length();
+            }
+        }
+    }
+
+
+    /**
+     *  Method draws the next word from the Zipfian distribution.
+     *
+     *@return    next word
+     */
+    public String nextWord() {
+
+        int rank = Arrays.binarySearch(cumulativeFrequencies,
+                random.nextDouble());
+
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+
+        return vocabulary[Math.min(rank, vocabulary.length - 1)];
+    }
+
+
+    /**
+     *  Method builds the vocabulary. The common words come first and the rest
+     *  are made up words of two to fourteen letters, with an occasional long
+     *  word for the big words report.
+     */
+    private void buildVocabulary() {
+
+        Set<String> words = new LinkedHashSet<String>(
+                Arrays.asList(COMMON_WORDS));
+
+        while (words.size() < VOCABULARY_SIZE) {
+
+            int length = 2 + random.nextInt(13);
+
+            if (random.nextInt(100) == 0) {
+                length = 18 + random.nextInt(8);
+            }
+
+            StringBuilder word = new StringBuilder(length);
+
+            for (int index = 0; index < length; index++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+
+            words.add(word.toString());
+        }
+
+        vocabulary = words.toArray(new String[0]);
+    }
+
+
+    /**
+     *  Method builds the cumulative Zipfian frequency of each rank.
+     */
+    private void buildFrequencies() {
+
+        cumulativeFrequencies = new double[vocabulary.length];
+
+        double total = 0;
+
+        for (int rank = 0; rank < vocabulary.length; rank++) {
+            total += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulativeFrequencies[rank] = total;
+        }
+
+        for (int rank = 0; rank < vocabulary.length; rank++) {
+            cumulativeFrequencies[rank] /= total;
+        }
+    }
+
+}
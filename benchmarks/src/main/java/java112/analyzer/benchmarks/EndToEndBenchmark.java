@@ -0,0 +1,60 @@
+package java112.analyzer.benchmarks;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java112.analyzer.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  EndToEndBenchmark class: Measures a whole run of AnalyzeFile, reading
+ *  the corpus and writing every report, in each input mode. Larger corpora
+ *  are selected with -p corpusSize=100MB or -p corpusSize=1GB.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"1MB"})
+    public String corpusSize;
+
+    @Param({"buffered", "mapped", "parallel", "pipelined", "fanout"})
+    public String inputMode;
+
+    private Path corpusPath;
+    private Properties properties;
+
+
+    /**
+     *  Method generates the corpus if needed and sets the input mode.
+     *
+     *@exception  IOException  if the corpus cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        corpusPath = CorpusGenerator.corpus(corpusSize);
+        properties = BenchmarkSupport.loadProperties(
+                Paths.get("target", "benchmark-output", "end-to-end"));
+
+        properties.setProperty("input.mode", inputMode);
+    }
+
+
+    /**
+     *  Method analyzes the corpus and writes the reports.
+     */
+    @Benchmark
+    public void analyzeFile() {
+        new AnalyzeFile().runAnalysis(corpusPath.toString(), properties);
+    }
+
+}
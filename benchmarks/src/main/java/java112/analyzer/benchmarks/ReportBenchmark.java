@@ -0,0 +1,75 @@
+package java112.analyzer.benchmarks;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java112.analyzer.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *  ReportBenchmark class: Measures writing the report of one analyzer that
+ *  has already processed the corpus tokens.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"summary", "unique", "bigwords", "tokencount", "tokensize",
+            "keyword"})
+    public String analyzerName;
+
+    @Param({"1MB"})
+    public String corpusSize;
+
+    @Param({"1000000"})
+    public int tokenCount;
+
+    private Path corpusPath;
+    private Analyzer analyzer;
+
+
+    /**
+     *  Method creates the analyzer and passes it the corpus tokens.
+     *
+     *@exception  IOException  if the corpus cannot be read
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        Properties properties = BenchmarkSupport.loadProperties(
+                Paths.get("target", "benchmark-output", "report"));
+        TokenDictionary dictionary = new TokenDictionary();
+
+        corpusPath = CorpusGenerator.corpus(corpusSize);
+        analyzer = BenchmarkSupport.createAnalyzer(analyzerName, properties,
+                dictionary);
+
+        TokenDispatcher dispatcher = new TokenDispatcher(
+                Collections.singletonList(analyzer), dictionary);
+
+        for (String token : BenchmarkSupport.readTokens(corpusPath,
+                tokenCount)) {
+            dispatcher.handleToken(token);
+        }
+
+        dispatcher.finish();
+    }
+
+
+    /**
+     *  Method writes the report.
+     */
+    @Benchmark
+    public void writeOutputFile() {
+        analyzer.writeOutputFile(corpusPath.toString());
+    }
+
+}
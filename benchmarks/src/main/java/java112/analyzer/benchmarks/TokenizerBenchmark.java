@@ -0,0 +1,122 @@
+package java112.analyzer.benchmarks;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java112.analyzer.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+/**
+ *  TokenizerBenchmark class: Measures splitting a whole corpus into tokens.
+ *  The splitLines benchmark is the buffered input path, which reads lines
+ *  and splits them with the "\W" regular expression. The byteTokenizer
+ *  benchmark is the memory mapped path, and the vectorTokenizer benchmark
+ *  is the same path with the Vector API backend. No benchmark passes the
+ *  tokens to any analyzer.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class TokenizerBenchmark {
+
+    @Param({"1MB"})
+    public String corpusSize;
+
+    private Path corpusPath;
+
+
+    /**
+     *  Method generates the corpus if needed.
+     *
+     *@exception  IOException  if the corpus cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusPath = CorpusGenerator.corpus(corpusSize);
+    }
+
+
+    /**
+     *  Method splits every line of the corpus on non-word characters.
+     *
+     *@param  blackhole        JMH blackhole
+     *@exception  IOException  if the corpus cannot be read
+     */
+    @Benchmark
+    public void splitLines(Blackhole blackhole) throws IOException {
+
+        try (BufferedReader input = Files.newBufferedReader(corpusPath,
+                StandardCharsets.UTF_8)) {
+
+            String line;
+
+            while ((line = input.readLine()) != null) {
+
+                for (String token : line.split("\\W")) {
+
+                    if (token.length() > 0) {
+                        blackhole.consume(token);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     *  Method scans the memory mapped corpus with the ByteTokenizer.
+     *
+     *@param  blackhole        JMH blackhole
+     *@exception  IOException  if the corpus cannot be read
+     */
+    @Benchmark
+    public void byteTokenizer(Blackhole blackhole) throws IOException {
+        tokenize(blackhole, ByteTokenizer.SCALAR_BACKEND);
+    }
+
+
+    /**
+     *  Method scans the memory mapped corpus with the ByteTokenizer, skipping
+     *  ASCII runs with the Vector API.
+     *
+     *@param  blackhole        JMH blackhole
+     *@exception  IOException  if the corpus cannot be read
+     */
+    @Benchmark
+    public void vectorTokenizer(Blackhole blackhole) throws IOException {
+        tokenize(blackhole, ByteTokenizer.VECTOR_BACKEND);
+    }
+
+
+    /**
+     *  Method scans the memory mapped corpus with a ByteTokenizer backend.
+     *
+     *@param  blackhole        JMH blackhole
+     *@param  backend          tokenizer backend
+     *@exception  IOException  if the corpus cannot be read
+     */
+    private void tokenize(Blackhole blackhole, String backend)
+             throws IOException {
+
+        MappedFileInput input = new MappedFileInput(corpusPath.toString(),
+                MappedFileInput.DEFAULT_WINDOW_SIZE);
+
+        input.read(new ByteTokenizer(new TokenHandler() {
+
+            public void handleToken(ByteBuffer buffer, int offset,
+                    int length) {
+                blackhole.consume(length);
+            }
+        }, ByteTokenizer.DEFAULT_INPUT_CHARSET, backend));
+    }
+
+}
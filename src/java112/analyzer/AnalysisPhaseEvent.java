@@ -0,0 +1,61 @@
+package java112.analyzer;
+
+import jdk.jfr.*;
+
+/**
+ *  AnalysisPhaseEvent class: A Java Flight Recorder event for one phase of
+ *  an analysis run, such as loading the properties or the keyword file,
+ *  reading and analyzing the input, or writing the reports. The event lasts
+ *  as long as the phase. It costs nothing when no recording is running.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@Name("java112.analyzer.AnalysisPhase")
+@Label("Analysis Phase")
+@Category("Document Analyzer")
+@Description("A phase of an analysis run")
+@StackTrace(false)
+public class AnalysisPhaseEvent extends Event {
+
+    /** Phase that loads the properties file */
+    public final static String PROPERTIES_PHASE = "properties";
+
+    /** Phase that loads and compiles the keyword file */
+    public final static String KEYWORDS_PHASE = "keywords";
+
+    /** Phase that loads a saved snapshot */
+    public final static String SNAPSHOT_RESUME_PHASE = "snapshot resume";
+
+    /** Phase that reads the input and passes its tokens to the analyzers */
+    public final static String INPUT_PHASE = "input";
+
+    /** Phase that saves a snapshot */
+    public final static String SNAPSHOT_SAVE_PHASE = "snapshot save";
+
+    /** Phase that writes every report */
+    public final static String REPORTS_PHASE = "reports";
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Input File")
+    private String inputFile;
+
+
+    /**
+     *  Constructor for the AnalysisPhaseEvent object. The event starts when
+     *  it is created.
+     *
+     *@param  phase      name of the phase
+     *@param  inputFile  input file path of the run, or null
+     */
+    public AnalysisPhaseEvent(String phase, String inputFile) {
+
+        this.phase = phase;
+        this.inputFile = inputFile;
+
+        begin();
+    }
+
+}
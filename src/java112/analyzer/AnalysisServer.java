@@ -0,0 +1,547 @@
+package java112.analyzer;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+import java.util.zip.*;
+
+/**
+ *  AnalysisServer class: Keeps the analyzer resident and analyzes documents
+ *  sent to it over a local HTTP API, so a stream of small documents does
+ *  not pay for JVM startup, class loading, JIT warm-up and a new compile of
+ *  the keyword file with each one. The keyword file is compiled once when
+ *  the server starts, and every request shares the compiled matcher. Each
+ *  request reads its document into a new AnalyzerSet, so requests are
+ *  served concurrently on server.threads threads without sharing any
+ *  counts.
+ *
+ *  <p>A document is sent with POST /analyze, either as the request body,
+ *  which may be gzip or deflate compressed, or with a path parameter naming
+ *  a file the server can read. By default the reports are returned in the
+ *  response, each after a line with its file name. With reports=files they
+ *  are written under the documents directory of output.dir instead, in a
+ *  directory named by the name parameter, and the response lists them.
+ *  GET /health answers OK while the server runs. The server only listens
+ *  on the loopback address. Snapshots and the performance monitor are
+ *  turned off for requests, since each of them is shared by the whole
+ *  process.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class AnalysisServer {
+
+    /** Default port of the server */
+    public final static int DEFAULT_PORT = 8112;
+
+    /** Directory below output.dir that holds the reports of each document */
+    public final static String DOCUMENTS_DIRECTORY = "documents";
+
+    private final static int VALID_ARGUMENT_COUNT = 1;
+    private final static int BLOCK_SIZE = 64 * 1024;
+    private final static String FILES_REPORTS = "files";
+    private final static String DOCUMENT_NAME_PREFIX = "document-";
+    private final static String CURRENT_DIRECTORY = ".";
+    private final static String PARENT_DIRECTORY = "..";
+
+    private Properties properties;
+    private KeywordMatcher keywordMatcher;
+    private HttpServer server;
+    private ExecutorService executor;
+    private AtomicLong documentNumber;
+
+
+    /**
+     *  The main program for the AnalysisServer class. The argument is the
+     *  properties configuration file path. The server runs until the
+     *  process is stopped.
+     *
+     *@param  arguments  command line arguments
+     */
+    public static void main(String[] arguments) {
+
+        if (arguments.length != VALID_ARGUMENT_COUNT) {
+            System.out.println("Enter the properties configuration file path.");
+            return;
+        }
+
+        Properties properties = new Properties();
+
+        try {
+            properties.load(
+                    AnalysisServer.class.getResourceAsStream(arguments[0]));
+        } catch (IOException ioe) {
+            System.out.println("Can't load the properties file");
+            ioe.printStackTrace();
+            return;
+        } catch (Exception e) {
+            System.out.println("Problem: " + e);
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+
+            AnalysisServer analysisServer = new AnalysisServer(properties);
+
+            analysisServer.start();
+
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    analysisServer::stop));
+
+            System.out.println("Listening on port "
+                     + analysisServer.getPort());
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+        }
+    }
+
+
+    /**
+     *  Constructor for the AnalysisServer object. The keyword file is
+     *  compiled here, once for every request the server will serve.
+     *
+     *@param  properties  Properties object
+     */
+    public AnalysisServer(Properties properties) {
+
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+        this.properties.remove("snapshot.resume");
+        this.properties.remove("snapshot.save");
+        this.properties.setProperty("performance.monitor", "false");
+
+        keywordMatcher = KeywordMatcher.load(properties);
+        documentNumber = new AtomicLong();
+    }
+
+
+    /**
+     *  Method starts listening on server.port of the loopback address, with
+     *  server.threads threads that serve the requests, by default one for
+     *  each processor.
+     *
+     *@exception  IOException  if the server can't listen on the port
+     */
+    public void start() throws IOException {
+
+        int port = Integer.parseInt(properties.getProperty("server.port",
+                String.valueOf(DEFAULT_PORT)));
+        int threads = Integer.parseInt(properties.getProperty(
+                "server.threads", String.valueOf(
+                Runtime.getRuntime().availableProcessors())));
+
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+
+        server.createContext("/analyze", this::handleAnalyze);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    /**
+     *  Method stops the server, letting the requests that are being served
+     *  finish first.
+     */
+    public void stop() {
+
+        if (server == null) {
+            return;
+        }
+
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+    }
+
+
+    /**
+     *  Returns the port the server listens on.
+     *
+     *@return    The port value
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+
+    /**
+     *  Method answers a health check.
+     *
+     *@param  exchange         request and response
+     *@exception  IOException  if the response can't be sent
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        sendText(exchange, HttpURLConnection.HTTP_OK, "OK\n");
+    }
+
+
+    /**
+     *  Method analyzes the document of one request and sends its reports,
+     *  or the list of report files, as the response.
+     *
+     *@param  exchange         request and response
+     *@exception  IOException  if the response can't be sent
+     */
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+
+        try {
+
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, HttpURLConnection.HTTP_BAD_METHOD,
+                        "Send the document with POST.\n");
+                return;
+            }
+
+            Map<String, String> parameters = getParameters(
+                    exchange.getRequestURI());
+            String inputPath = parameters.get("path");
+
+            if (inputPath != null && !Files.isRegularFile(
+                    Paths.get(inputPath))) {
+                sendText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+                        "Can't read " + inputPath + "\n");
+                return;
+            }
+
+            String name = getDocumentName(parameters.get("name"), inputPath);
+
+            if (name == null) {
+                sendText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+                        "Invalid document name " + parameters.get("name")
+                         + "\n");
+                return;
+            }
+
+            if (FILES_REPORTS.equals(parameters.get("reports"))) {
+                analyzeToFiles(exchange, inputPath, name);
+            } else {
+                analyzeInline(exchange, inputPath, name);
+            }
+
+        } catch (IOException ioException) {
+
+            sendText(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    ioException.getMessage() + "\n");
+
+        } catch (RuntimeException runtimeException) {
+
+            runtimeException.printStackTrace();
+            sendText(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    runtimeException + "\n");
+
+        } finally {
+
+            exchange.close();
+        }
+    }
+
+
+    /**
+     *  Method analyzes a document and writes its reports to a directory of
+     *  its own under output.dir, then sends the list of report files. A
+     *  name whose directory would not be inside the documents directory is
+     *  refused.
+     *
+     *@param  exchange         request and response
+     *@param  inputPath        file to analyze, or null for the request body
+     *@param  name             name of the document
+     *@exception  IOException  if the document or its reports can't be
+     *      written
+     */
+    private void analyzeToFiles(HttpExchange exchange, String inputPath,
+            String name) throws IOException {
+
+        Path documentsDirectory = Paths.get(properties.getProperty(
+                "output.dir"), DOCUMENTS_DIRECTORY).normalize();
+        Path outputDirectory = documentsDirectory.resolve(name).normalize();
+
+        if (!outputDirectory.startsWith(documentsDirectory)
+                 || outputDirectory.equals(documentsDirectory)) {
+            sendText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+                    "Invalid document name " + name + "\n");
+            return;
+        }
+
+        analyze(exchange, inputPath, name, outputDirectory);
+
+        StringBuilder response = new StringBuilder();
+
+        for (Path report : listReports(outputDirectory)) {
+            response.append(report).append("\n");
+        }
+
+        sendText(exchange, HttpURLConnection.HTTP_OK, response.toString());
+    }
+
+
+    /**
+     *  Method analyzes a document, writing its reports to a temporary
+     *  directory, and sends the reports as the response. Each report
+     *  follows a line with its file name.
+     *
+     *@param  exchange         request and response
+     *@param  inputPath        file to analyze, or null for the request body
+     *@param  name             name of the document
+     *@exception  IOException  if the document or its reports can't be
+     *      written
+     */
+    private void analyzeInline(HttpExchange exchange, String inputPath,
+            String name) throws IOException {
+
+        Path outputDirectory = Files.createTempDirectory("analysis");
+
+        try {
+
+            analyze(exchange, inputPath, name, outputDirectory);
+
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+            for (Path report : listReports(outputDirectory)) {
+                response.write(("==> " + report.getFileName() + " <==\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                response.write(Files.readAllBytes(report));
+            }
+
+            exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK,
+                    response.size());
+            response.writeTo(exchange.getResponseBody());
+
+        } finally {
+
+            deleteDirectory(outputDirectory);
+        }
+    }
+
+
+    /**
+     *  Method reads a document into a new set of analyzers that share the
+     *  compiled keyword matcher, and writes their reports to a directory on
+     *  the request thread. The files the analyzers spilled to disk are
+     *  deleted once the reports are written or the request fails.
+     *
+     *@param  exchange         request and response
+     *@param  inputPath        file to analyze, or null for the request body
+     *@param  name             name of the document in its reports
+     *@param  outputDirectory  directory the reports are written to
+     *@exception  IOException  if the document or its reports can't be
+     *      written
+     */
+    private void analyze(HttpExchange exchange, String inputPath, String name,
+            Path outputDirectory) throws IOException {
+
+        Files.createDirectories(outputDirectory);
+
+        Properties documentProperties = new Properties();
+
+        documentProperties.putAll(properties);
+        documentProperties.setProperty("output.dir",
+                outputDirectory.toString() + File.separator);
+
+        AnalyzerSet analyzers = new AnalyzerSet(documentProperties,
+                keywordMatcher);
+
+        try {
+
+            ByteTokenizer tokenizer = analyzers.createTokenizer();
+
+            if (inputPath == null) {
+                readBody(exchange, tokenizer);
+            } else if (CompressedInput.isCompressed(inputPath)) {
+                CompressedInput.create(inputPath, properties).read(tokenizer);
+            } else {
+                new MappedFileInput(inputPath).read(tokenizer);
+            }
+
+            analyzers.finishDocument();
+            analyzers.writeOutputFiles(name, Runnable::run);
+
+        } finally {
+
+            analyzers.close();
+        }
+    }
+
+
+    /**
+     *  Method reads the request body into a tokenizer a block at a time. A
+     *  body sent with a gzip or deflate content encoding is decompressed
+     *  while it is read.
+     *
+     *@param  exchange         request and response
+     *@param  tokenizer        tokenizer for the body bytes
+     *@exception  IOException  if the body can't be read
+     */
+    private void readBody(HttpExchange exchange, ByteTokenizer tokenizer)
+             throws IOException {
+
+        String encoding = exchange.getRequestHeaders().getFirst(
+                "Content-Encoding");
+        InputStream body = exchange.getRequestBody();
+
+        if (CompressedInput.GZIP_FORMAT.equalsIgnoreCase(encoding)) {
+            body = new GZIPInputStream(body, BLOCK_SIZE);
+        } else if (CompressedInput.DEFLATE_FORMAT.equalsIgnoreCase(encoding)) {
+            body = new InflaterInputStream(body);
+        }
+
+        byte[] block = new byte[BLOCK_SIZE];
+
+        try (InputStream in = body) {
+
+            int length = in.read(block);
+
+            while (length >= 0) {
+
+                tokenizer.tokenize(ByteBuffer.wrap(block, 0, length));
+
+                length = in.read(block);
+            }
+        }
+
+        tokenizer.finish();
+    }
+
+
+    /**
+     *  Method returns the name of a document: the name parameter, the file
+     *  name of its path, or a new numbered name for a request body. Only
+     *  the last part of a name is used, so reports can't be written outside
+     *  the output directory, and an empty name, "." and ".." are refused.
+     *
+     *@param  name       name parameter, or null
+     *@param  inputPath  file to analyze, or null for the request body
+     *@return            name of the document, or null if it is not valid
+     */
+    private String getDocumentName(String name, String inputPath) {
+
+        if (name == null && inputPath != null) {
+            name = inputPath;
+        }
+
+        Path fileName;
+
+        try {
+            fileName = name == null ? null : Paths.get(name).getFileName();
+        } catch (InvalidPathException invalidPath) {
+            return null;
+        }
+
+        if (fileName == null) {
+            return DOCUMENT_NAME_PREFIX + documentNumber.incrementAndGet();
+        }
+
+        String documentName = fileName.toString();
+
+        if (documentName.isEmpty() || CURRENT_DIRECTORY.equals(documentName)
+                 || PARENT_DIRECTORY.equals(documentName)) {
+            return null;
+        }
+
+        return documentName;
+    }
+
+
+    /**
+     *  Method returns the query parameters of a request.
+     *
+     *@param  uri  request URI
+     *@return      parameter values by name
+     */
+    private Map<String, String> getParameters(URI uri) {
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        String query = uri.getRawQuery();
+
+        if (query == null) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+
+            int equals = parameter.indexOf('=');
+
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0,
+                        equals), StandardCharsets.UTF_8), URLDecoder.decode(
+                        parameter.substring(equals + 1),
+                        StandardCharsets.UTF_8));
+            }
+        }
+
+        return parameters;
+    }
+
+
+    /**
+     *  Method lists the report files of a directory in name order.
+     *
+     *@param  outputDirectory  directory of the reports
+     *@return                  report files
+     *@exception  IOException  if the directory can't be listed
+     */
+    private List<Path> listReports(Path outputDirectory) throws IOException {
+
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            return files.filter(Files::isRegularFile).sorted().collect(
+                    Collectors.toList());
+        }
+    }
+
+
+    /**
+     *  Method deletes a temporary report directory and the files in it.
+     *
+     *@param  directory        directory to delete
+     *@exception  IOException  if a file can't be deleted
+     */
+    private void deleteDirectory(Path directory) throws IOException {
+
+        try (Stream<Path> files = Files.list(directory)) {
+
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        Files.deleteIfExists(directory);
+    }
+
+
+    /**
+     *  Method sends a short text response.
+     *
+     *@param  exchange         request and response
+     *@param  status           HTTP status code
+     *@param  text             response text
+     *@exception  IOException  if the response can't be sent
+     */
+    private void sendText(HttpExchange exchange, int status, String text)
+             throws IOException {
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+}
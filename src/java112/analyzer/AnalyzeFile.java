@@ -2,6 +2,8 @@ package java112.analyzer;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
 
 /**
  *  AnalyzeFile class: The main controlling class. It has an instance variable
@@ -18,10 +20,20 @@ import java.util.*;
 public class AnalyzeFile {
 
     private final static int VALID_ARGUMENT_COUNT = 2;
+    private final static String MAPPED_INPUT_MODE = "mapped";
+    private final static String PARALLEL_INPUT_MODE = "parallel";
+    private final static String FOLLOW_INPUT_MODE = "follow";
+    private final static String PIPELINED_INPUT_MODE = "pipelined";
+    private final static String FAN_OUT_INPUT_MODE = "fanout";
 
     private String inputFilePath;
     private Properties properties;
-    private ArrayList<Analyzer> analyzers;
+    private AnalyzerSet analyzers;
+    private TokenDispatcher dispatcher;
+    private KeywordMatcher keywordMatcher;
+    private boolean resumed;
+    private ExecutorService reportExecutor;
+    private PerformanceMonitor monitor;
 
     /**
      *  The method will first test if 2 arguments have been entered by the user
@@ -44,35 +56,216 @@ public class AnalyzeFile {
             return;
         }
 
+        String propertiesFilePath = arguments[1];
+
         inputFilePath = arguments[0];
 
-        String propertiesFilePath = arguments[1];
+        runPhase(AnalysisPhaseEvent.PROPERTIES_PHASE,
+                () -> loadProperties(propertiesFilePath));
+
+        runAnalysis(arguments[0], properties);
+    }
 
-        loadProperties(propertiesFilePath);
+
+    /**
+     *  Method analyzes an input file with properties that have already been
+     *  loaded and writes all of the reports.
+     *
+     *@param  inputFilePath  input file path
+     *@param  properties     Properties object
+     */
+    public void runAnalysis(String inputFilePath, Properties properties) {
+
+        this.inputFilePath = inputFilePath;
+        this.properties = properties;
+
+        monitor = PerformanceMonitor.create(properties);
 
         initializeReports();
 
-        readInputFile();
+        if (monitor != null) {
+            monitor.setAnalyzers(analyzers);
+        }
+
+        reportExecutor = AnalyzerSet.createReportExecutor(properties);
+
+        try {
+
+            runPhase(AnalysisPhaseEvent.INPUT_PHASE, this::readInputFile);
+
+            finishIngest();
+
+            if (properties.getProperty("snapshot.save") != null) {
+                runPhase(AnalysisPhaseEvent.SNAPSHOT_SAVE_PHASE,
+                        this::saveSnapshot);
+            }
+
+            runPhase(AnalysisPhaseEvent.REPORTS_PHASE,
+                    this::writeAllOutputFiles);
+
+        } finally {
+
+            reportExecutor.shutdown();
+            analyzers.close();
+
+            if (monitor != null) {
+                monitor.unregister();
+            }
+        }
+    }
+
+
+    /**
+     *  Method runs one phase of the analysis inside an AnalysisPhaseEvent,
+     *  so a flight recording shows how long each phase takes.
+     *
+     *@param  phase  name of the phase
+     *@param  step   work of the phase
+     */
+    private void runPhase(String phase, Runnable step) {
+
+        AnalysisPhaseEvent event = new AnalysisPhaseEvent(phase, inputFilePath);
+
+        try {
+            step.run();
+        } finally {
+            event.commit();
+        }
+    }
+
+
+    /**
+     *  Method ends the ingest time of the performance monitor, when the run
+     *  is measured, and reports the footprints of the analyzers the input
+     *  was read into.
+     *
+     */
+    private void finishIngest() {
 
-        writeAllOutputFiles();
+        if (monitor == null) {
+            return;
+        }
+
+        monitor.finishIngest();
+        monitor.setAnalyzers(analyzers);
     }
 
 
     /**
-     *  Method instantiates the following reports: summaryReport,
-     *  UniqueTokenAnalyzer, BigWordAnalyzer, and TokenCountAnalyzer.
+     *  Method compiles the keyword file once and instantiates the set of
+     *  Analyzer reports. When the snapshot.resume property names an existing
+     *  snapshot, the reports start from the saved state and the input is
+     *  added after it as a new document.
      *
      */
     private void initializeReports() {
 
-        analyzers = new ArrayList<Analyzer>();
+        runPhase(AnalysisPhaseEvent.KEYWORDS_PHASE,
+                () -> keywordMatcher = KeywordMatcher.load(properties));
+
+        analyzers = createAnalyzers();
+        resumed = false;
+
+        String snapshotPath = properties.getProperty("snapshot.resume");
+
+        if (snapshotPath == null || !new File(snapshotPath).exists()) {
+            return;
+        }
+
+        try {
+
+            AnalysisPhaseEvent event = new AnalysisPhaseEvent(
+                    AnalysisPhaseEvent.SNAPSHOT_RESUME_PHASE, inputFilePath);
 
-        analyzers.add(new SummaryReport(properties));
-        analyzers.add(new UniqueTokenAnalyzer(properties));
-        analyzers.add(new BigWordAnalyzer(properties));
-        analyzers.add(new TokenCountAnalyzer(properties));
-        analyzers.add(new TokenSizeAnalyzer(properties));
-        analyzers.add(new KeywordAnalyzer(properties));
+            Snapshot.read(analyzers, snapshotPath);
+            event.commit();
+            analyzers.finishDocument();
+            resumed = true;
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+            analyzers.close();
+            analyzers = createAnalyzers();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+            analyzers.close();
+            analyzers = createAnalyzers();
+        }
+    }
+
+
+    /**
+     *  Method saves the state of the reports to the snapshot named by the
+     *  snapshot.save property.
+     *
+     */
+    private void saveSnapshot() {
+
+        String snapshotPath = properties.getProperty("snapshot.save");
+
+        try {
+
+            Snapshot.write(analyzers, snapshotPath);
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     *  Method uses the analyzers of a parallel or batch run as the reports.
+     *  When the run was resumed from a snapshot they are merged after the
+     *  saved state.
+     *
+     *@param  inputAnalyzers  analyzers for the input
+     */
+    private void addInputAnalyzers(AnalyzerSet inputAnalyzers) {
+
+        if (resumed) {
+            analyzers.merge(inputAnalyzers);
+        } else {
+            analyzers.close();
+            analyzers = inputAnalyzers;
+        }
+    }
+
+
+    /**
+     *  Method creates a new set of the Analyzer reports that share one token
+     *  dictionary. Every set uses the same compiled keyword matcher.
+     *
+     *@return    new analyzer set
+     */
+    private AnalyzerSet createAnalyzers() {
+        return createAnalyzers(properties);
+    }
+
+
+    /**
+     *  Method creates a new set of the Analyzer reports that write their
+     *  reports with the given properties. The set is measured by the
+     *  performance monitor of the run, if there is one.
+     *
+     *@param  reportProperties  Properties object for the reports
+     *@return                   new analyzer set
+     */
+    private AnalyzerSet createAnalyzers(Properties reportProperties) {
+
+        AnalyzerSet analyzerSet = new AnalyzerSet(reportProperties,
+                keywordMatcher);
+
+        analyzerSet.setMonitor(monitor);
+
+        return analyzerSet;
     }
 
 
@@ -103,18 +296,72 @@ public class AnalyzeFile {
 
     /**
      *  Method calls a method to read the input file. It handles the exceptions
-     *  from reading the input file.
+     *  from reading the input file. When the input.mode property is set to
+     *  mapped the file is read through a memory mapped channel instead of a
+     *  BufferedReader. When it is set to parallel the file is split into
+     *  ranges that are analyzed on several threads. When it is set to
+     *  pipelined the file is read, tokenized and analyzed by stages on
+     *  separate threads, and when it is set to fanout each analyzer also
+     *  runs on a thread of its own. When the input path is a directory, a
+     *  glob pattern or an @file list, every file of the batch is analyzed.
+     *  When input.mode is set to follow, or the input path is "-" for
+     *  standard input, the input is read as it grows. A gzip or deflate
+     *  compressed input file is decompressed while it is read, whatever the
+     *  input mode.
      *
      */
     private void readInputFile() {
 
+        if (BatchInput.isBatch(inputFilePath)) {
+            readBatchInput();
+            return;
+        }
+
+        String inputMode = properties.getProperty("input.mode");
+
+        if (FOLLOW_INPUT_MODE.equals(inputMode)
+                 || FollowInput.STANDARD_INPUT.equals(inputFilePath)) {
+            readFollowInput();
+            return;
+        }
+
+        if (CompressedInput.isCompressed(inputFilePath)) {
+            readCompressedInputFile();
+            return;
+        }
+
+        if (MAPPED_INPUT_MODE.equals(inputMode)) {
+            readMappedInputFile();
+            return;
+        }
+
+        if (PARALLEL_INPUT_MODE.equals(inputMode)) {
+            readParallelInputFile();
+            return;
+        }
+
+        if (PIPELINED_INPUT_MODE.equals(inputMode)
+                 || FAN_OUT_INPUT_MODE.equals(inputMode)) {
+            readPipelinedInputFile(FAN_OUT_INPUT_MODE.equals(inputMode));
+            return;
+        }
+
         BufferedReader input = null;
 
         try {
-            input = new BufferedReader(new FileReader(inputFilePath));
+            input = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(inputFilePath),
+                    analyzers.getInputCharset()));
+            dispatcher = analyzers.createDispatcher();
 
             readContents(input);
 
+            dispatcher.finish();
+
+            if (monitor != null) {
+                monitor.addBytes(new File(inputFilePath).length());
+            }
+
         } catch (FileNotFoundException fileNotFound) {
 
             fileNotFound.printStackTrace();
@@ -144,6 +391,218 @@ public class AnalyzeFile {
     }
 
 
+    /**
+     *  Method reads the input file through a memory mapped FileChannel. The
+     *  mapped bytes are scanned for tokens directly, so no line Strings or
+     *  token arrays are created. The size of each mapped window can be set
+     *  with the input.map.window.size property.
+     *
+     */
+    private void readMappedInputFile() {
+
+        try {
+
+            createMappedInput().read(analyzers.createTokenizer());
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+
+    }
+
+
+    /**
+     *  Method reads a compressed input file. The file is decompressed on a
+     *  thread of its own while the decompressed bytes are scanned for
+     *  tokens. The size of each block and the number of blocks that can be
+     *  decompressed ahead are set with the input.compressed.block.size and
+     *  input.compressed.queue.blocks properties.
+     *
+     */
+    private void readCompressedInputFile() {
+
+        try {
+
+            CompressedInput.create(inputFilePath, properties).read(
+                    analyzers.createTokenizer());
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+
+    }
+
+
+    /**
+     *  Method reads the input file through a pipeline of a read stage, a
+     *  tokenize stage and an analyze stage on separate threads, connected by
+     *  rings of blocks and token batches whose sizes are set with the
+     *  input.pipeline.block.size, input.pipeline.blocks and
+     *  input.pipeline.batches properties. In fan-out mode each analyzer
+     *  consumes the batches on a thread of its own instead of all of them
+     *  running one after another. The stall time and queue depth of each
+     *  stage are printed once the file is read, so the stage that holds the
+     *  others up can be seen.
+     *
+     *@param  fanOut  true to run each analyzer on its own thread
+     */
+    private void readPipelinedInputFile(boolean fanOut) {
+
+        PipelinedInput input = PipelinedInput.create(inputFilePath,
+                properties, fanOut);
+
+        try {
+
+            input.read(analyzers);
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+
+        for (PipelineStage stage : input.getStages()) {
+            System.out.println(stage);
+        }
+
+    }
+
+
+    /**
+     *  Method analyzes the input file on a fork/join pool. The file is split
+     *  into ranges that start and end on non-word characters, each range is
+     *  analyzed by its own set of analyzers, and the sets are merged in file
+     *  order. The number of threads is set with the input.parallel.threads
+     *  property and defaults to the number of available processors.
+     *
+     */
+    private void readParallelInputFile() {
+
+        int parallelism = Integer.parseInt(properties.getProperty(
+                "input.parallel.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        try {
+
+            addInputAnalyzers(ParallelFileAnalysis.analyze(
+                    createMappedInput(), this::createAnalyzers, parallelism));
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+
+    }
+
+
+    /**
+     *  Method analyzes a batch of input files on a fork/join pool in one run.
+     *  The number of threads is set with the batch.threads property and
+     *  defaults to the number of available processors. The reports written
+     *  at the end cover the whole batch.
+     *
+     */
+    private void readBatchInput() {
+
+        int parallelism = Integer.parseInt(properties.getProperty(
+                "batch.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        try {
+
+            addInputAnalyzers(BatchAnalysis.analyze(
+                    new BatchInput(inputFilePath), this::createAnalyzers,
+                    properties, parallelism));
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+
+    }
+
+
+    /**
+     *  Method follows the input as it grows and rewrites the reports while
+     *  it is read. The reports are refreshed every follow.refresh.seconds
+     *  and every follow.refresh.tokens tokens. A followed file is checked for
+     *  new input every follow.poll.millis and is finished once it has not
+     *  grown for follow.idle.timeout.seconds; without a timeout it is
+     *  followed until the application is stopped.
+     *
+     */
+    private void readFollowInput() {
+
+        FollowInput input = new FollowInput(inputFilePath,
+                Long.parseLong(properties.getProperty(
+                "follow.poll.millis", "500")),
+                Long.parseLong(properties.getProperty(
+                "follow.idle.timeout.seconds", "0")) * 1000L,
+                Long.parseLong(properties.getProperty(
+                "follow.refresh.seconds", "10")) * 1000L,
+                Long.parseLong(properties.getProperty(
+                "follow.refresh.tokens", "0")), analyzers.getInputCharset(),
+                analyzers.getTokenizerBackend());
+
+        input.setMonitor(monitor);
+
+        try {
+
+            input.read(analyzers.createDispatcher(), this::writeReports);
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (InterruptedException interrupted) {
+
+            Thread.currentThread().interrupt();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+        }
+
+    }
+
+
+    /**
+     *  Method creates the memory mapped input for the input file using the
+     *  input.map.window.size property.
+     *
+     *@return    mapped input file
+     */
+    private MappedFileInput createMappedInput() {
+
+        long windowSize = Long.parseLong(properties.getProperty(
+                "input.map.window.size",
+                String.valueOf(MappedFileInput.DEFAULT_WINDOW_SIZE)));
+
+        return new MappedFileInput(inputFilePath, windowSize);
+    }
+
+
     /**
      *  Method loops through all the lines of the input file, splits up each
      *  line by non-word characters and stores in an array. Then, calls a method
@@ -156,11 +615,12 @@ public class AnalyzeFile {
 
         String inputLine = "";
         String[] tokenArray = null;
+        Pattern separator = ByteTokenizer.getSeparatorPattern(
+                analyzers.getInputCharset());
 
-        while (input.ready()) {
+        while ((inputLine = input.readLine()) != null) {
 
-            inputLine = input.readLine();
-            tokenArray = inputLine.split("\\W");
+            tokenArray = separator.split(inputLine);
 
             processAllTokens(tokenArray);
         }
@@ -171,7 +631,9 @@ public class AnalyzeFile {
     /**
      *  Method calls methods to perform processing on the tokens in order to
      *  prepare various Analyzer reports. Tokens are only processed if they have
-     *  a length greater than 0 (i.e. are not blank tokens)
+     *  a length greater than 0 (i.e. are not blank tokens). The tokens are
+     *  collected into batches by the dispatcher, which passes each full batch
+     *  to all of the analyzers.
      *
      *@param  tokenArray  array of all tokens
      */
@@ -181,39 +643,46 @@ public class AnalyzeFile {
         //for (int index = 0; index < tokenArray.length - 1; index++) {
 
             if (token.length() > 0) {
-                analyzerProcessTokens(token);
+                dispatcher.handleToken(token);
             }
         }
     }
 
 
     /**
-     *  Method loops through all of the Analyzers in the analyzers ArrayList and
-     *  calls the processToken method for each analyzer to process tokens.
+     *  Method calls other methods to write out the various Analyzer reports.
      *
-     *@param  token  token
      */
-    private void analyzerProcessTokens(String token) {
+    private void writeAllOutputFiles() {
 
-        for (Analyzer anAnalyzer : analyzers) {
-        //for (int i = 0; i < 2; i++) {
-            anAnalyzer.processToken(token);
+        if (writeReports()) {
+            System.out.println("Files generated.");
         }
     }
 
 
     /**
-     *  Method calls other methods to write out the various Analyzer reports.
+     *  Method writes every Analyzer report at the same time on the report
+     *  executor. Each report replaces the earlier one in a single step, so it
+     *  can be rewritten while input is read. The reports that could not be
+     *  written are listed together.
      *
+     *@return    true if every report was written
      */
-    private void writeAllOutputFiles() {
+    private boolean writeReports() {
 
-        for (Analyzer anAnalyzer : analyzers) {
-        //for (int i = 0; i < 2; i++) {
-            anAnalyzer.writeOutputFile(inputFilePath);
-        }
+        try {
+
+            analyzers.writeOutputFiles(inputFilePath, reportExecutor);
 
-        System.out.println("Files generated.");
+            return true;
+
+        } catch (ReportException reportException) {
+
+            System.err.println(reportException.getMessage());
+
+            return false;
+        }
     }
 
 }
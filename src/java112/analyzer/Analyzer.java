@@ -1,6 +1,7 @@
 package java112.analyzer;
 
 import java.util.*;
+import java.io.*;
 
 /**
  *  Analyzer interface. Contains methods to process tokens and write output.
@@ -19,11 +20,105 @@ public interface Analyzer {
 
 
     /**
-     *  Method writes output
+     *  Method processes a batch of tokens. The default implementation passes
+     *  each token of the batch to processToken, so an analyzer only has to
+     *  override this method when it can handle a whole batch more quickly.
+     *
+     *@param  batch  batch of tokens
+     */
+    default void processTokens(TokenBatch batch) {
+
+        for (int index = 0; index < batch.size(); index++) {
+            processToken(batch.getToken(index));
+        }
+    }
+
+
+    /**
+     *  Method is called at the end of each input document when several
+     *  documents are analyzed one after another. Results that depend on
+     *  neighbouring tokens, such as phrases, do not continue from one
+     *  document into the next. The default implementation does nothing.
+     */
+    default void finishDocument() {
+    }
+
+
+    /**
+     *  Method writes output. A report that cannot be written is thrown as
+     *  an UncheckedIOException.
      *
      *@param  inputFilePath   input file path
      */
     void writeOutputFile(String inputFilePath);
 
+
+    /**
+     *  Method writes the state of the analyzer to a snapshot, so it can be
+     *  loaded later with readState. Analyzers that cannot be saved throw an
+     *  UnsupportedOperationException.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    default void writeState(DataOutput out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName()
+                 + " does not support snapshots");
+    }
+
+
+    /**
+     *  Method loads the state written by writeState into a new analyzer.
+     *  Analyzers that cannot be loaded throw an
+     *  UnsupportedOperationException.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    default void readState(DataInput in) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName()
+                 + " does not support snapshots");
+    }
+
+
+    /**
+     *  Method merges the results of another analyzer of the same class into
+     *  this analyzer. The tokens processed by the other analyzer are treated
+     *  as if they came directly after the tokens processed by this analyzer,
+     *  so results that depend on token positions are shifted by the number
+     *  of tokens this analyzer has already seen. Analyzers that cannot be
+     *  merged throw an UnsupportedOperationException.
+     *
+     *@param  other  analyzer to merge into this analyzer
+     */
+    default void merge(Analyzer other) {
+        throw new UnsupportedOperationException(getClass().getName()
+                 + " does not support merging");
+    }
+
+
+    /**
+     *  Method estimates the memory the analyzer holds, as named counts such
+     *  as the number of tokens it keeps and the bytes of its largest
+     *  arrays. It may be called from another thread while tokens are being
+     *  processed, so it only reads sizes. The default implementation
+     *  reports nothing.
+     *
+     *@return    footprint counts in the order they are reported
+     */
+    default Map<String, Long> getFootprint() {
+        return Collections.emptyMap();
+    }
+
+
+    /**
+     *  Method deletes the temporary files the analyzer has spilled to disk.
+     *  It is called once the results of the analyzer are no longer needed,
+     *  after its report is written or once it has been merged into another
+     *  analyzer. The default implementation does nothing.
+     */
+    default void close() {
+    }
+
 }
 
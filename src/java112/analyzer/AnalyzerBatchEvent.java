@@ -0,0 +1,55 @@
+package java112.analyzer;
+
+import jdk.jfr.*;
+
+/**
+ *  AnalyzerBatchEvent class: A Java Flight Recorder event for an analyzer
+ *  that took unusually long over one batch of tokens. Only batches that
+ *  take longer than the threshold of the event, 10 ms unless the recording
+ *  sets another, are recorded.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@Name("java112.analyzer.SlowAnalyzerBatch")
+@Label("Slow Analyzer Batch")
+@Category("Document Analyzer")
+@Description("An analyzer that took longer than the threshold over a batch "
+         + "of tokens")
+@Threshold("10 ms")
+@StackTrace(false)
+public class AnalyzerBatchEvent extends Event {
+
+    @Label("Analyzer")
+    private String analyzer;
+
+    @Label("Token Count")
+    private int tokenCount;
+
+
+    /**
+     *  Method passes a batch to an analyzer and records an event when the
+     *  analyzer is slower than the threshold.
+     *
+     *@param  analyzer  analyzer that processes the batch
+     *@param  batch     batch of tokens
+     */
+    public static void processTokens(Analyzer analyzer, TokenBatch batch) {
+
+        AnalyzerBatchEvent event = new AnalyzerBatchEvent();
+
+        event.begin();
+
+        analyzer.processTokens(batch);
+
+        event.end();
+
+        if (event.shouldCommit()) {
+
+            event.analyzer = analyzer.getClass().getSimpleName();
+            event.tokenCount = batch.size();
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,397 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ *  AnalyzerSet class: The set of Analyzer reports for one pass over the
+ *  input, in report order, together with the TokenDictionary they share.
+ *  Tokens are resolved to dictionary ids once by the dispatcher before the
+ *  analyzers see them. When analysis.mode is approximate the unique token
+ *  and token count reports are made with sketches of fixed size instead,
+ *  and no dictionary of every token is kept: the big word report keeps a
+ *  dictionary of its own big words, and keywords are matched on the token
+ *  bytes. When token.spill.size is set the unique token, big word and token
+ *  count reports each keep a dictionary of their own instead of sharing
+ *  one, so each can spill its tokens to disk when its dictionary grows past
+ *  that size, and keywords are again matched on the token bytes.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class AnalyzerSet {
+
+    /** Analysis mode that uses sketches instead of the full vocabulary */
+    public final static String APPROXIMATE_ANALYSIS_MODE = "approximate";
+
+    /** Number of reports in a set */
+    public final static int REPORT_COUNT = 6;
+
+    private TokenDictionary dictionary;
+    private List<Analyzer> analyzers;
+    private Charset inputCharset;
+    private String tokenizerBackend;
+    private PerformanceMonitor monitor;
+    private int longTokenSize;
+
+
+    /**
+     *  Constructor for the AnalyzerSet object. It instantiates the following
+     *  reports: SummaryReport, UniqueTokenAnalyzer, BigWordAnalyzer,
+     *  TokenCountAnalyzer, TokenSizeAnalyzer and KeywordAnalyzer. The
+     *  approximate mode uses ApproximateUniqueTokenAnalyzer and
+     *  ApproximateTokenCountAnalyzer instead.
+     *
+     *@param  properties  Properties object
+     */
+    public AnalyzerSet(Properties properties) {
+        this(properties, KeywordMatcher.load(properties));
+    }
+
+
+    /**
+     *  Constructor for an AnalyzerSet whose KeywordAnalyzer uses a keyword
+     *  matcher that has already been compiled, so several sets can share
+     *  one matcher.
+     *
+     *@param  properties      Properties object
+     *@param  keywordMatcher  compiled keyword matcher
+     */
+    public AnalyzerSet(Properties properties, KeywordMatcher keywordMatcher) {
+
+        inputCharset = ByteTokenizer.getInputCharset(properties);
+        tokenizerBackend = ByteTokenizer.getBackend(properties);
+        longTokenSize = Integer.parseInt(properties.getProperty(
+                "jfr.long.token.size",
+                String.valueOf(LongTokenEvent.DEFAULT_MINIMUM_SIZE)));
+        analyzers = new ArrayList<Analyzer>();
+
+        analyzers.add(new SummaryReport(properties));
+
+        if (APPROXIMATE_ANALYSIS_MODE.equals(properties.getProperty(
+                "analysis.mode"))) {
+
+            analyzers.add(new ApproximateUniqueTokenAnalyzer(properties));
+            analyzers.add(new BigWordAnalyzer(properties));
+            analyzers.add(new ApproximateTokenCountAnalyzer(properties));
+
+        } else if (Long.parseLong(properties.getProperty("token.spill.size",
+                "0")) > 0) {
+
+            analyzers.add(new UniqueTokenAnalyzer(properties));
+            analyzers.add(new BigWordAnalyzer(properties));
+            analyzers.add(new TokenCountAnalyzer(properties));
+
+        } else {
+
+            dictionary = new TokenDictionary();
+
+            analyzers.add(new UniqueTokenAnalyzer(properties, dictionary));
+            analyzers.add(new BigWordAnalyzer(properties, dictionary));
+            analyzers.add(new TokenCountAnalyzer(properties, dictionary));
+        }
+
+        analyzers.add(new TokenSizeAnalyzer(properties));
+        analyzers.add(new KeywordAnalyzer(properties, dictionary,
+                keywordMatcher));
+    }
+
+
+    /**
+     *  Returns the value of analyzers.
+     *
+     *@return    The analyzers value
+     */
+    public List<Analyzer> getAnalyzers() {
+        return analyzers;
+    }
+
+
+    /**
+     *  Returns the value of dictionary.
+     *
+     *@return    The dictionary value, or null when the analyzers do not
+     *      share a dictionary
+     */
+    public TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+
+    /**
+     *  Returns the value of monitor.
+     *
+     *@return    The monitor value, or null when the set is not measured
+     */
+    public PerformanceMonitor getMonitor() {
+        return monitor;
+    }
+
+
+    /**
+     *  Sets the monitor that measures the tokenizers, dispatchers and
+     *  report writing of the set.
+     *
+     *@param  monitor  The new monitor value, or null
+     */
+    public void setMonitor(PerformanceMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+
+    /**
+     *  Returns the number of bytes from which a token is recorded as a
+     *  LongTokenEvent, set with the jfr.long.token.size property.
+     *
+     *@return    The longTokenSize value
+     */
+    public int getLongTokenSize() {
+        return longTokenSize;
+    }
+
+
+    /**
+     *  Method creates a dispatcher that resolves each batch of tokens with
+     *  the shared dictionary and passes it to the analyzers.
+     *
+     *@return    new token dispatcher
+     */
+    public TokenDispatcher createDispatcher() {
+        return new TokenDispatcher(analyzers, dictionary, monitor,
+                longTokenSize);
+    }
+
+
+    /**
+     *  Returns the value of inputCharset.
+     *
+     *@return    The inputCharset value
+     */
+    public Charset getInputCharset() {
+        return inputCharset;
+    }
+
+
+    /**
+     *  Returns the value of tokenizerBackend.
+     *
+     *@return    The tokenizerBackend value
+     */
+    public String getTokenizerBackend() {
+        return tokenizerBackend;
+    }
+
+
+    /**
+     *  Method creates a tokenizer for input bytes in the input.charset
+     *  charset, using the input.tokenizer backend, that passes its tokens to
+     *  a new dispatcher.
+     *
+     *@return    new byte tokenizer
+     */
+    public ByteTokenizer createTokenizer() {
+
+        ByteTokenizer tokenizer = new ByteTokenizer(createDispatcher(),
+                inputCharset, tokenizerBackend);
+
+        tokenizer.setMonitor(monitor);
+
+        return tokenizer;
+    }
+
+
+    /**
+     *  Method tells every analyzer that the current input document has
+     *  ended.
+     */
+    public void finishDocument() {
+
+        for (Analyzer analyzer : analyzers) {
+            analyzer.finishDocument();
+        }
+    }
+
+
+    /**
+     *  Method creates the executor that writes reports. It has
+     *  report.threads daemon threads, by default one for each report up to
+     *  the number of processors. The threads are kept for the whole run, so
+     *  each keeps its report buffer from one write to the next.
+     *
+     *@param  properties  Properties object
+     *@return             new report executor
+     */
+    public static ExecutorService createReportExecutor(Properties properties) {
+
+        int defaultThreads = Math.min(REPORT_COUNT,
+                Runtime.getRuntime().availableProcessors());
+        int threads = Integer.parseInt(properties.getProperty(
+                "report.threads", String.valueOf(defaultThreads)));
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Math.max(threads, 1),
+                runnable -> {
+
+                    Thread thread = new Thread(runnable, "report-writer-"
+                             + threadNumber.incrementAndGet());
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                });
+    }
+
+
+    /**
+     *  Method writes the report of every analyzer, one task for each report
+     *  on the executor, and waits until all of them are done. Every report
+     *  is attempted even when others fail, and the failures are thrown
+     *  together. When the set is measured the time of each report is
+     *  recorded, and the SummaryReport is written after the others so its
+     *  performance section includes their times.
+     *
+     *@param  inputFilePath    input file path
+     *@param  executor         executor that runs the report tasks
+     *@exception  ReportException  if any report could not be written
+     */
+    public void writeOutputFiles(String inputFilePath, Executor executor)
+             throws ReportException {
+
+        List<CompletableFuture<Void>> reports =
+                new ArrayList<CompletableFuture<Void>>();
+        List<Throwable> failures = new ArrayList<Throwable>();
+
+        for (int index = 0; index < analyzers.size(); index++) {
+
+            if (monitor == null || !(analyzers.get(index)
+                     instanceof SummaryReport)) {
+                reports.add(writeOutputFile(index, inputFilePath, executor));
+            }
+        }
+
+        joinReports(reports, failures);
+
+        if (monitor != null) {
+
+            List<CompletableFuture<Void>> summaryReports =
+                    new ArrayList<CompletableFuture<Void>>();
+
+            for (int index = 0; index < analyzers.size(); index++) {
+
+                if (analyzers.get(index) instanceof SummaryReport) {
+                    summaryReports.add(writeOutputFile(index, inputFilePath,
+                            executor));
+                }
+            }
+
+            joinReports(summaryReports, failures);
+            reports.addAll(summaryReports);
+        }
+
+        if (!failures.isEmpty()) {
+            throw new ReportException(reports.size(), failures);
+        }
+    }
+
+
+    /**
+     *  Method starts the task that writes the report of one analyzer.
+     *
+     *@param  index          index of the analyzer
+     *@param  inputFilePath  input file path
+     *@param  executor       executor that runs the report task
+     *@return                the report task
+     */
+    private CompletableFuture<Void> writeOutputFile(int index,
+            String inputFilePath, Executor executor) {
+
+        return CompletableFuture.runAsync(
+                () -> writeOutputFile(index, inputFilePath), executor);
+    }
+
+
+    /**
+     *  Method writes the report of one analyzer inside a ReportWriteEvent,
+     *  timing it when the set is measured.
+     *
+     *@param  index          index of the analyzer
+     *@param  inputFilePath  input file path
+     */
+    private void writeOutputFile(int index, String inputFilePath) {
+
+        Analyzer analyzer = analyzers.get(index);
+        ReportWriteEvent event = new ReportWriteEvent(analyzer, inputFilePath);
+        long start = System.nanoTime();
+
+        try {
+
+            analyzer.writeOutputFile(inputFilePath);
+
+        } finally {
+
+            event.commit();
+
+            if (monitor != null) {
+                monitor.addWriteNanos(index, System.nanoTime() - start);
+            }
+        }
+    }
+
+
+    /**
+     *  Method waits for report tasks and collects their failures.
+     *
+     *@param  reports   report tasks
+     *@param  failures  list the failures are added to
+     */
+    private void joinReports(List<CompletableFuture<Void>> reports,
+            List<Throwable> failures) {
+
+        for (CompletableFuture<Void> report : reports) {
+
+            try {
+
+                report.join();
+
+            } catch (CompletionException completionException) {
+
+                failures.add(completionException.getCause());
+            }
+        }
+    }
+
+
+    /**
+     *  Method merges each analyzer of another set into the matching analyzer
+     *  of this set. The tokens of the other set follow the tokens of this
+     *  set. The other set is closed afterwards, since its results now
+     *  belong to this set.
+     *
+     *@param  other  set to merge
+     */
+    public void merge(AnalyzerSet other) {
+
+        for (int index = 0; index < analyzers.size(); index++) {
+            analyzers.get(index).merge(other.getAnalyzers().get(index));
+        }
+
+        other.close();
+    }
+
+
+    /**
+     *  Method closes every analyzer, deleting the temporary files they have
+     *  spilled to disk. It is called once the results of the set are no
+     *  longer needed.
+     */
+    public void close() {
+
+        for (Analyzer analyzer : analyzers) {
+            analyzer.close();
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ *  ApproximateTokenCountAnalyzer class: The token count report of the
+ *  approximate analysis mode. Every token is counted in a Count-Min sketch,
+ *  and a Space-Saving table keeps the approximate.count.top most frequent
+ *  tokens, so the memory used is fixed however large the vocabulary grows.
+ *  The report lists the tokens of the table from the most frequent down,
+ *  each with the smaller of its table count and its sketch estimate. Both
+ *  counts are never too low, and the report states how much too high they
+ *  can be.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class ApproximateTokenCountAnalyzer implements Analyzer {
+
+    private final static double DEFAULT_ERROR = 0.0001;
+    private final static double DEFAULT_CONFIDENCE = 0.99;
+    private final static int DEFAULT_TOP_COUNT = 1000;
+
+    private Properties properties;
+    private CountMinSketch tokenCounts;
+    private SpaceSavingTable topTokens;
+
+
+    /**
+     *  Constructor for the ApproximateTokenCountAnalyzer object
+     *
+     *@param  properties  Properties object
+     */
+    public ApproximateTokenCountAnalyzer(Properties properties) {
+
+        this.properties = properties;
+
+        double epsilon = Double.parseDouble(properties.getProperty(
+                "approximate.count.error", String.valueOf(DEFAULT_ERROR)));
+        double confidence = Double.parseDouble(properties.getProperty(
+                "approximate.count.confidence",
+                String.valueOf(DEFAULT_CONFIDENCE)));
+        int topCount = Integer.parseInt(properties.getProperty(
+                "approximate.count.top", String.valueOf(DEFAULT_TOP_COUNT)));
+
+        tokenCounts = CountMinSketch.forError(epsilon, confidence);
+        topTokens = new SpaceSavingTable(topCount);
+    }
+
+
+    /**
+     *  Method returns the estimated counts of the most frequent tokens,
+     *  from the most frequent down.
+     *
+     *@return    Map of token counts
+     */
+    public Map<String, Long> getTopTokenCounts() {
+
+        Map<String, Long> topTokenCounts = new LinkedHashMap<String, Long>();
+
+        for (int entry : sortedEntries()) {
+            topTokenCounts.put(topTokens.getToken(entry), estimate(entry));
+        }
+
+        return topTokenCounts;
+    }
+
+
+    /**
+     *  Method adds 1 to the count of the token.
+     *
+     *@param  token  token
+     */
+    public void processToken(String token) {
+
+        byte[] tokenBytes = token.getBytes(TokenBatch.TOKEN_CHARSET);
+
+        addToken(tokenBytes, 0, tokenBytes.length);
+    }
+
+
+    /**
+     *  Method adds 1 to the count of each token in the batch.
+     *
+     *@param  batch  batch of tokens
+     */
+    public void processTokens(TokenBatch batch) {
+
+        byte[] data = batch.getData();
+
+        for (int index = 0; index < batch.size(); index++) {
+            addToken(data, batch.getTokenOffset(index),
+                    batch.getTokenLength(index));
+        }
+    }
+
+
+    /**
+     *  Method merges the sketch and table of another
+     *  ApproximateTokenCountAnalyzer into this one.
+     *
+     *@param  other  ApproximateTokenCountAnalyzer to merge
+     */
+    public void merge(Analyzer other) {
+
+        ApproximateTokenCountAnalyzer otherAnalyzer =
+                (ApproximateTokenCountAnalyzer) other;
+
+        tokenCounts.merge(otherAnalyzer.tokenCounts);
+        topTokens.merge(otherAnalyzer.topTokens);
+    }
+
+
+    /**
+     *  Method estimates the memory of the sketch and the table of most
+     *  frequent tokens.
+     *
+     *@return    footprint counts
+     */
+    public Map<String, Long> getFootprint() {
+
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
+
+        footprint.put("sketch bytes", (long) Long.BYTES
+                 * tokenCounts.getWidth() * tokenCounts.getDepth());
+        footprint.put("top tokens", (long) topTokens.size());
+
+        return footprint;
+    }
+
+
+    /**
+     *  Method writes the sketch and the table to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+
+        tokenCounts.writeTo(out);
+        topTokens.writeTo(out);
+    }
+
+
+    /**
+     *  Method loads the sketch and the table from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+
+        tokenCounts.readFrom(in);
+        topTokens.readFrom(in);
+    }
+
+
+    /**
+     *  Method adds 1 to the count of a token in the sketch and the table.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     */
+    private void addToken(byte[] data, int offset, int length) {
+
+        long hash = TokenHash.hash(data, offset, length);
+
+        tokenCounts.add(hash, 1);
+        topTokens.add(data, offset, length, hash, 1);
+    }
+
+
+    /**
+     *  Method returns the estimated count of a table entry.
+     *
+     *@param  entry  index of a table entry
+     *@return        the smaller of the table count and the sketch estimate
+     */
+    private long estimate(int entry) {
+        return Math.min(topTokens.getCount(entry),
+                tokenCounts.estimate(topTokens.getHash(entry)));
+    }
+
+
+    /**
+     *  Method returns the table entries from the highest estimated count to
+     *  the lowest. Entries with the same estimate are in token order.
+     *
+     *@return    sorted entry indexes
+     */
+    private int[] sortedEntries() {
+
+        return Arrays.stream(topTokens.sortedEntries()).boxed()
+                .sorted((first, second) -> Long.compare(estimate(second),
+                        estimate(first)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+
+    /**
+     *  Method calls a method to write the token information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
+
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.token.count");
+
+        ReportWriter.writeReport(outputFilePath, this::writeTokens);
+    }
+
+
+    /**
+     *  Method writes the error bound and the most frequent tokens with their
+     *  estimated counts.
+     *
+     *@param  out  report writer
+     */
+    private void writeTokens(ReportWriter out) throws IOException {
+
+        String delimiter = "\t";
+
+        out.println("Approximate Token Counts: " + topTokens.size()
+                 + " most frequent of " + tokenCounts.getTotalCount()
+                 + " tokens");
+
+        out.println(String.format(Locale.ROOT,
+                "Error Bound: each count is at most %d too high (%.4f%% of "
+                 + "all tokens) with %.2f%% confidence (Count-Min, %d x %d)",
+                tokenCounts.getErrorBound(), tokenCounts.getEpsilon() * 100,
+                tokenCounts.getConfidence() * 100, tokenCounts.getWidth(),
+                tokenCounts.getDepth()));
+
+        for (int entry : sortedEntries()) {
+            out.print(topTokens.getToken(entry));
+            out.print(delimiter);
+            out.print(estimate(entry));
+            out.println();
+        }
+    }
+
+}
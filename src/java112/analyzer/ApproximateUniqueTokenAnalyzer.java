@@ -0,0 +1,161 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ *  ApproximateUniqueTokenAnalyzer class: The unique token report of the
+ *  approximate analysis mode. Instead of listing every unique token it
+ *  writes an estimate of how many there are, made with a HyperLogLog
+ *  estimator whose memory is fixed by the approximate.unique.error
+ *  property however large the vocabulary grows. The report states the
+ *  relative standard error of the estimate.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class ApproximateUniqueTokenAnalyzer implements Analyzer {
+
+    private final static double DEFAULT_ERROR = 0.01;
+
+    private Properties properties;
+    private HyperLogLog uniqueTokens;
+
+
+    /**
+     *  Constructor for the ApproximateUniqueTokenAnalyzer object
+     *
+     *@param  properties  Properties object
+     */
+    public ApproximateUniqueTokenAnalyzer(Properties properties) {
+
+        this.properties = properties;
+
+        double relativeError = Double.parseDouble(properties.getProperty(
+                "approximate.unique.error", String.valueOf(DEFAULT_ERROR)));
+
+        uniqueTokens = new HyperLogLog(HyperLogLog.precisionForError(
+                relativeError));
+    }
+
+
+    /**
+     *  Returns the estimated number of unique tokens.
+     *
+     *@return    The uniqueTokenCount value
+     */
+    public long getUniqueTokenCount() {
+        return uniqueTokens.estimate();
+    }
+
+
+    /**
+     *  Method adds the hash of the token to the estimator.
+     *
+     *@param  token  String token
+     */
+    public void processToken(String token) {
+
+        byte[] tokenBytes = token.getBytes(TokenBatch.TOKEN_CHARSET);
+
+        uniqueTokens.add(TokenHash.hash(tokenBytes, 0, tokenBytes.length));
+    }
+
+
+    /**
+     *  Method adds the hash of each token in the batch to the estimator.
+     *
+     *@param  batch  batch of tokens
+     */
+    public void processTokens(TokenBatch batch) {
+
+        byte[] data = batch.getData();
+
+        for (int index = 0; index < batch.size(); index++) {
+            uniqueTokens.add(TokenHash.hash(data, batch.getTokenOffset(index),
+                    batch.getTokenLength(index)));
+        }
+    }
+
+
+    /**
+     *  Method merges the estimator of another ApproximateUniqueTokenAnalyzer
+     *  into this one.
+     *
+     *@param  other  ApproximateUniqueTokenAnalyzer to merge
+     */
+    public void merge(Analyzer other) {
+        uniqueTokens.merge(
+                ((ApproximateUniqueTokenAnalyzer) other).uniqueTokens);
+    }
+
+
+    /**
+     *  Method estimates the memory of the sketch.
+     *
+     *@return    footprint counts
+     */
+    public Map<String, Long> getFootprint() {
+
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
+
+        footprint.put("sketch registers", (long) uniqueTokens
+                .getRegisterCount());
+
+        return footprint;
+    }
+
+
+    /**
+     *  Method writes the estimator registers to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+        uniqueTokens.writeTo(out);
+    }
+
+
+    /**
+     *  Method loads the estimator registers from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+        uniqueTokens.readFrom(in);
+    }
+
+
+    /**
+     *  Method calls a method to write the estimate to the file. A failure
+     *  is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
+
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.unique");
+
+        ReportWriter.writeReport(outputFilePath, this::writeEstimate);
+    }
+
+
+    /**
+     *  Method writes the estimated unique token count and its error.
+     *
+     *@param  out  report writer
+     */
+    private void writeEstimate(ReportWriter out) throws IOException {
+
+        out.println("Estimated Unique Token Count: " + getUniqueTokenCount());
+
+        out.println(String.format(Locale.ROOT,
+                "Relative Standard Error: %.2f%% (HyperLogLog, %d registers)",
+                uniqueTokens.getStandardError() * 100,
+                uniqueTokens.getRegisterCount()));
+    }
+
+}
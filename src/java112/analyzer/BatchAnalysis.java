@@ -0,0 +1,258 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ *  BatchAnalysis class: Analyzes a batch of input files in one run on a
+ *  fork/join pool. The list of files is split in half again and again until
+ *  each part is small enough, and idle threads steal parts from busy ones.
+ *  Each part is read file by file into a single AnalyzerSet, which is reused
+ *  for every file of the part, and the sets are merged back together in
+ *  file order. The merged analyzers hold the results for the whole corpus
+ *  as if the files had been read one after another, except that no phrase
+ *  is matched across the end of a file. When per file reports are turned
+ *  on, every file is also read into a set of its own whose reports are
+ *  written under the files directory of the output directory.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class BatchAnalysis extends RecursiveTask<AnalyzerSet> {
+
+    private final static long serialVersionUID = 1L;
+
+    /** Directory below output.dir that holds the per file reports */
+    public final static String PER_FILE_DIRECTORY = "files";
+
+    private final static int PARTS_PER_THREAD = 16;
+
+    private BatchInput input;
+    private Function<Properties, AnalyzerSet> analyzerFactory;
+    private Properties properties;
+    private int start;
+    private int end;
+    private int partSize;
+
+
+    /**
+     *  Constructor for the BatchAnalysis object
+     *
+     *@param  input            batch of input files
+     *@param  analyzerFactory  creates a new set of analyzers that write their
+     *      reports with the given properties
+     *@param  properties       Properties object
+     *@param  start            index of the first file of the part
+     *@param  end              end of the part (exclusive)
+     *@param  partSize         largest part that is not split any further
+     */
+    public BatchAnalysis(BatchInput input,
+            Function<Properties, AnalyzerSet> analyzerFactory,
+            Properties properties, int start, int end, int partSize) {
+
+        this.input = input;
+        this.analyzerFactory = analyzerFactory;
+        this.properties = properties;
+        this.start = start;
+        this.end = end;
+        this.partSize = partSize;
+    }
+
+
+    /**
+     *  Method analyzes every file of the batch using the given number of
+     *  threads and returns the merged analyzers.
+     *
+     *@param  input            batch of input files
+     *@param  analyzerFactory  creates a new set of analyzers that write their
+     *      reports with the given properties
+     *@param  properties       Properties object
+     *@param  parallelism      number of threads
+     *@return                  merged analyzer set for the whole batch
+     */
+    public static AnalyzerSet analyze(BatchInput input,
+            Function<Properties, AnalyzerSet> analyzerFactory,
+            Properties properties, int parallelism) {
+
+        int fileCount = input.getFiles().size();
+        int partSize = Math.max(1, fileCount / (parallelism
+                 * PARTS_PER_THREAD));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+
+            return pool.invoke(new BatchAnalysis(input, analyzerFactory,
+                    properties, 0, fileCount, partSize));
+
+        } finally {
+
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     *  Method splits the part in two and analyzes both halves in parallel,
+     *  or analyzes the part directly when it is small enough.
+     *
+     *@return    analyzers for the part
+     */
+    protected AnalyzerSet compute() {
+
+        if (end - start <= partSize) {
+            return analyzePart();
+        }
+
+        int middle = (start + end) >>> 1;
+
+        BatchAnalysis left = new BatchAnalysis(input, analyzerFactory,
+                properties, start, middle, partSize);
+        BatchAnalysis right = new BatchAnalysis(input, analyzerFactory,
+                properties, middle, end, partSize);
+
+        right.fork();
+
+        AnalyzerSet leftAnalyzers = left.compute();
+
+        leftAnalyzers.merge(right.join());
+
+        return leftAnalyzers;
+    }
+
+
+    /**
+     *  Method reads every file of the part into one set of analyzers. A file
+     *  that cannot be read is reported and skipped. The tokenizer and the
+     *  document are finished after every file, even one that failed, so the
+     *  tokens read before a failure are always counted and a token cut off
+     *  by the failure is never joined to the first token of the next file.
+     *
+     *@return    analyzers for the part
+     */
+    private AnalyzerSet analyzePart() {
+
+        AnalyzerSet analyzers = analyzerFactory.apply(properties);
+        boolean perFileReports = Boolean.parseBoolean(properties.getProperty(
+                "batch.per.file.reports", "false"));
+        ByteTokenizer tokenizer = analyzers.createTokenizer();
+
+        for (int index = start; index < end; index++) {
+
+            Path file = input.getFiles().get(index);
+
+            try {
+
+                if (perFileReports) {
+                    analyzers.merge(analyzeFile(file));
+                } else {
+                    readPartFile(file, tokenizer, analyzers);
+                }
+
+            } catch (IOException ioException) {
+
+                ioException.printStackTrace();
+
+            } catch (Exception exception) {
+
+                exception.printStackTrace();
+            }
+        }
+
+        return analyzers;
+    }
+
+
+    /**
+     *  Method reads one file of the part into the analyzers of the part and
+     *  finishes it, whether or not it could be read.
+     *
+     *@param  file             input file
+     *@param  tokenizer        tokenizer of the part
+     *@param  analyzers        analyzers of the part
+     *@exception  IOException  IO Exception
+     */
+    private void readPartFile(Path file, ByteTokenizer tokenizer,
+            AnalyzerSet analyzers) throws IOException {
+
+        try {
+
+            readFile(file, tokenizer);
+
+        } finally {
+
+            tokenizer.finish();
+            analyzers.finishDocument();
+        }
+    }
+
+
+    /**
+     *  Method reads one file into a set of analyzers of its own and writes
+     *  its reports to a directory named after the file. When the file
+     *  cannot be read the set is closed, so its spill files are deleted.
+     *
+     *@param  file             input file
+     *@return                  analyzers for the file
+     *@exception  IOException  IO Exception
+     */
+    private AnalyzerSet analyzeFile(Path file) throws IOException {
+
+        Path outputDirectory = Paths.get(properties.getProperty("output.dir"),
+                PER_FILE_DIRECTORY).resolve(input.getRelativePath(file));
+
+        Files.createDirectories(outputDirectory);
+
+        Properties fileProperties = new Properties();
+
+        fileProperties.putAll(properties);
+        fileProperties.setProperty("output.dir",
+                outputDirectory.toString() + File.separator);
+
+        AnalyzerSet analyzers = analyzerFactory.apply(fileProperties);
+
+        try {
+
+            readFile(file, analyzers.createTokenizer());
+
+        } catch (Throwable throwable) {
+
+            analyzers.close();
+
+            throw throwable;
+        }
+
+        analyzers.finishDocument();
+
+        try {
+            analyzers.writeOutputFiles(file.toString(), Runnable::run);
+        } catch (ReportException reportException) {
+            System.err.println(reportException.getMessage());
+        }
+
+        return analyzers;
+    }
+
+
+    /**
+     *  Method reads one file of the batch into a tokenizer. Compressed files
+     *  are decompressed while they are read, other files are memory mapped.
+     *
+     *@param  file             input file
+     *@param  tokenizer        tokenizer for the file bytes
+     *@exception  IOException  IO Exception
+     */
+    private void readFile(Path file, ByteTokenizer tokenizer)
+             throws IOException {
+
+        if (CompressedInput.isCompressed(file.toString())) {
+            CompressedInput.create(file.toString(), properties).read(tokenizer);
+        } else {
+            new MappedFileInput(file.toString()).read(tokenizer);
+        }
+    }
+
+}
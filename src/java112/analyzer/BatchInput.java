@@ -0,0 +1,202 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ *  BatchInput class: The list of input files for a batch run. The input can
+ *  be a directory, which is searched for regular files in every
+ *  subdirectory, a glob pattern such as docs/**.txt, or a file list written
+ *  as @list.txt with one input file path on each line. The files are sorted
+ *  by path so a batch always analyzes them in the same order.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class BatchInput {
+
+    private final static String LIST_PREFIX = "@";
+    private final static String GLOB_CHARACTERS = "*?[{";
+
+    private String specification;
+    private Path root;
+    private List<Path> files;
+
+
+    /**
+     *  Constructor for the BatchInput object. The input files are found when
+     *  the object is created.
+     *
+     *@param  specification    directory, glob pattern or @file list
+     *@exception  IOException  if the input files cannot be listed
+     */
+    public BatchInput(String specification) throws IOException {
+
+        this.specification = specification;
+
+        if (specification.startsWith(LIST_PREFIX)) {
+            readFileList(Paths.get(specification.substring(
+                    LIST_PREFIX.length())));
+        } else if (isGlob(specification)) {
+            findMatchingFiles(specification);
+        } else {
+            root = Paths.get(specification);
+            files = findFiles(root, path -> true);
+        }
+    }
+
+
+    /**
+     *  Method determines if an input path names more than one file: a
+     *  directory, a glob pattern or a file list.
+     *
+     *@param  specification  input path from the command line
+     *@return                true if the input is a batch of files
+     */
+    public static boolean isBatch(String specification) {
+
+        return specification.startsWith(LIST_PREFIX) || isGlob(specification)
+                 || Files.isDirectory(Paths.get(specification));
+    }
+
+
+    /**
+     *  Returns the value of specification.
+     *
+     *@return    The specification value
+     */
+    public String getSpecification() {
+        return specification;
+    }
+
+
+    /**
+     *  Returns the input files in the order they are analyzed.
+     *
+     *@return    The files value
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+
+    /**
+     *  Method returns the path of an input file relative to the directory
+     *  the batch was searched from. Files of a list keep their own path
+     *  without its root.
+     *
+     *@param  file  input file
+     *@return       relative path of the file
+     */
+    public Path getRelativePath(Path file) {
+
+        if (root != null && file.startsWith(root)) {
+            return root.relativize(file);
+        }
+
+        Path relativePath = file.normalize();
+
+        if (relativePath.getRoot() != null) {
+            relativePath = relativePath.getRoot().relativize(relativePath);
+        }
+
+        return relativePath;
+    }
+
+
+    /**
+     *  Method determines if a path contains glob pattern characters.
+     *
+     *@param  specification  input path
+     *@return                true if it is a glob pattern
+     */
+    private static boolean isGlob(String specification) {
+
+        for (int index = 0; index < specification.length(); index++) {
+
+            if (GLOB_CHARACTERS.indexOf(specification.charAt(index)) >= 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     *  Method reads a file that lists one input file on each line. Blank
+     *  lines are skipped.
+     *
+     *@param  listPath         path of the file list
+     *@exception  IOException  if the list cannot be read
+     */
+    private void readFileList(Path listPath) throws IOException {
+
+        files = new ArrayList<Path>();
+
+        for (String line : Files.readAllLines(listPath,
+                StandardCharsets.UTF_8)) {
+
+            if (line.trim().length() > 0) {
+                files.add(Paths.get(line.trim()));
+            }
+        }
+    }
+
+
+    /**
+     *  Method finds the files that match a glob pattern. The search starts
+     *  at the directory before the first path element with a glob
+     *  character.
+     *
+     *@param  pattern          glob pattern
+     *@exception  IOException  if the directories cannot be searched
+     */
+    private void findMatchingFiles(String pattern) throws IOException {
+
+        Path patternPath = Paths.get(pattern.replaceAll("[*?\\[{].*$", "x"));
+
+        root = patternPath.getParent();
+
+        if (root == null) {
+            root = Paths.get("");
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+                "glob:" + pattern);
+
+        files = findFiles(root, matcher::matches);
+    }
+
+
+    /**
+     *  Method finds the regular files below a directory that are accepted
+     *  by a filter.
+     *
+     *@param  directory        directory to search
+     *@param  filter           accepts the files to analyze
+     *@return                  sorted list of files
+     *@exception  IOException  if the directory cannot be searched
+     */
+    private static List<Path> findFiles(Path directory,
+            Predicate<Path> filter) throws IOException {
+
+        boolean currentDirectory = directory.toString().length() == 0;
+        Path searchDirectory = currentDirectory ? Paths.get(".") : directory;
+
+        try (Stream<Path> paths = Files.walk(searchDirectory)) {
+
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> currentDirectory
+                             ? searchDirectory.relativize(path) : path)
+                    .filter(filter)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+}
@@ -8,7 +8,11 @@ import java.io.*;
  *  that are greater than or equal to a specified number, and this number is
  *  determined by the properties object. The file will have one token on each
  *  line. There will not be any duplicates in the file. This class implements
- *  the Analyzer interface.
+ *  the Analyzer interface. The big words are kept as a bit set of
+ *  TokenDictionary ids. When token.spill.size is set and the analyzer has a
+ *  dictionary of its own, the big words are spilled to sorted runs on disk
+ *  whenever the dictionary grows past that size, and the runs are merged
+ *  when the file is written.
  *
  *@author     Nicole LaBonte
  */
@@ -16,16 +20,20 @@ import java.io.*;
 public class BigWordAnalyzer implements Analyzer {
 
     private Properties properties;
-    //private Set bigWords;
-    private Set<String> bigWords;
+    private TokenDictionary dictionary;
+    private BitSet bigWordIds;
     private int minimumWordLength;
+    private long spillSize;
+    private SortedTokenRuns runs;
 
 
     /**
      *  Constructor for the BigWordAnalyzer object
      */
     public BigWordAnalyzer() {
-        bigWords = new TreeSet<String>();
+
+        dictionary = new TokenDictionary();
+        bigWordIds = new BitSet();
     }
 
 
@@ -42,6 +50,28 @@ public class BigWordAnalyzer implements Analyzer {
         minimumWordLength =
                 Integer.parseInt(properties.getProperty(
                 "bigwords.minimum.length"));
+
+        spillSize = Long.parseLong(properties.getProperty("token.spill.size",
+                "0"));
+
+        if (spillSize > 0) {
+            runs = new SortedTokenRuns(false);
+        }
+    }
+
+
+    /**
+     *  Constructor for a BigWordAnalyzer that shares a token dictionary with
+     *  other analyzers. A shared dictionary is never spilled.
+     *
+     *@param  properties  properties object
+     *@param  dictionary  shared token dictionary
+     */
+    public BigWordAnalyzer(Properties properties, TokenDictionary dictionary) {
+
+        this(properties);
+        this.dictionary = dictionary;
+        runs = null;
     }
 
 
@@ -66,12 +96,29 @@ public class BigWordAnalyzer implements Analyzer {
 
 
     /**
-     *  Gets the bigWords attribute of the BigWordAnalyzer object
+     *  Gets the bigWords attribute of the BigWordAnalyzer object. The sorted
+     *  set is built from the token ids each time it is requested.
      *
      *@return    The bigWords value
      */
     //public Set getBigWords() {
     public Set<String> getBigWords() {
+
+        Set<String> bigWords = new TreeSet<String>();
+
+        if (runs != null) {
+
+            mergeRuns((token, length, value) -> bigWords.add(new String(token,
+                    0, length, TokenBatch.TOKEN_CHARSET)));
+
+            return bigWords;
+        }
+
+        for (int id = bigWordIds.nextSetBit(0); id >= 0;
+                id = bigWordIds.nextSetBit(id + 1)) {
+            bigWords.add(dictionary.getToken(id));
+        }
+
         return bigWords;
     }
 
@@ -84,65 +131,201 @@ public class BigWordAnalyzer implements Analyzer {
      */
     public void processToken(String token) {
 
-        if (token.length() >= minimumWordLength) {
-            bigWords.add(token);
+        if (token.codePointCount(0, token.length()) >= minimumWordLength) {
+            bigWordIds.set(dictionary.add(token));
+            spillIfFull();
         }
     }
 
 
     /**
-     *  Method calls a method to write the token information to the file. It
-     *  handles exceptions for writing output.
+     *  Method adds the id of each token in the batch that is long enough to
+     *  the big words.
      *
-     *@param  inputFilePath  input file path
+     *@param  batch  batch of tokens
      */
-    public void writeOutputFile(String inputFilePath) {
+    public void processTokens(TokenBatch batch) {
 
-        PrintWriter out = null;
+        for (int index = 0; index < batch.size(); index++) {
 
-        String outputFilePath = properties.getProperty("output.dir")
-                 + properties.getProperty("output.file.bigwords");
+            if (batch.getCharacterCount(index) >= minimumWordLength) {
+                bigWordIds.set(batch.getTokenId(index, dictionary));
+            }
+        }
 
-        try {
+        spillIfFull();
+    }
 
-            out = new PrintWriter(
-                    new BufferedWriter(new FileWriter(outputFilePath)));
 
-            writeTokens(out);
+    /**
+     *  Method adds the big words of another BigWordAnalyzer to bigWords.
+     *
+     *@param  other  BigWordAnalyzer to merge
+     */
+    public void merge(Analyzer other) {
 
-        } catch (IOException ioException) {
+        BigWordAnalyzer otherAnalyzer = (BigWordAnalyzer) other;
+        BitSet otherIds = otherAnalyzer.bigWordIds;
 
-            ioException.printStackTrace();
+        for (int id = otherIds.nextSetBit(0); id >= 0;
+                id = otherIds.nextSetBit(id + 1)) {
+            bigWordIds.set(dictionary.add(otherAnalyzer.dictionary, id));
+        }
 
-        } catch (Exception exception) {
+        if (runs != null && otherAnalyzer.runs != null) {
+            runs.addRuns(otherAnalyzer.runs);
+        }
 
-            exception.printStackTrace();
+        spillIfFull();
+    }
 
-        } finally {
 
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (Exception exception) {
+    /**
+     *  Method deletes the runs spilled to disk.
+     */
+    public void close() {
+
+        if (runs != null) {
+            runs.delete();
+        }
+    }
+
+
+    /**
+     *  Method estimates the memory of the big words held in memory.
+     *
+     *@return    footprint counts
+     */
+    public Map<String, Long> getFootprint() {
+
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
+
+        footprint.put("dictionary tokens", (long) dictionary.size());
+        footprint.put("dictionary bytes", dictionary.getMemorySize());
+        footprint.put("bit set bytes", (long) bigWordIds.size() / Byte.SIZE);
+
+        return footprint;
+    }
+
+
+    /**
+     *  Method writes the big words to a snapshot in sorted order.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+
+        if (runs != null) {
+            runs.writeState(out, dictionary, sortedIds(), null);
+        } else {
+            Snapshot.writeTokens(out, dictionary, sortedIds());
+        }
+    }
+
+
+    /**
+     *  Method loads the big words from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+
+        for (int id : Snapshot.readTokens(in, dictionary)) {
+            bigWordIds.set(id);
+        }
+
+        spillIfFull();
+    }
 
-                exception.printStackTrace();
-            }
 
+    /**
+     *  Method returns the ids of the big words in memory sorted by token.
+     *
+     *@return    sorted ids
+     */
+    private int[] sortedIds() {
+        return dictionary.sortIds(bigWordIds.stream().toArray());
+    }
+
+
+    /**
+     *  Method writes the big words in memory to a sorted run and starts
+     *  again with an empty dictionary once the dictionary and the bit set
+     *  hold more than the spill size.
+     */
+    private void spillIfFull() {
+
+        if (runs == null || dictionary.getMemorySize()
+                 + bigWordIds.size() / 8 <= spillSize) {
+            return;
+        }
+
+        try {
+            runs.writeRun(dictionary, sortedIds(), null);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
         }
 
+        dictionary = new TokenDictionary();
+        bigWordIds = new BitSet();
+    }
+
+
+    /**
+     *  Method merges the spilled runs with the big words in memory and
+     *  passes each big word to the handler in sorted order.
+     *
+     *@param  handler  receives each big word
+     */
+    private void mergeRuns(SortedTokenRuns.EntryHandler handler) {
+
+        try {
+            runs.merge(dictionary, sortedIds(), null, handler);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+
+    /**
+     *  Method calls a method to write the token information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
+
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.bigwords");
+
+        ReportWriter.writeReport(outputFilePath, this::writeTokens);
     }
 
 
     /**
      *  Method writes all the unique tokens into a file.
      *
-     *@param  out  PrintWriter
+     *@param  out  report writer
      */
-    private void writeTokens(PrintWriter out) {
+    private void writeTokens(ReportWriter out)
+             throws IOException {
+
+        if (runs != null) {
+
+            runs.merge(dictionary, sortedIds(), null,
+                    (token, length, value) -> {
+                        out.print(token, 0, length);
+                        out.println();
+                    });
+
+            return;
+        }
 
-        for (String token : bigWords) {
-            out.println(token);
+        for (int id : sortedIds()) {
+            out.printToken(dictionary, id);
+            out.println();
         }
 
     }
@@ -0,0 +1,49 @@
+package java112.analyzer;
+
+import java.nio.*;
+
+/**
+ *  ByteScanner interface. Skips runs of ASCII bytes for a ByteTokenizer
+ *  faster than testing one byte at a time. A scanner only has to skip part
+ *  of a run; the tokenizer classifies the byte the scanner stops at and
+ *  carries on from there, so a scanner can leave the end of a buffer, or
+ *  any byte it cannot classify, to the tokenizer. A scanner may remember
+ *  what it has classified in the current buffer, so it is used by one
+ *  tokenizer only.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public interface ByteScanner {
+
+    /**
+     *  Method skips ASCII word characters (a-z, A-Z, 0-9 and underscore).
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         an index from the first index up to the first byte that
+     *      is not an ASCII word character
+     */
+    int skipWordBytes(ByteBuffer buffer, int index, int limit);
+
+
+    /**
+     *  Method skips ASCII bytes that are not word characters.
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         an index from the first index up to the first byte that
+     *      is an ASCII word character or not ASCII
+     */
+    int skipSeparatorBytes(ByteBuffer buffer, int index, int limit);
+
+
+    /**
+     *  Method forgets what has been classified so far. It is called whenever
+     *  the tokenizer is given a buffer, since a buffer can be refilled.
+     */
+    void reset();
+
+}
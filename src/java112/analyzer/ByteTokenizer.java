@@ -0,0 +1,612 @@
+package java112.analyzer;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ *  ByteTokenizer class: This class splits raw input bytes into tokens without
+ *  building line Strings or token arrays. A token is a run of word
+ *  characters, which matches the tokens produced by splitting a line on the
+ *  "\W" regular expression. With the UTF-8 input charset the word characters
+ *  are the Unicode letters, marks, digits and connector punctuation, as for
+ *  "\W" with UNICODE_CHARACTER_CLASS, so accented words stay whole. ASCII
+ *  bytes are classified with a table; a multi-byte character is only decoded
+ *  when one is found. With the US-ASCII input charset the word characters
+ *  are a-z, A-Z, 0-9 and underscore. Every other byte, including line
+ *  terminators and malformed UTF-8, ends a token. Input can be handed to the
+ *  tokenizer in several buffers; a token that runs past the end of one
+ *  buffer, or a character that is split between two buffers, is carried
+ *  over and completed by the next one. With the vector backend, runs of
+ *  ASCII bytes are skipped by a VectorByteScanner, which classifies a whole
+ *  block of bytes at once; the backend falls back to the scalar loop when
+ *  the Vector API is not available.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class ByteTokenizer {
+
+    /** Charset of the input when input.charset is not set */
+    public final static Charset DEFAULT_INPUT_CHARSET = StandardCharsets.UTF_8;
+
+    /** Tokenizer backend that tests one byte at a time */
+    public final static String SCALAR_BACKEND = "scalar";
+
+    /** Tokenizer backend that skips ASCII runs with the Vector API */
+    public final static String VECTOR_BACKEND = "vector";
+
+    private final static String VECTOR_SCANNER_CLASS =
+            "java112.analyzer.VectorByteScanner";
+
+    private final static int INITIAL_CARRY_SIZE = 64;
+
+    private final static boolean[] WORD_CHARACTERS = new boolean[256];
+
+    private final static int[] SEQUENCE_LENGTHS = new int[256];
+
+    private final static int[] MINIMUM_CODE_POINTS = {0, 0, 0x80, 0x800,
+            0x10000};
+
+    private final static int TWO_BYTE_LIMIT = 0x800;
+
+    private final static boolean[] TWO_BYTE_WORD_CHARACTERS =
+            new boolean[TWO_BYTE_LIMIT];
+
+    private final static int INCOMPLETE = -1;
+
+    private static volatile boolean vectorFallbackReported;
+
+    static {
+
+        for (int character = 'a'; character <= 'z'; character++) {
+            WORD_CHARACTERS[character] = true;
+        }
+
+        for (int character = 'A'; character <= 'Z'; character++) {
+            WORD_CHARACTERS[character] = true;
+        }
+
+        for (int character = '0'; character <= '9'; character++) {
+            WORD_CHARACTERS[character] = true;
+        }
+
+        WORD_CHARACTERS['_'] = true;
+
+        for (int lead = 0xC2; lead <= 0xDF; lead++) {
+            SEQUENCE_LENGTHS[lead] = 2;
+        }
+
+        for (int lead = 0xE0; lead <= 0xEF; lead++) {
+            SEQUENCE_LENGTHS[lead] = 3;
+        }
+
+        for (int lead = 0xF0; lead <= 0xF4; lead++) {
+            SEQUENCE_LENGTHS[lead] = 4;
+        }
+
+        for (int codePoint = 0x80; codePoint < TWO_BYTE_LIMIT; codePoint++) {
+            TWO_BYTE_WORD_CHARACTERS[codePoint] = isWordCodePoint(codePoint);
+        }
+    }
+
+    private TokenHandler handler;
+    private boolean decodeUtf8;
+    private ByteScanner scanner;
+    private PerformanceMonitor monitor;
+    private byte[] carry;
+    private ByteBuffer carryBuffer;
+    private int carryLength;
+    private int carryIncompleteLength;
+    private int incompleteLength;
+
+
+    /**
+     *  Constructor for the ByteTokenizer object
+     *
+     *@param  handler  handler that receives each token
+     */
+    public ByteTokenizer(TokenHandler handler) {
+        this(handler, DEFAULT_INPUT_CHARSET);
+    }
+
+
+    /**
+     *  Constructor for the ByteTokenizer object
+     *
+     *@param  handler       handler that receives each token
+     *@param  inputCharset  UTF-8 or US-ASCII
+     */
+    public ByteTokenizer(TokenHandler handler, Charset inputCharset) {
+        this(handler, inputCharset, SCALAR_BACKEND);
+    }
+
+
+    /**
+     *  Constructor for the ByteTokenizer object
+     *
+     *@param  handler       handler that receives each token
+     *@param  inputCharset  UTF-8 or US-ASCII
+     *@param  backend       SCALAR_BACKEND or VECTOR_BACKEND
+     */
+    public ByteTokenizer(TokenHandler handler, Charset inputCharset,
+            String backend) {
+
+        this.handler = handler;
+        scanner = createScanner(backend);
+
+        decodeUtf8 = checkInputCharset(inputCharset).equals(
+                StandardCharsets.UTF_8);
+
+        carry = new byte[INITIAL_CARRY_SIZE];
+        carryBuffer = ByteBuffer.wrap(carry);
+        carryLength = 0;
+    }
+
+
+    /**
+     *  Method returns the input charset set with the input.charset property.
+     *
+     *@param  properties  properties object
+     *@return             UTF-8 or US-ASCII
+     */
+    public static Charset getInputCharset(Properties properties) {
+
+        return checkInputCharset(Charset.forName(properties.getProperty(
+                "input.charset", DEFAULT_INPUT_CHARSET.name())));
+    }
+
+
+    /**
+     *  Method returns the tokenizer backend set with the input.tokenizer
+     *  property.
+     *
+     *@param  properties  properties object
+     *@return             SCALAR_BACKEND or VECTOR_BACKEND
+     */
+    public static String getBackend(Properties properties) {
+        return properties.getProperty("input.tokenizer", SCALAR_BACKEND);
+    }
+
+
+    /**
+     *  Method creates the scanner for a backend. The vector scanner is
+     *  loaded through reflection, so this class does not need the
+     *  jdk.incubator.vector module. When it cannot be loaded the scalar loop
+     *  is used and the reason is reported once.
+     *
+     *@param  backend  SCALAR_BACKEND or VECTOR_BACKEND
+     *@return          the scanner, or null for the scalar loop
+     */
+    private static ByteScanner createScanner(String backend) {
+
+        if (SCALAR_BACKEND.equals(backend)) {
+            return null;
+        }
+
+        if (!VECTOR_BACKEND.equals(backend)) {
+            throw new IllegalArgumentException("Unknown tokenizer backend "
+                     + backend + ", use " + SCALAR_BACKEND + " or "
+                     + VECTOR_BACKEND);
+        }
+
+        try {
+
+            return (ByteScanner) Class.forName(VECTOR_SCANNER_CLASS)
+                    .getDeclaredConstructor().newInstance();
+
+        } catch (ReflectiveOperationException | LinkageError unavailable) {
+
+            Throwable cause = unavailable.getCause() != null
+                     ? unavailable.getCause() : unavailable;
+
+            if (!vectorFallbackReported) {
+                vectorFallbackReported = true;
+                System.err.println("Vector tokenizer not available, using the "
+                         + "scalar tokenizer: " + cause);
+            }
+
+            return null;
+        }
+    }
+
+
+    /**
+     *  Method returns the pattern that splits a line of the input charset
+     *  into the same tokens as the tokenizer.
+     *
+     *@param  inputCharset  UTF-8 or US-ASCII
+     *@return               the non-word character pattern
+     */
+    public static Pattern getSeparatorPattern(Charset inputCharset) {
+
+        if (checkInputCharset(inputCharset).equals(StandardCharsets.UTF_8)) {
+            return Pattern.compile("\\W", Pattern.UNICODE_CHARACTER_CLASS);
+        }
+
+        return Pattern.compile("\\W");
+    }
+
+
+    /**
+     *  Method checks that the tokenizer can read a charset.
+     *
+     *@param  inputCharset  input charset
+     *@return               the input charset
+     */
+    private static Charset checkInputCharset(Charset inputCharset) {
+
+        if (!inputCharset.equals(StandardCharsets.UTF_8)
+                 && !inputCharset.equals(StandardCharsets.US_ASCII)) {
+            throw new IllegalArgumentException("Unsupported input charset "
+                     + inputCharset + ", use UTF-8 or US-ASCII");
+        }
+
+        return inputCharset;
+    }
+
+
+    /**
+     *  Method determines if a byte can be part of a token. Bytes of multi-byte
+     *  UTF-8 characters can be, so a position before a byte for which this
+     *  is false never falls inside a token in either input charset.
+     *
+     *@param  value  input byte
+     *@return        true if the byte can be part of a token
+     */
+    public static boolean isWordCharacter(byte value) {
+        return value < 0 || WORD_CHARACTERS[value];
+    }
+
+
+    /**
+     *  Method determines if a Unicode code point is a word character: a
+     *  letter, a mark, a decimal digit, connector punctuation or a join
+     *  control, the characters of "\w" with UNICODE_CHARACTER_CLASS.
+     *
+     *@param  codePoint  Unicode code point
+     *@return            true if the code point is part of a token
+     */
+    public static boolean isWordCodePoint(int codePoint) {
+
+        if (codePoint < WORD_CHARACTERS.length / 2) {
+            return WORD_CHARACTERS[codePoint];
+        }
+
+        switch (Character.getType(codePoint)) {
+
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.CONNECTOR_PUNCTUATION:
+                return true;
+
+            default:
+                return Character.isAlphabetic(codePoint)
+                         || codePoint == 0x200C || codePoint == 0x200D;
+        }
+    }
+
+
+    /**
+     *  Sets the monitor that counts the bytes tokenized.
+     *
+     *@param  monitor  The new monitor value, or null
+     */
+    public void setMonitor(PerformanceMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+
+    /**
+     *  Method scans the bytes between the position and the limit of the
+     *  buffer and passes every complete token to the handler. The buffer
+     *  position is not changed. A token that reaches the limit is held back
+     *  until the next call to tokenize or finish.
+     *
+     *@param  buffer  input bytes
+     */
+    public void tokenize(ByteBuffer buffer) {
+
+        int index = buffer.position();
+        int limit = buffer.limit();
+
+        if (scanner != null) {
+            scanner.reset();
+        }
+
+        if (monitor != null) {
+            monitor.addBytes(limit - index);
+        }
+
+        if (carryLength > 0) {
+            index = completeCarriedToken(buffer, index, limit);
+        }
+
+        while (index < limit) {
+
+            index = skipSeparators(buffer, index, limit);
+
+            int tokenStart = index;
+
+            index = scanWord(buffer, index, limit);
+
+            if (index == limit) {
+
+                if (index > tokenStart) {
+                    appendCarry(buffer, tokenStart, index - tokenStart);
+                    carryIncompleteLength = incompleteLength;
+                }
+
+            } else {
+                handler.handleToken(buffer, tokenStart, index - tokenStart);
+            }
+        }
+    }
+
+
+    /**
+     *  Method passes any token that is still being carried to the handler
+     *  and then tells the handler the input is finished. It is called once
+     *  the end of the input has been reached. A character that was cut off
+     *  by the end of the input is dropped.
+     */
+    public void finish() {
+
+        carryLength -= carryIncompleteLength;
+        carryIncompleteLength = 0;
+
+        handleCarriedToken();
+
+        handler.finish();
+    }
+
+
+    /**
+     *  Method passes the token that is being carried to the handler.
+     */
+    private void handleCarriedToken() {
+
+        if (carryLength > 0) {
+            handler.handleToken(carryBuffer, 0, carryLength);
+            carryLength = 0;
+        }
+    }
+
+
+    /**
+     *  Method skips the bytes that are not word characters.
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         index of the first word character, or of a character
+     *      that is cut off by the limit, or the limit
+     */
+    private int skipSeparators(ByteBuffer buffer, int index, int limit) {
+
+        while (index < limit) {
+
+            if (scanner != null) {
+
+                index = scanner.skipSeparatorBytes(buffer, index, limit);
+
+                if (index == limit) {
+                    return index;
+                }
+            }
+
+            byte value = buffer.get(index);
+
+            if (value >= 0) {
+
+                if (WORD_CHARACTERS[value]) {
+                    return index;
+                }
+
+            } else if (decodeUtf8
+                     && wordCharacterLength(buffer, index, limit) != 0) {
+                return index;
+            }
+
+            index++;
+        }
+
+        return index;
+    }
+
+
+    /**
+     *  Method finds the end of a run of word characters. When the run is
+     *  stopped by a character that is cut off by the limit, incompleteLength
+     *  is set to the number of bytes of that character which were found.
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         index of the first byte after the run, or the limit
+     */
+    private int scanWord(ByteBuffer buffer, int index, int limit) {
+
+        incompleteLength = 0;
+
+        while (index < limit) {
+
+            if (scanner != null) {
+
+                index = scanner.skipWordBytes(buffer, index, limit);
+
+                if (index == limit) {
+                    return index;
+                }
+            }
+
+            byte value = buffer.get(index);
+
+            if (value >= 0) {
+
+                if (!WORD_CHARACTERS[value]) {
+                    return index;
+                }
+
+                index++;
+
+            } else {
+
+                int length = decodeUtf8
+                         ? wordCharacterLength(buffer, index, limit) : 0;
+
+                if (length == 0) {
+                    return index;
+                }
+
+                if (length == INCOMPLETE) {
+                    incompleteLength = limit - index;
+                    return limit;
+                }
+
+                index += length;
+            }
+        }
+
+        return index;
+    }
+
+
+    /**
+     *  Method decodes the multi-byte UTF-8 character that starts at an index
+     *  and determines if it is a word character.
+     *
+     *@param  buffer  input bytes
+     *@param  index   index of the first byte of the character
+     *@param  limit   limit of the buffer
+     *@return         number of bytes in the character if it is a word
+     *      character, 0 if it is not or is malformed, or INCOMPLETE if the
+     *      limit cuts it off
+     */
+    private static int wordCharacterLength(ByteBuffer buffer, int index,
+            int limit) {
+
+        int lead = buffer.get(index) & 0xFF;
+        int length = SEQUENCE_LENGTHS[lead];
+
+        if (length == 0) {
+            return 0;
+        }
+
+        int codePoint = lead & (0x7F >> length);
+        int end = Math.min(index + length, limit);
+
+        for (int next = index + 1; next < end; next++) {
+
+            int value = buffer.get(next);
+
+            if ((value & 0xC0) != 0x80) {
+                return 0;
+            }
+
+            codePoint = (codePoint << 6) | (value & 0x3F);
+        }
+
+        if (index + length > limit) {
+            return INCOMPLETE;
+        }
+
+        if (codePoint < MINIMUM_CODE_POINTS[length]
+                 || (codePoint >= Character.MIN_SURROGATE
+                 && codePoint <= Character.MAX_SURROGATE)
+                 || codePoint > Character.MAX_CODE_POINT) {
+            return 0;
+        }
+
+        boolean word = codePoint < TWO_BYTE_LIMIT
+                 ? TWO_BYTE_WORD_CHARACTERS[codePoint]
+                 : isWordCodePoint(codePoint);
+
+        return word ? length : 0;
+    }
+
+
+    /**
+     *  Method continues the token carried over from the previous buffer. A
+     *  character that was cut off at the end of the previous buffer is
+     *  completed first; if it turns out not to be a word character the
+     *  carried token ends before it.
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         index of the first byte after the carried token
+     */
+    private int completeCarriedToken(ByteBuffer buffer, int index, int limit) {
+
+        if (carryIncompleteLength > 0) {
+
+            int characterStart = carryLength - carryIncompleteLength;
+            int characterLength = SEQUENCE_LENGTHS[carry[characterStart]
+                     & 0xFF];
+
+            while (carryIncompleteLength < characterLength && index < limit
+                     && (buffer.get(index) & 0xC0) == 0x80) {
+                appendCarry(buffer, index, 1);
+                carryIncompleteLength++;
+                index++;
+            }
+
+            if (carryIncompleteLength < characterLength && index == limit) {
+                return index;
+            }
+
+            carryIncompleteLength = 0;
+
+            if (wordCharacterLength(carryBuffer, characterStart, carryLength)
+                     <= 0) {
+                carryLength = characterStart;
+                handleCarriedToken();
+                return index;
+            }
+        }
+
+        int tokenStart = index;
+
+        index = scanWord(buffer, index, limit);
+
+        appendCarry(buffer, tokenStart, index - tokenStart);
+
+        if (index < limit) {
+            handleCarriedToken();
+        } else {
+            carryIncompleteLength = incompleteLength;
+        }
+
+        return index;
+    }
+
+
+    /**
+     *  Method appends bytes from the buffer to the carried token.
+     *
+     *@param  buffer  input bytes
+     *@param  offset  first byte to copy
+     *@param  length  number of bytes to copy
+     */
+    private void appendCarry(ByteBuffer buffer, int offset, int length) {
+
+        if (carryLength + length > carry.length) {
+
+            byte[] largerCarry = new byte[Math.max(carry.length * 2,
+                    carryLength + length)];
+
+            System.arraycopy(carry, 0, largerCarry, 0, carryLength);
+
+            carry = largerCarry;
+            carryBuffer = ByteBuffer.wrap(carry);
+        }
+
+        buffer.get(offset, carry, carryLength, length);
+        carryLength += length;
+    }
+
+}
@@ -0,0 +1,380 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ *  CompressedInput class: Reads a gzip or zlib deflate compressed input
+ *  file without decompressing it to disk first. The format is detected from
+ *  the first bytes of the file. The file is decompressed on a thread of its
+ *  own, which fills blocks and hands them to the tokenizer through a bounded
+ *  queue, so decompression overlaps with analysis while only a fixed number
+ *  of blocks is ever held in memory. A gzip file may hold several members
+ *  one after another; they are read as one continuous input.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class CompressedInput {
+
+    /** Name of the gzip format */
+    public final static String GZIP_FORMAT = "gzip";
+
+    /** Name of the zlib deflate format */
+    public final static String DEFLATE_FORMAT = "deflate";
+
+    /** Default number of decompressed bytes in each block (256 KB) */
+    public final static int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /** Default number of blocks that can be decompressed ahead */
+    public final static int DEFAULT_QUEUE_BLOCKS = 4;
+
+    private final static int GZIP_MAGIC = 0x1F8B;
+    private final static int DEFLATE_METHOD = 8;
+    private final static int HEADER_CHECK = 31;
+    private final static int DETECT_SIZE = 4096;
+    private final static int INFLATE_BUFFER_SIZE = 64 * 1024;
+    private final static ByteBuffer END_OF_INPUT = ByteBuffer.allocate(0);
+
+    private String inputFilePath;
+    private String format;
+    private int blockSize;
+    private int queueBlocks;
+    private BlockingQueue<ByteBuffer> filledBlocks;
+    private BlockingQueue<ByteBuffer> emptyBlocks;
+    private volatile Throwable failure;
+
+
+    /**
+     *  Constructor for the CompressedInput object
+     *
+     *@param  inputFilePath    input file path
+     *@exception  IOException  if the file cannot be read or is not
+     *      compressed
+     */
+    public CompressedInput(String inputFilePath) throws IOException {
+        this(inputFilePath, DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_BLOCKS);
+    }
+
+
+    /**
+     *  Constructor for the CompressedInput object
+     *
+     *@param  inputFilePath    input file path
+     *@param  blockSize        number of decompressed bytes in each block
+     *@param  queueBlocks      number of blocks that can be decompressed ahead
+     *@exception  IOException  if the file cannot be read or is not
+     *      compressed
+     */
+    public CompressedInput(String inputFilePath, int blockSize,
+            int queueBlocks) throws IOException {
+
+        this.inputFilePath = inputFilePath;
+        this.blockSize = blockSize;
+        this.queueBlocks = Math.max(1, queueBlocks);
+
+        format = detectFormat(inputFilePath);
+
+        if (format == null) {
+            throw new IOException(inputFilePath + " is not compressed");
+        }
+    }
+
+
+    /**
+     *  Method creates a CompressedInput with the block size and queue length
+     *  of the input.compressed.block.size and input.compressed.queue.blocks
+     *  properties.
+     *
+     *@param  inputFilePath    input file path
+     *@param  properties       properties object
+     *@return                  compressed input for the file
+     *@exception  IOException  if the file cannot be read or is not
+     *      compressed
+     */
+    public static CompressedInput create(String inputFilePath,
+            Properties properties) throws IOException {
+
+        return new CompressedInput(inputFilePath,
+                Integer.parseInt(properties.getProperty(
+                "input.compressed.block.size",
+                String.valueOf(DEFAULT_BLOCK_SIZE))),
+                Integer.parseInt(properties.getProperty(
+                "input.compressed.queue.blocks",
+                String.valueOf(DEFAULT_QUEUE_BLOCKS))));
+    }
+
+
+    /**
+     *  Method determines the compression format of a file from its first
+     *  bytes. A gzip file starts with 1f 8b. A zlib stream starts with a
+     *  method byte for deflate and a flag byte that makes the first two bytes
+     *  a multiple of 31. Plain text can start that way by chance, so the
+     *  start of a zlib stream must also inflate without an error.
+     *
+     *@param  inputFilePath    input file path
+     *@return                  GZIP_FORMAT, DEFLATE_FORMAT or null when the
+     *      file is not compressed
+     *@exception  IOException  if the file cannot be read
+     */
+    public static String detectFormat(String inputFilePath)
+             throws IOException {
+
+        byte[] header = new byte[DETECT_SIZE];
+        int headerLength;
+
+        try (InputStream in = Files.newInputStream(Paths.get(inputFilePath))) {
+            headerLength = in.readNBytes(header, 0, header.length);
+        }
+
+        if (headerLength < 2) {
+            return null;
+        }
+
+        int magic = ((header[0] & 0xFF) << 8) | (header[1] & 0xFF);
+
+        if (magic == GZIP_MAGIC) {
+            return GZIP_FORMAT;
+        }
+
+        if ((header[0] & 0x0F) == DEFLATE_METHOD && magic % HEADER_CHECK == 0
+                 && inflates(header, headerLength)) {
+            return DEFLATE_FORMAT;
+        }
+
+        return null;
+    }
+
+
+    /**
+     *  Method determines if the start of a file is the start of a valid zlib
+     *  stream that needs no preset dictionary.
+     *
+     *@param  header        first bytes of the file
+     *@param  headerLength  number of bytes read
+     *@return               true if the bytes inflate without an error
+     */
+    private static boolean inflates(byte[] header, int headerLength) {
+
+        Inflater inflater = new Inflater();
+        byte[] output = new byte[INFLATE_BUFFER_SIZE];
+
+        try {
+
+            int inflatedLength;
+
+            inflater.setInput(header, 0, headerLength);
+
+            do {
+                inflatedLength = inflater.inflate(output);
+            } while (inflatedLength > 0);
+
+            return !inflater.needsDictionary();
+
+        } catch (DataFormatException dataFormatException) {
+
+            return false;
+
+        } finally {
+            inflater.end();
+        }
+    }
+
+
+    /**
+     *  Method determines if a path is a regular file that is compressed. A
+     *  file that cannot be read is not compressed, so the usual reader
+     *  reports the problem.
+     *
+     *@param  inputFilePath  input file path
+     *@return                true if the file is gzip or zlib compressed
+     */
+    public static boolean isCompressed(String inputFilePath) {
+
+        if (!Files.isRegularFile(Paths.get(inputFilePath))) {
+            return false;
+        }
+
+        try {
+            return detectFormat(inputFilePath) != null;
+        } catch (IOException ioException) {
+            return false;
+        }
+    }
+
+
+    /**
+     *  Returns the value of inputFilePath.
+     *
+     *@return    The inputFilePath value
+     */
+    public String getInputFilePath() {
+        return inputFilePath;
+    }
+
+
+    /**
+     *  Returns the value of format.
+     *
+     *@return    The format value
+     */
+    public String getFormat() {
+        return format;
+    }
+
+
+    /**
+     *  Method decompresses the file on a separate thread and passes each
+     *  decompressed block to the tokenizer as it arrives. The tokenizer is
+     *  finished once the whole file has been read.
+     *
+     *@param  tokenizer        tokenizer for the decompressed bytes
+     *@exception  IOException  if the file cannot be read or decompressed
+     */
+    public void read(ByteTokenizer tokenizer) throws IOException {
+
+        emptyBlocks = new ArrayBlockingQueue<ByteBuffer>(queueBlocks);
+        filledBlocks = new ArrayBlockingQueue<ByteBuffer>(queueBlocks + 1);
+        failure = null;
+
+        for (int index = 0; index < queueBlocks; index++) {
+            emptyBlocks.add(ByteBuffer.allocate(blockSize));
+        }
+
+        Thread decompressor = new Thread(this::decompress,
+                "decompress-" + Paths.get(inputFilePath).getFileName());
+
+        decompressor.setDaemon(true);
+        decompressor.start();
+
+        try {
+
+            ByteBuffer block = filledBlocks.take();
+
+            while (block != END_OF_INPUT) {
+
+                tokenizer.tokenize(block);
+
+                block.clear();
+                emptyBlocks.add(block);
+
+                block = filledBlocks.take();
+            }
+
+        } catch (InterruptedException interrupted) {
+
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Reading " + inputFilePath
+                     + " was interrupted");
+
+        } finally {
+            decompressor.interrupt();
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        tokenizer.finish();
+    }
+
+
+    /**
+     *  Method runs on the decompressor thread. It fills empty blocks with
+     *  decompressed bytes and queues them for the tokenizer. Any failure is
+     *  kept for the reader to throw, and the end of the input is always
+     *  queued, so the reader never waits for a block that will not come.
+     */
+    private void decompress() {
+
+        try (InputStream in = openDecompressedStream()) {
+
+            ByteBuffer block = emptyBlocks.take();
+            int length = in.readNBytes(block.array(), 0, blockSize);
+
+            while (length > 0) {
+
+                block.limit(length);
+                filledBlocks.put(block);
+
+                if (length < blockSize) {
+                    break;
+                }
+
+                block = emptyBlocks.take();
+                length = in.readNBytes(block.array(), 0, blockSize);
+            }
+
+        } catch (IOException ioException) {
+
+            failure = new IOException("Cannot decompress " + inputFilePath
+                     + ": " + ioException, ioException);
+
+        } catch (InterruptedException interrupted) {
+
+            return;
+
+        } catch (Throwable throwable) {
+
+            failure = throwable;
+
+        } finally {
+
+            filledBlocks.add(END_OF_INPUT);
+        }
+    }
+
+
+    /**
+     *  Method opens a stream of the decompressed bytes of the file.
+     *  GZIPInputStream continues with the next member when one member ends,
+     *  so concatenated gzip files are read as a whole.
+     *
+     *@return                  decompressed input stream
+     *@exception  IOException  IO Exception
+     */
+    private InputStream openDecompressedStream() throws IOException {
+
+        InputStream in = Files.newInputStream(Paths.get(inputFilePath));
+
+        try {
+
+            if (GZIP_FORMAT.equals(format)) {
+                return new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+            }
+
+            Inflater inflater = new Inflater();
+
+            return new InflaterInputStream(in, inflater, INFLATE_BUFFER_SIZE) {
+
+                public void close() throws IOException {
+
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+
+        } catch (IOException ioException) {
+
+            in.close();
+            throw ioException;
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package java112.analyzer;
+
+import java.io.*;
+
+/**
+ *  CountMinSketch class: Estimates how often each token occurred in fixed
+ *  memory. The sketch is a table of depth rows of width counters; a token
+ *  adds to one counter in every row, picked from its hash, and its estimate
+ *  is the smallest of those counters. An estimate is never too low, and
+ *  with a width of e / epsilon and a depth of ln(1 / (1 - confidence)) it
+ *  is at most epsilon times the total count too high with the given
+ *  confidence. Two sketches with the same size are merged by adding their
+ *  counters.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class CountMinSketch {
+
+    private int width;
+    private int depth;
+    private long[] counters;
+    private long totalCount;
+
+
+    /**
+     *  Constructor for the CountMinSketch object
+     *
+     *@param  width  number of counters in each row
+     *@param  depth  number of rows
+     */
+    public CountMinSketch(int width, int depth) {
+
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Count-Min sketch size "
+                     + width + " x " + depth + " is too small");
+        }
+
+        this.width = width;
+        this.depth = depth;
+        counters = new long[Math.multiplyExact(width, depth)];
+    }
+
+
+    /**
+     *  Method creates a sketch whose estimates are at most epsilon times
+     *  the total count too high with the given confidence.
+     *
+     *@param  epsilon     error as a fraction of the total count
+     *@param  confidence  probability that an estimate is within the error
+     *@return             new sketch
+     */
+    public static CountMinSketch forError(double epsilon, double confidence) {
+
+        int width = (int) Math.ceil(Math.E / epsilon);
+        int depth = (int) Math.ceil(Math.log(1 / (1 - confidence)));
+
+        return new CountMinSketch(width, Math.max(depth, 1));
+    }
+
+
+    /**
+     *  Returns the value of width.
+     *
+     *@return    The width value
+     */
+    public int getWidth() {
+        return width;
+    }
+
+
+    /**
+     *  Returns the value of depth.
+     *
+     *@return    The depth value
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+
+    /**
+     *  Returns the sum of all the counts added.
+     *
+     *@return    The totalCount value
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+
+    /**
+     *  Returns the error of an estimate as a fraction of the total count.
+     *
+     *@return    The epsilon value
+     */
+    public double getEpsilon() {
+        return Math.E / width;
+    }
+
+
+    /**
+     *  Returns the probability that an estimate is within the error.
+     *
+     *@return    The confidence value
+     */
+    public double getConfidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+
+    /**
+     *  Returns the most an estimate is too high with the confidence of the
+     *  sketch.
+     *
+     *@return    The errorBound value
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(getEpsilon() * totalCount);
+    }
+
+
+    /**
+     *  Method adds a count for the token with the given hash and returns the
+     *  new estimate for the token.
+     *
+     *@param  hash   64 bit token hash
+     *@param  count  amount to add
+     *@return        estimated count of the token
+     */
+    public long add(long hash, long count) {
+
+        int firstHash = (int) hash;
+        int secondHash = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+
+        totalCount += count;
+
+        for (int row = 0; row < depth; row++) {
+
+            int index = row * width + Math.floorMod(firstHash + row
+                     * secondHash, width);
+
+            counters[index] += count;
+            estimate = Math.min(estimate, counters[index]);
+        }
+
+        return estimate;
+    }
+
+
+    /**
+     *  Method returns the estimated count of the token with the given hash.
+     *
+     *@param  hash  64 bit token hash
+     *@return       estimated count of the token
+     */
+    public long estimate(long hash) {
+
+        int firstHash = (int) hash;
+        int secondHash = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width
+                     + Math.floorMod(firstHash + row * secondHash, width)]);
+        }
+
+        return estimate;
+    }
+
+
+    /**
+     *  Method adds the counters of another sketch of the same size to this
+     *  sketch.
+     *
+     *@param  other  sketch to merge
+     */
+    public void merge(CountMinSketch other) {
+
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge a "
+                     + other.width + " x " + other.depth
+                     + " Count-Min sketch into a " + width + " x " + depth
+                     + " sketch");
+        }
+
+        for (int index = 0; index < counters.length; index++) {
+            counters[index] += other.counters[index];
+        }
+
+        totalCount += other.totalCount;
+    }
+
+
+    /**
+     *  Method writes the size, the total count and the counters to a
+     *  snapshot. Counters are written as variable length numbers, since most
+     *  of them are small.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the sketch cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+
+        out.writeInt(width);
+        out.writeInt(depth);
+        Snapshot.writeNumber(out, totalCount);
+
+        for (long counter : counters) {
+            Snapshot.writeNumber(out, counter);
+        }
+    }
+
+
+    /**
+     *  Method reads a sketch written by writeTo and adds its counters to
+     *  this sketch.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the sketch cannot be read or has a
+     *      different size
+     */
+    public void readFrom(DataInput in) throws IOException {
+
+        int savedWidth = in.readInt();
+        int savedDepth = in.readInt();
+
+        if (savedWidth != width || savedDepth != depth) {
+            throw new IOException("The snapshot has a " + savedWidth + " x "
+                     + savedDepth + " Count-Min sketch, expected " + width
+                     + " x " + depth);
+        }
+
+        totalCount += Snapshot.readNumber(in);
+
+        for (int index = 0; index < counters.length; index++) {
+            counters[index] += Snapshot.readNumber(in);
+        }
+    }
+
+}
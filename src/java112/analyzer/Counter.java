@@ -19,6 +19,16 @@ public class Counter {
     }
 
 
+    /**
+     *  Constructor for a Counter that starts at the given count
+     *
+     *@param  tokenCount  starting token count
+     */
+    public Counter(int tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+
     /**
      *  Returns the value of tokenCount.
      *
@@ -37,6 +47,16 @@ public class Counter {
     }
 
 
+    /**
+     *  Method increments the token count by the given amount.
+     *
+     *@param  amount  amount to add to the token count
+     */
+    public void add(int amount) {
+        tokenCount += amount;
+    }
+
+
     /**
      *  Method returns a string of the token count.
      *
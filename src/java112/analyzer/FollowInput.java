@@ -0,0 +1,242 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ *  FollowInput class: Reads input that is still being written, such as an
+ *  application log or a pipe, and passes the tokens to a handler as they
+ *  arrive. An input path of "-" reads standard input until it is closed. Any
+ *  other path is followed like tail -f: when the end of the file is reached
+ *  the file is checked again after the poll interval, and if the file has
+ *  become shorter it is read again from the start, with the token that was
+ *  cut off by the old end passed on first. A file is followed until it has
+ *  not grown for the idle timeout, or forever when no timeout is set. While
+ *  input is read, a refresh action is run every refresh interval and every
+ *  refresh token count, after the tokens read so far have been passed on, so
+ *  reports can be rewritten without reading the input again. A token at the
+ *  current end of the input is held back until the next byte shows where it
+ *  ends. Standard input is read with blocking reads, so no refresh runs while
+ *  a pipe is quiet: the tokens read before a pause reach the reports at the
+ *  first refresh after more input arrives, or when the input is closed.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class FollowInput {
+
+    /** Input path that reads standard input */
+    public final static String STANDARD_INPUT = "-";
+
+    private final static int READ_BUFFER_SIZE = 64 * 1024;
+
+    private String inputFilePath;
+    private long pollMillis;
+    private long idleTimeoutMillis;
+    private long refreshMillis;
+    private long refreshTokens;
+    private Charset inputCharset;
+    private String tokenizerBackend;
+    private PerformanceMonitor monitor;
+    private long tokenCount;
+    private long tokensSinceRefresh;
+    private long lastRefreshTime;
+
+
+    /**
+     *  Constructor for the FollowInput object. An interval, timeout or count
+     *  of 0 turns that setting off.
+     *
+     *@param  inputFilePath      input file path, or "-" for standard input
+     *@param  pollMillis         time between checks for new input
+     *@param  idleTimeoutMillis  time without new input before a followed
+     *      file is finished
+     *@param  refreshMillis      time between refreshes
+     *@param  refreshTokens      number of tokens between refreshes
+     *@param  inputCharset       charset of the input, UTF-8 or US-ASCII
+     *@param  tokenizerBackend   ByteTokenizer backend
+     */
+    public FollowInput(String inputFilePath, long pollMillis,
+            long idleTimeoutMillis, long refreshMillis, long refreshTokens,
+            Charset inputCharset, String tokenizerBackend) {
+
+        this.inputFilePath = inputFilePath;
+        this.pollMillis = Math.max(pollMillis, 1);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.refreshMillis = refreshMillis;
+        this.refreshTokens = refreshTokens;
+        this.inputCharset = inputCharset;
+        this.tokenizerBackend = tokenizerBackend;
+    }
+
+
+    /**
+     *  Sets the monitor that counts the bytes read.
+     *
+     *@param  monitor  The new monitor value, or null
+     */
+    public void setMonitor(PerformanceMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+
+    /**
+     *  Returns the number of tokens read so far.
+     *
+     *@return    The tokenCount value
+     */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+
+    /**
+     *  Method reads the input until it ends, passing every token to the
+     *  handler and running the refresh action as configured. The handler is
+     *  finished before each refresh and at the end of the input.
+     *
+     *@param  handler                handler that receives each token
+     *@param  refresh                action run at each refresh
+     *@exception  IOException        IO Exception
+     *@exception  InterruptedException  if the thread is interrupted while
+     *      waiting for input
+     */
+    public void read(TokenHandler handler, Runnable refresh)
+             throws IOException, InterruptedException {
+
+        ByteTokenizer tokenizer = new ByteTokenizer(new TokenHandler() {
+
+            public void handleToken(ByteBuffer buffer, int offset,
+                    int length) {
+
+                handler.handleToken(buffer, offset, length);
+                tokenCount++;
+                tokensSinceRefresh++;
+            }
+        }, inputCharset, tokenizerBackend);
+
+        tokenizer.setMonitor(monitor);
+
+        lastRefreshTime = System.currentTimeMillis();
+
+        if (STANDARD_INPUT.equals(inputFilePath)) {
+            readStandardInput(tokenizer, handler, refresh);
+        } else {
+            followFile(tokenizer, handler, refresh);
+        }
+
+        tokenizer.finish();
+        handler.finish();
+    }
+
+
+    /**
+     *  Method reads standard input until it is closed. Refreshes are only
+     *  checked after each read returns, since a read waits until input
+     *  arrives.
+     *
+     *@param  tokenizer        tokenizer for the input bytes
+     *@param  handler          handler that receives each token
+     *@param  refresh          action run at each refresh
+     *@exception  IOException  IO Exception
+     */
+    private void readStandardInput(ByteTokenizer tokenizer,
+            TokenHandler handler, Runnable refresh) throws IOException {
+
+        ReadableByteChannel channel = Channels.newChannel(System.in);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        while (channel.read(buffer) >= 0) {
+
+            buffer.flip();
+            tokenizer.tokenize(buffer);
+            buffer.clear();
+
+            refreshIfDue(handler, refresh);
+        }
+    }
+
+
+    /**
+     *  Method follows a file as it grows. When the file is truncated, the
+     *  tokenizer is finished before the file is read again from the start,
+     *  so the token held back at the old end is not joined to the first
+     *  token of the new content.
+     *
+     *@param  tokenizer                 tokenizer for the input bytes
+     *@param  handler                   handler that receives each token
+     *@param  refresh                   action run at each refresh
+     *@exception  IOException           IO Exception
+     *@exception  InterruptedException  if the thread is interrupted
+     */
+    private void followFile(ByteTokenizer tokenizer, TokenHandler handler,
+            Runnable refresh) throws IOException, InterruptedException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long lastInputTime = System.currentTimeMillis();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath),
+                StandardOpenOption.READ)) {
+
+            while (true) {
+
+                if (channel.size() < channel.position()) {
+                    tokenizer.finish();
+                    channel.position(0);
+                }
+
+                int count = channel.read(buffer);
+
+                if (count > 0) {
+
+                    buffer.flip();
+                    tokenizer.tokenize(buffer);
+                    buffer.clear();
+
+                    lastInputTime = System.currentTimeMillis();
+
+                } else {
+
+                    if (idleTimeoutMillis > 0 && System.currentTimeMillis()
+                             - lastInputTime >= idleTimeoutMillis) {
+                        return;
+                    }
+
+                    Thread.sleep(pollMillis);
+                }
+
+                refreshIfDue(handler, refresh);
+            }
+        }
+    }
+
+
+    /**
+     *  Method runs the refresh action when the refresh interval has passed
+     *  or enough tokens have been read since the last refresh.
+     *
+     *@param  handler  handler that receives each token
+     *@param  refresh  action run at each refresh
+     */
+    private void refreshIfDue(TokenHandler handler, Runnable refresh) {
+
+        long now = System.currentTimeMillis();
+        boolean timeDue = refreshMillis > 0
+                 && now - lastRefreshTime >= refreshMillis;
+        boolean tokensDue = refreshTokens > 0
+                 && tokensSinceRefresh >= refreshTokens;
+
+        if (timeDue || tokensDue) {
+
+            handler.finish();
+            refresh.run();
+
+            lastRefreshTime = now;
+            tokensSinceRefresh = 0;
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package java112.analyzer;
+
+import java.io.*;
+
+/**
+ *  HyperLogLog class: Estimates the number of distinct tokens in fixed
+ *  memory. Each token hash picks one of 2^precision one byte registers with
+ *  its first bits, and the register keeps the longest run of leading zero
+ *  bits seen in the rest of the hashes it was given. The harmonic mean of
+ *  the registers gives the estimate, with linear counting of the empty
+ *  registers while few have been set. The relative standard error is about
+ *  1.04 / sqrt(registers). Two estimators with the same precision are
+ *  merged by keeping the larger value of every register.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class HyperLogLog {
+
+    /** Smallest supported precision (16 registers) */
+    public final static int MINIMUM_PRECISION = 4;
+
+    /** Largest supported precision (262144 registers) */
+    public final static int MAXIMUM_PRECISION = 18;
+
+    private final static double ERROR_FACTOR = 1.04;
+
+    private int precision;
+    private byte[] registers;
+
+
+    /**
+     *  Constructor for the HyperLogLog object
+     *
+     *@param  precision  number of hash bits that select a register
+     */
+    public HyperLogLog(int precision) {
+
+        if (precision < MINIMUM_PRECISION || precision > MAXIMUM_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision "
+                     + precision + " is not between " + MINIMUM_PRECISION
+                     + " and " + MAXIMUM_PRECISION);
+        }
+
+        this.precision = precision;
+        registers = new byte[1 << precision];
+    }
+
+
+    /**
+     *  Method returns the smallest precision whose relative standard error
+     *  is at most the given error. Errors too small for the largest
+     *  precision get the largest precision.
+     *
+     *@param  relativeError  relative standard error, such as 0.01
+     *@return                precision for the error
+     */
+    public static int precisionForError(double relativeError) {
+
+        double registerCount = Math.pow(ERROR_FACTOR / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registerCount) / Math.log(2));
+
+        return Math.max(MINIMUM_PRECISION, Math.min(MAXIMUM_PRECISION,
+                precision));
+    }
+
+
+    /**
+     *  Returns the value of precision.
+     *
+     *@return    The precision value
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+
+    /**
+     *  Returns the number of registers.
+     *
+     *@return    The registerCount value
+     */
+    public int getRegisterCount() {
+        return registers.length;
+    }
+
+
+    /**
+     *  Returns the relative standard error of the estimate.
+     *
+     *@return    The standardError value
+     */
+    public double getStandardError() {
+        return ERROR_FACTOR / Math.sqrt(registers.length);
+    }
+
+
+    /**
+     *  Method adds the hash of a token.
+     *
+     *@param  hash  64 bit token hash
+     */
+    public void add(long hash) {
+
+        int index = (int) (hash >>> (64 - precision));
+        long remainingBits = hash << precision;
+        int rank = Math.min(Long.numberOfLeadingZeros(remainingBits),
+                64 - precision) + 1;
+
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+
+    /**
+     *  Method returns the estimated number of distinct hashes added.
+     *
+     *@return    estimated distinct count
+     */
+    public long estimate() {
+
+        int registerCount = registers.length;
+        double sum = 0;
+        int emptyRegisters = 0;
+
+        for (byte register : registers) {
+
+            sum += Math.scalb(1.0, -register);
+
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+
+        double estimate = alpha(registerCount) * registerCount
+                 * registerCount / sum;
+
+        if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount
+                     / emptyRegisters);
+        }
+
+        return Math.round(estimate);
+    }
+
+
+    /**
+     *  Method merges another estimator with the same precision into this
+     *  one, so it estimates the distinct hashes added to either.
+     *
+     *@param  other  estimator to merge
+     */
+    public void merge(HyperLogLog other) {
+
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog "
+                     + "precision " + other.precision + " into precision "
+                     + precision);
+        }
+
+        for (int index = 0; index < registers.length; index++) {
+
+            if (other.registers[index] > registers[index]) {
+                registers[index] = other.registers[index];
+            }
+        }
+    }
+
+
+    /**
+     *  Method writes the precision and the registers to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the registers cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+
+        out.writeByte(precision);
+        out.write(registers);
+    }
+
+
+    /**
+     *  Method reads registers written by writeTo and merges them into this
+     *  estimator.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the registers cannot be read or were
+     *      written with a different precision
+     */
+    public void readFrom(DataInput in) throws IOException {
+
+        int savedPrecision = in.readUnsignedByte();
+
+        if (savedPrecision != precision) {
+            throw new IOException("The snapshot has HyperLogLog precision "
+                     + savedPrecision + ", expected " + precision);
+        }
+
+        HyperLogLog saved = new HyperLogLog(precision);
+
+        in.readFully(saved.registers);
+        merge(saved);
+    }
+
+
+    /**
+     *  Method returns the bias correction constant for a register count.
+     *
+     *@param  registerCount  number of registers
+     *@return                the alpha constant
+     */
+    private static double alpha(int registerCount) {
+
+        switch (registerCount) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import jdk.jfr.consumer.*;
+
+/**
+ *  JfrPhaseSummary class: Summarizes a flight recording of an analysis run,
+ *  such as one made with the config/analyzer.jfc settings, as a table of
+ *  timings. The table has a row for each analysis phase, each report write
+ *  and each analyzer with slow batches, in the order they first started,
+ *  with the number of events and their total and longest durations. The
+ *  number of long tokens and the last throughput values follow the table.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class JfrPhaseSummary {
+
+    private final static int VALID_ARGUMENT_COUNT = 1;
+    private final static double NANOS_PER_MILLI = 1000000.0;
+    private final static String EVENT_PREFIX = "java112.analyzer.";
+
+    private Map<String, Timing> timings;
+    private long longTokenCount;
+    private RecordedEvent lastThroughput;
+
+
+    /**
+     *  The main program for the JfrPhaseSummary class. The argument is the
+     *  path of the recording.
+     *
+     *@param  arguments  command line arguments
+     */
+    public static void main(String[] arguments) {
+
+        if (arguments.length != VALID_ARGUMENT_COUNT) {
+            System.out.println("Enter the flight recording file path.");
+            return;
+        }
+
+        try {
+
+            JfrPhaseSummary summary = new JfrPhaseSummary();
+
+            summary.read(Paths.get(arguments[0]));
+            summary.write(new PrintWriter(System.out, true));
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+        }
+    }
+
+
+    /**
+     *  Constructor for the JfrPhaseSummary object
+     */
+    public JfrPhaseSummary() {
+        timings = new LinkedHashMap<String, Timing>();
+    }
+
+
+    /**
+     *  Method reads the analyzer events of a recording in the order they
+     *  started and adds them to the summary.
+     *
+     *@param  recordingPath    path of the recording
+     *@exception  IOException  if the recording can't be read
+     */
+    public void read(Path recordingPath) throws IOException {
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+
+        events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+
+        for (RecordedEvent event : events) {
+            addEvent(event);
+        }
+    }
+
+
+    /**
+     *  Method adds one event to the summary. Events that are not from the
+     *  analyzer are skipped.
+     *
+     *@param  event  recorded event
+     */
+    private void addEvent(RecordedEvent event) {
+
+        String name = event.getEventType().getName();
+
+        if (!name.startsWith(EVENT_PREFIX)) {
+            return;
+        }
+
+        switch (name.substring(EVENT_PREFIX.length())) {
+
+            case "AnalysisPhase":
+                addTiming("phase " + event.getString("phase"), event);
+                break;
+            case "ReportWrite":
+                addTiming("report " + event.getString("report"), event);
+                break;
+            case "SlowAnalyzerBatch":
+                addTiming("slow batches " + event.getString("analyzer"),
+                        event);
+                break;
+            case "LongToken":
+                longTokenCount++;
+                break;
+            case "Throughput":
+                lastThroughput = event;
+                break;
+            default:
+                break;
+        }
+    }
+
+
+    /**
+     *  Method adds the duration of an event to the timing of a row.
+     *
+     *@param  row    name of the row
+     *@param  event  recorded event
+     */
+    private void addTiming(String row, RecordedEvent event) {
+        timings.computeIfAbsent(row, key -> new Timing()).add(
+                event.getDuration());
+    }
+
+
+    /**
+     *  Method writes the table of timings, the long token count and the last
+     *  throughput values.
+     *
+     *@param  writer  writer the summary is written to
+     */
+    public void write(PrintWriter writer) {
+
+        writer.println(String.format("%-40s %8s %12s %12s", "Phase", "Count",
+                "Total ms", "Max ms"));
+
+        for (Map.Entry<String, Timing> entry : timings.entrySet()) {
+
+            Timing timing = entry.getValue();
+
+            writer.println(String.format("%-40s %8d %12.1f %12.1f",
+                    entry.getKey(), timing.count,
+                    timing.totalNanos / NANOS_PER_MILLI,
+                    timing.maximumNanos / NANOS_PER_MILLI));
+        }
+
+        writer.println();
+        writer.println("Long tokens: " + longTokenCount);
+
+        if (lastThroughput != null) {
+            writer.println(String.format("Throughput: %d bytes, %d tokens, "
+                     + "%.0f bytes/s, %.0f tokens/s",
+                    lastThroughput.getLong("bytesRead"),
+                    lastThroughput.getLong("tokenCount"),
+                    lastThroughput.getDouble("bytesPerSecond"),
+                    lastThroughput.getDouble("tokensPerSecond")));
+        }
+
+        writer.flush();
+    }
+
+
+    /**
+     *  Timing class: The number of events in one row of the table and their
+     *  total and longest durations.
+     *
+     *@author     Nicole LaBonte
+     */
+    private static class Timing {
+
+        private long count;
+        private long totalNanos;
+        private long maximumNanos;
+
+
+        /**
+         *  Method adds the duration of one event.
+         *
+         *@param  duration  duration of the event
+         */
+        private void add(Duration duration) {
+
+            long nanos = duration.toNanos();
+
+            count++;
+            totalNanos += nanos;
+            maximumNanos = Math.max(maximumNanos, nanos);
+        }
+    }
+
+}
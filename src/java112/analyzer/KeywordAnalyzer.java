@@ -5,38 +5,47 @@ import java.io.*;
 
 /**
  *  KeywordAnalyzer Class: an analyzer class that will determine
- *  where keywords are in the input file.  The class will load a
- *  file of keywords, parse the file and store all the keywords
- *  in a Map that will use each keyword as the key to an element
- *  and an empty ArrayList as the element’s value. The location of the
+ *  where keywords are in the input file.  The class will use a
+ *  KeywordMatcher compiled from a file of keywords. A line of the keyword
+ *  file with several words is a phrase. The location of the
  *  keyword file must be delivered to this class through a property in
  *  the analyzer.properties file. The file will be loaded before
  *  processing of the input file starts. For each token in the input file,
- *  this analyzer will check to see if the token is one of the keywords
- *  that were preloaded.  If the token is a keyword then the number
- *  position of the token in the input file will be added to the List
- *  associated with the keyword in the Map. If the token is not a keyword
- *  then no processing will take place. The report that this analyzer
- *  generates will be a listing of all the keywords and their locations
- *  in the input file. The output file will consist of a listing of the
- *  keywords and where each keyword occurs in the file.
+ *  this analyzer will advance the matcher by one step. Whenever a keyword
+ *  or phrase ends at the token, the number position of its first token in
+ *  the input file will be added to the List associated with the keyword.
+ *  The report that this analyzer
+ *  generates will be a listing of all the keywords and phrases and their
+ *  locations in the input file. When the analyzer shares a TokenDictionary
+ *  the symbol of each token is found from its id with an array lookup.
+ *  With output.format.keyword=binary the report is written as a sorted
+ *  string table instead of text.
  *
  *@author     Nicole LaBonte
  */
 
 public class KeywordAnalyzer implements Analyzer {
 
-    private Map<String, List<Integer>> keywordMap;
     private Properties properties;
-    private int tokenOccurence;
+    private KeywordMatcher matcher;
+    private TokenDictionary dictionary;
+    private int[] symbolsById;
+    private List<PostingList> keywordPositions;
+    private long tokenOccurence;
+    private int state;
+    private int historySize;
+    private int[] headSymbols;
+    private int headLength;
+    private int[] tailSymbols;
+    private long tailStart;
+    private boolean documentFinished;
 
 
     /**
      *  Constructor for the KeywordAnalyzer object
      */
     public KeywordAnalyzer() {
-        keywordMap = new TreeMap<String, List<Integer>>();
-        tokenOccurence = 0;
+        this(null, null, new KeywordMatcher(new ArrayList<String>()));
     }
 
     /**
@@ -45,229 +54,660 @@ public class KeywordAnalyzer implements Analyzer {
      *@param  properties  Properties object
      */
     public KeywordAnalyzer(Properties properties) {
+        this(properties, null, KeywordMatcher.load(properties));
+    }
+
+
+    /**
+     *  Constructor for a KeywordAnalyzer that shares a token dictionary with
+     *  other analyzers. The keyword words are added to the dictionary.
+     *
+     *@param  properties  Properties object
+     *@param  dictionary  shared token dictionary
+     */
+    public KeywordAnalyzer(Properties properties, TokenDictionary dictionary) {
+        this(properties, dictionary, KeywordMatcher.load(properties));
+    }
+
+
+    /**
+     *  Constructor for a KeywordAnalyzer that uses a keyword matcher that has
+     *  already been compiled.
+     *
+     *@param  properties  Properties object
+     *@param  dictionary  shared token dictionary, or null
+     *@param  matcher     compiled keyword matcher
+     */
+    public KeywordAnalyzer(Properties properties, TokenDictionary dictionary,
+            KeywordMatcher matcher) {
 
-        this();
         this.properties = properties;
+        this.dictionary = dictionary;
+        this.matcher = matcher;
+
+        keywordPositions = new ArrayList<PostingList>();
 
-        readKeywordFile();
+        int spillSize = PostingList.DEFAULT_SPILL_SIZE;
+
+        if (properties != null) {
+            spillSize = Integer.parseInt(properties.getProperty(
+                    "keyword.positions.spill.size", String.valueOf(spillSize)));
+        }
+
+        for (int keyword = 0; keyword < matcher.getKeywordCount(); keyword++) {
+            keywordPositions.add(new PostingList(spillSize));
+        }
+
+        if (dictionary != null) {
+            symbolsById = matcher.mapSymbols(dictionary);
+        }
+
+        tokenOccurence = 0;
+        state = KeywordMatcher.START_STATE;
+        historySize = Math.max(matcher.getMaximumKeywordLength() - 1, 0);
+        headSymbols = new int[historySize];
+        headLength = 0;
+        tailSymbols = new int[historySize];
+        tailStart = 0;
+        documentFinished = false;
     }
 
 
     /**
-     *  Gets the keywordMap attribute of the KeywordAnalyzer object
+     *  Gets the keywordMap attribute of the KeywordAnalyzer object. The map
+     *  is built from the keyword locations each time it is requested, and
+     *  holds every position in memory. A position that does not fit an
+     *  Integer throws an ArithmeticException; getKeywordPositions reads
+     *  large inputs without either limit.
      *
      *@return    The keywordMap value
      */
     public Map<String, List<Integer>> getKeywordMap() {
+
+        Map<String, List<Integer>> keywordMap
+                 = new TreeMap<String, List<Integer>>();
+
+        for (Map.Entry<String, PostingList> entry
+                 : getKeywordPositions().entrySet()) {
+
+            List<Integer> positions = new ArrayList<Integer>();
+            PostingList.PositionReader reader = entry.getValue().reader();
+
+            try {
+
+                while (reader.hasNext()) {
+                    positions.add(Math.toIntExact(reader.nextPosition()));
+                }
+
+            } finally {
+
+                reader.close();
+            }
+
+            keywordMap.put(entry.getKey(), positions);
+        }
+
+        return keywordMap;
+    }
+
+
+    /**
+     *  Gets the keyword positions of the KeywordAnalyzer object as posting
+     *  lists, which can be read in order without loading them into memory.
+     *
+     *@return    The posting list of each keyword
+     */
+    public Map<String, PostingList> getKeywordPositions() {
+
+        Map<String, PostingList> keywordMap
+                 = new TreeMap<String, PostingList>();
+
+        for (int keyword = 0; keyword < matcher.getKeywordCount(); keyword++) {
+            keywordMap.put(matcher.getKeyword(keyword),
+                    keywordPositions.get(keyword));
+        }
+
         return keywordMap;
     }
 
 
     /**
-     *  Method reads the input file and adds the keyword to the keywordMap
-     *  with an empty list if the input line has a length greater than zero.
+     *  Returns the value of matcher.
+     *
+     *@return    The matcher value
+     */
+    public KeywordMatcher getMatcher() {
+        return matcher;
+    }
+
+
+    /**
+     *  Method processes the token input.
+     *
+     *@param  token  String token
+     */
+    public void processToken(String token) {
+
+        processSymbol(matcher.findSymbol(token));
+
+    }
+
+
+    /**
+     *  Method processes each token in the batch.
      *
-     *@param  input           file input
-     *@exception  IOException  IO Exception
+     *@param  batch  batch of tokens
      */
-    private void readContents(BufferedReader input) throws IOException {
+    public void processTokens(TokenBatch batch) {
+
+        boolean resolved = dictionary != null
+                 && batch.getDictionary() == dictionary;
+        byte[] data = batch.getData();
+
+        for (int index = 0; index < batch.size(); index++) {
+
+            if (resolved) {
+                processSymbol(findSymbol(batch.getTokenId(index)));
+            } else {
+                processSymbol(matcher.findSymbol(data,
+                        batch.getTokenOffset(index),
+                        batch.getTokenLength(index)));
+            }
+        }
+    }
 
-        String inputLine = "";
-        List<Integer> aList;
 
-        while (input.ready()) {
+    /**
+     *  Method returns the keyword symbol of a shared dictionary id.
+     *
+     *@param  tokenId  dictionary id of the token
+     *@return          symbol of the token, or KeywordMatcher.NO_SYMBOL
+     */
+    private int findSymbol(int tokenId) {
 
-            inputLine = input.readLine();
-            aList = new ArrayList<Integer>();
+        if (tokenId < symbolsById.length) {
+            return symbolsById[tokenId] - 1;
+        }
 
-            if (inputLine.length() > 0) {
-                keywordMap.put(inputLine, aList);
+        return KeywordMatcher.NO_SYMBOL;
+    }
+
+
+    /**
+     *  Method counts the token, remembers its symbol for merging and moves
+     *  the matcher to its next state.
+     *
+     *@param  symbol  symbol of the token
+     */
+    private void processSymbol(int symbol) {
+
+        if (historySize > 0) {
+            rememberSymbol(symbol);
+        }
+
+        tokenOccurence++;
+
+        state = matcher.nextState(state, symbol);
+
+        addNumberPositions(state, tokenOccurence);
+    }
+
+
+    /**
+     *  Method adds the token occurence frequency for every keyword that ends
+     *  at the given state. The location of a phrase is the location of its
+     *  first token.
+     *
+     *@param  matchState     state of the matcher
+     *@param  lastPosition  position of the token that ended the match
+     */
+    private void addNumberPositions(int matchState, long lastPosition) {
+
+        for (int outputState = matcher.getMatchState(matchState);
+                outputState != KeywordMatcher.START_STATE;
+                outputState = matcher.getOutputLink(outputState)) {
+
+            for (int keyword = matcher.getStateKeyword(outputState);
+                    keyword >= 0; keyword = matcher.getNextKeyword(keyword)) {
+
+                keywordPositions.get(keyword).add(lastPosition
+                         - matcher.getKeywordLength(keyword) + 1);
             }
         }
     }
 
 
     /**
-     *  Method reads the input file from the properties file.  It calls
-     *  the readContents method to parse the input.
+     *  Method remembers the symbol of a token. The first tokens are kept as
+     *  the head and the latest tokens as the tail, so phrases that cross the
+     *  boundary between two merged analyzers can be found. The head stops
+     *  growing at the end of the first document.
+     *
+     *@param  symbol  symbol of the token
      */
-    private void readKeywordFile() {
+    private void rememberSymbol(int symbol) {
 
-        BufferedReader input = null;
-        String inputFilePath = properties.getProperty("file.path.keywords");
+        if (!documentFinished && headLength < historySize) {
+            headSymbols[headLength++] = symbol;
+        }
 
-        try {
-            input = new BufferedReader(new FileReader(inputFilePath));
+        tailSymbols[(int) (tokenOccurence % historySize)] = symbol;
+    }
+
+
+    /**
+     *  Method returns the symbols of the latest tokens of the current
+     *  document in token order.
+     *
+     *@return    symbols of the tail
+     */
+    private int[] getTail() {
+
+        int tailLength = (int) Math.min(tokenOccurence - tailStart,
+                historySize);
+        int[] tail = new int[tailLength];
 
-            readContents(input);
+        for (int index = 0; index < tailLength; index++) {
+            tail[index] = tailSymbols[(int) ((tokenOccurence - tailLength
+                     + index) % historySize)];
+        }
 
-        } catch (FileNotFoundException fileNotFound) {
+        return tail;
+    }
 
-            fileNotFound.printStackTrace();
 
-        } catch (IOException ioException) {
+    /**
+     *  Method ends the current document. The matcher goes back to its start
+     *  state and the tail is emptied, so no phrase is matched across the end
+     *  of the document, either by the next token or by a later merge.
+     */
+    public void finishDocument() {
 
-            ioException.printStackTrace();
+        state = KeywordMatcher.START_STATE;
+        tailStart = tokenOccurence;
+        documentFinished = true;
+    }
 
-        } catch (Exception exception) {
 
-            exception.printStackTrace();
+    /**
+     *  Method merges the keyword locations of another KeywordAnalyzer that
+     *  uses the same keyword file. The other analyzer's tokens come after
+     *  the tokens of this analyzer, so its locations are rebased by the
+     *  number of tokens this analyzer has already counted. Phrases that
+     *  start in this analyzer's tokens and end in the other analyzer's
+     *  tokens are found from the remembered tail and head symbols.
+     *
+     *@param  other  KeywordAnalyzer to merge
+     */
+    public void merge(Analyzer other) {
 
-        } finally {
+        KeywordAnalyzer otherAnalyzer = (KeywordAnalyzer) other;
+        int[] tail = getTail();
+        int[] otherHead = Arrays.copyOf(otherAnalyzer.headSymbols,
+                otherAnalyzer.headLength);
 
-            try {
+        addBoundaryPositions(tail, otherHead);
 
-                if (input != null) {
+        for (int keyword = 0; keyword < matcher.getKeywordCount(); keyword++) {
 
-                    input.close();
-                }
-            } catch (Exception exception) {
+            keywordPositions.get(keyword).addAll(
+                    otherAnalyzer.keywordPositions.get(keyword),
+                    tokenOccurence);
+        }
 
-                exception.printStackTrace();
+        int[] otherTail = otherAnalyzer.getTail();
+        long totalOccurence = tokenOccurence + otherAnalyzer.tokenOccurence;
+
+        if (!documentFinished) {
+
+            for (int index = 0; index < otherHead.length
+                     && headLength < historySize; index++) {
+                headSymbols[headLength++] = otherHead[index];
             }
         }
 
+        if (otherAnalyzer.documentFinished) {
+            tailStart = tokenOccurence + otherAnalyzer.tailStart;
+            documentFinished = true;
+        }
+
+        for (int index = 0; index < otherTail.length; index++) {
+            tailSymbols[(int) ((totalOccurence - otherTail.length + index)
+                     % historySize)] = otherTail[index];
+        }
+
+        tokenOccurence = totalOccurence;
+
+        state = KeywordMatcher.START_STATE;
+
+        for (int symbol : getTail()) {
+            state = matcher.nextState(state, symbol);
+        }
     }
 
 
     /**
-     *  Method processes the token input.
+     *  Method deletes the keyword positions along with their spill files.
+     */
+    public void close() {
+
+        for (PostingList positions : keywordPositions) {
+            positions.delete();
+        }
+    }
+
+
+    /**
+     *  Method estimates the memory of the keyword positions. Spilled
+     *  positions are counted but hold no memory.
      *
-     *@param  token  String token
+     *@return    footprint counts
      */
-    public void processToken(String token) {
+    public Map<String, Long> getFootprint() {
 
-        tokenOccurence++;
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
+
+        long positions = 0;
+        long positionBytes = 0;
+
+        for (PostingList keywordList : keywordPositions) {
+            positions += keywordList.size();
+            positionBytes += keywordList.getMemorySize();
+        }
 
-        addNumberPositions(token);
+        footprint.put("keywords", (long) matcher.getKeywordCount());
+        footprint.put("positions", positions);
+        footprint.put("position bytes", positionBytes);
 
+        return footprint;
     }
 
 
     /**
-     *  Method adds the token occurence frequency for the keywords in the
-     *  keywordMap.
+     *  Method writes the keywords, the token count, the keyword locations and
+     *  the head and tail symbols to a snapshot.
      *
-     *@param  token  token String
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
      */
-    private void addNumberPositions(String token) {
+    public void writeState(DataOutput out) throws IOException {
+
+        Snapshot.writeNumber(out, matcher.getKeywordCount());
+
+        for (int keyword = 0; keyword < matcher.getKeywordCount(); keyword++) {
+            out.writeUTF(matcher.getKeyword(keyword));
+        }
+
+        Snapshot.writeNumber(out, tokenOccurence);
 
-        if (keywordMap.containsKey(token)) {
-            keywordMap.get(token).add(tokenOccurence);
+        for (PostingList positions : keywordPositions) {
+            positions.writeTo(out);
         }
+
+        writeSymbols(out, Arrays.copyOf(headSymbols, headLength));
+        writeSymbols(out, getTail());
+        out.writeBoolean(documentFinished);
     }
 
 
     /**
-     *  Method calls a method to write the token information to the file. It
-     *  handles exceptions for writing output.
+     *  Method loads the state written by writeState. The snapshot must have
+     *  been written with the same keyword file.
      *
-     *@param  inputFilePath  input file path
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read or the keywords
+     *      are different
      */
-    public void writeOutputFile(String inputFilePath) {
+    public void readState(DataInput in) throws IOException {
 
-        PrintWriter out = null;
+        int keywordCount = Math.toIntExact(Snapshot.readNumber(in));
+        boolean sameKeywords = keywordCount == matcher.getKeywordCount();
 
-        String outputFilePath = properties.getProperty("output.dir")
-                 + properties.getProperty("output.file.keyword");
+        for (int keyword = 0; keyword < keywordCount; keyword++) {
+            sameKeywords = in.readUTF().equals(matcher.getKeyword(keyword))
+                     && sameKeywords;
+        }
 
-        try {
+        if (!sameKeywords) {
+            throw new IOException("The snapshot was written with a different "
+                     + "keyword file");
+        }
 
-            out = new PrintWriter(
-                    new BufferedWriter(new FileWriter(outputFilePath)));
+        tokenOccurence = Snapshot.readNumber(in);
 
-            writeTokens(out);
+        for (PostingList positions : keywordPositions) {
+            positions.readFrom(in);
+        }
 
-        } catch (IOException ioException) {
+        int[] head = readSymbols(in);
+        int[] tail = readSymbols(in);
 
-            ioException.printStackTrace();
+        System.arraycopy(head, 0, headSymbols, 0, head.length);
+        headLength = head.length;
 
-        } catch (Exception exception) {
+        for (int index = 0; index < tail.length; index++) {
+            tailSymbols[(int) ((tokenOccurence - tail.length + index)
+                     % historySize)] = tail[index];
+        }
 
-            exception.printStackTrace();
+        documentFinished = in.readBoolean();
+        tailStart = 0;
 
-        } finally {
+        if (documentFinished) {
+            tailStart = tokenOccurence - tail.length;
+        }
 
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (Exception exception) {
+        state = KeywordMatcher.START_STATE;
+
+        for (int symbol : tail) {
+            state = matcher.nextState(state, symbol);
+        }
+    }
+
+
+    /**
+     *  Method writes a list of symbols to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@param  symbols          symbols to write
+     *@exception  IOException  if the symbols cannot be written
+     */
+    private void writeSymbols(DataOutput out, int[] symbols)
+             throws IOException {
+
+        Snapshot.writeNumber(out, symbols.length);
+
+        for (int symbol : symbols) {
+            Snapshot.writeNumber(out, symbol + 1);
+        }
+    }
+
+
+    /**
+     *  Method reads a list of symbols written by writeSymbols.
+     *
+     *@param  in               snapshot input
+     *@return                  the symbols
+     *@exception  IOException  if the symbols cannot be read
+     */
+    private int[] readSymbols(DataInput in) throws IOException {
+
+        int symbolCount = Math.toIntExact(Snapshot.readNumber(in));
+
+        if (symbolCount > historySize) {
+            throw new IOException("The snapshot holds too many symbols");
+        }
+
+        int[] symbols = new int[symbolCount];
+
+        for (int index = 0; index < symbolCount; index++) {
+            symbols[index] = Math.toIntExact(Snapshot.readNumber(in)) - 1;
+        }
 
-                exception.printStackTrace();
+        return symbols;
+    }
+
+
+    /**
+     *  Method runs the matcher over the tail of this analyzer followed by
+     *  the head of the next analyzer and adds the locations of the phrases
+     *  that start in the tail and end in the head.
+     *
+     *@param  tail  symbols of the latest tokens of this analyzer
+     *@param  head  symbols of the first tokens of the next analyzer
+     */
+    private void addBoundaryPositions(int[] tail, int[] head) {
+
+        if (tail.length == 0 || head.length == 0) {
+            return;
+        }
+
+        int boundaryState = KeywordMatcher.START_STATE;
+
+        for (int symbol : tail) {
+            boundaryState = matcher.nextState(boundaryState, symbol);
+        }
+
+        for (int index = 0; index < head.length; index++) {
+
+            boundaryState = matcher.nextState(boundaryState, head[index]);
+
+            long lastPosition = tokenOccurence + index + 1;
+
+            for (int outputState = matcher.getMatchState(boundaryState);
+                    outputState != KeywordMatcher.START_STATE;
+                    outputState = matcher.getOutputLink(outputState)) {
+
+                for (int keyword = matcher.getStateKeyword(outputState);
+                        keyword >= 0;
+                        keyword = matcher.getNextKeyword(keyword)) {
+
+                    long firstPosition = lastPosition
+                             - matcher.getKeywordLength(keyword) + 1;
+
+                    if (firstPosition <= tokenOccurence) {
+                        keywordPositions.get(keyword).add(firstPosition);
+                    }
+                }
             }
+        }
+    }
+
+
+    /**
+     *  Method calls a method to write the token information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
+
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.keyword");
 
+        if (SortedTableWriter.isBinary(properties, "output.format.keyword")) {
+            ReportWriter.writeReport(outputFilePath, this::writeTable);
+        } else {
+            ReportWriter.writeReport(outputFilePath, this::writeTokens);
         }
+    }
+
+
+    /**
+     *  Method writes the keywords and their positions as a sorted string
+     *  table. The keywords are sorted by their bytes, the order the table is
+     *  searched in.
+     *
+     *@param  out              report writer
+     *@exception  IOException  if the table cannot be written
+     */
+    private void writeTable(ReportWriter out) throws IOException {
+
+        byte[][] keywordBytes = new byte[matcher.getKeywordCount()][];
+        Integer[] sortedKeywords = new Integer[keywordBytes.length];
 
+        for (int keyword = 0; keyword < keywordBytes.length; keyword++) {
+            keywordBytes[keyword] = matcher.getKeyword(keyword).getBytes(
+                    TokenBatch.TOKEN_CHARSET);
+            sortedKeywords[keyword] = keyword;
+        }
+
+        Arrays.sort(sortedKeywords, (first, second) -> Arrays.compareUnsigned(
+                keywordBytes[first], keywordBytes[second]));
+
+        try (SortedTableWriter table = new SortedTableWriter(
+                SortedTableWriter.TOKEN_POSITIONS)) {
+
+            for (int keyword : sortedKeywords) {
+                table.addToken(keywordBytes[keyword], 0,
+                        keywordBytes[keyword].length,
+                        keywordPositions.get(keyword));
+            }
+
+            table.writeTo(out);
+        }
     }
 
 
     /**
-     *  Method generates the string output for the occurence of tokens
-     *  for the given keyword.
+     *  Method writes the token positions of a keyword, decoding them from the
+     *  posting list as they are written.
      *
-     *@return    string of token occurrence
+     *@param  out        report writer
+     *@param  positions  token positions of the keyword
      */
-    private String generateTokenCountList(List<Integer> tokenFrequencyList) {
-    //private String generateTokenCountList() {
+    private void writeTokenCountList(ReportWriter out, PostingList positions)
+             throws IOException {
 
-        String tokenFrequencyString = "[";
         int maximumDisplayWidth = 8;
         int currentWidth = 0;
-        int index = 0;
-        String lineSeparator = System.getProperty("line.separator");
-        String commaString = "";
+        PostingList.PositionReader reader = positions.reader();
 
-        for (int frequency : tokenFrequencyList) {
-        //for (int i = 0; i < 2; i++) {
+        out.print("[");
 
-            if (index < tokenFrequencyList.size() - 1) {
-                commaString = ", ";
-            } else {
-                commaString = "";
-            }
+        try {
 
-            if (currentWidth < maximumDisplayWidth) {
-                currentWidth++;
-                tokenFrequencyString += frequency;
-                tokenFrequencyString += commaString;
+            while (reader.hasNext()) {
 
-            } else {
-                currentWidth = 0;
-                tokenFrequencyString += lineSeparator;
-                tokenFrequencyString += frequency;
-                tokenFrequencyString += commaString;
+                long position = reader.nextPosition();
+
+                if (currentWidth < maximumDisplayWidth) {
+                    currentWidth++;
+                } else {
+                    currentWidth = 0;
+                    out.println();
+                }
+
+                out.print(position);
+
+                if (reader.hasNext()) {
+                    out.print(", ");
+                }
             }
 
-            index++;
-        }
+        } finally {
 
-        tokenFrequencyString += "]";
+            reader.close();
+        }
 
-        return tokenFrequencyString;
+        out.println("]");
     }
 
 
     /**
      *  Method writes token information to the file.
      *
-     *@param  out  PrintWriter
+     *@param  out  report writer
      */
-    private void writeTokens(PrintWriter out) {
+    private void writeTokens(ReportWriter out)
+             throws IOException {
 
-        String tokenFrequencyString;
+        for (int keyword = 0; keyword < matcher.getKeywordCount(); keyword++) {
 
-        for (Map.Entry<String, List<Integer>> entry : keywordMap.entrySet()) {
-        //for (int i = 0; i < 2; i++) {
-
-            tokenFrequencyString
-                     = generateTokenCountList(entry.getValue());
-
-            out.println(entry.getKey() + " =");
-            out.println(tokenFrequencyString);
+            out.println(matcher.getKeyword(keyword) + " =");
+            writeTokenCountList(out, keywordPositions.get(keyword));
             out.println();
         }
     }
 
 }
-
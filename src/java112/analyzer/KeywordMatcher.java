@@ -0,0 +1,540 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ *  KeywordMatcher class: A compiled Aho-Corasick automaton for the keywords
+ *  in the keyword file. Each line of the keyword file is one keyword. A line
+ *  is split into words on non-word characters, the same way the input file
+ *  is split into tokens, so a line with several words is a phrase. Every
+ *  distinct keyword word is given a symbol number, and the automaton runs
+ *  over the symbols of the token stream: the next state for a token is found
+ *  with one hash lookup, plus a short walk along the failure links when the
+ *  current phrase cannot be continued. Tokens that are not keyword words go
+ *  straight back to the start state. A matcher does not change once it is
+ *  built, so one matcher can be shared by any number of KeywordAnalyzers.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class KeywordMatcher {
+
+    /** Symbol of a token that is not a keyword word */
+    public final static int NO_SYMBOL = -1;
+
+    /** The start state of the automaton */
+    public final static int START_STATE = 0;
+
+    private final static long EMPTY_TRANSITION = -1L;
+
+    private TokenDictionary words;
+    private Pattern separator;
+    private String[] keywords;
+    private int[] keywordLengths;
+    private int[] nextKeywords;
+    private int maximumKeywordLength;
+
+    private int stateCount;
+    private int[] stateKeywords;
+    private int[] failures;
+    private int[] outputLinks;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] stateSymbols;
+
+    private long[] transitionKeys;
+    private int[] transitionTargets;
+
+
+    /**
+     *  Constructor for the KeywordMatcher object. Blank lines are ignored and
+     *  duplicate lines are only added once.
+     *
+     *@param  keywordLines  lines of the keyword file
+     */
+    public KeywordMatcher(Collection<String> keywordLines) {
+        this(keywordLines, ByteTokenizer.DEFAULT_INPUT_CHARSET);
+    }
+
+
+    /**
+     *  Constructor for a KeywordMatcher whose keywords are split into words
+     *  the same way as input in the given charset.
+     *
+     *@param  keywordLines  lines of the keyword file
+     *@param  inputCharset  input charset, UTF-8 or US-ASCII
+     */
+    public KeywordMatcher(Collection<String> keywordLines,
+            Charset inputCharset) {
+
+        separator = ByteTokenizer.getSeparatorPattern(inputCharset);
+
+        Set<String> sortedKeywords = new TreeSet<String>();
+
+        for (String keywordLine : keywordLines) {
+
+            if (keywordLine.length() > 0) {
+                sortedKeywords.add(keywordLine);
+            }
+        }
+
+        keywords = sortedKeywords.toArray(new String[0]);
+        keywordLengths = new int[keywords.length];
+        nextKeywords = new int[keywords.length];
+        words = new TokenDictionary();
+
+        buildTrie();
+        buildTransitions();
+        buildFailureLinks();
+    }
+
+
+    /**
+     *  Method reads the keyword file named by the file.path.keywords property
+     *  in the input.charset charset and compiles it. Problems reading the
+     *  file are reported and the keywords read so far are used.
+     *
+     *@param  properties  Properties object
+     *@return             compiled keyword matcher
+     */
+    public static KeywordMatcher load(Properties properties) {
+
+        List<String> keywordLines = new ArrayList<String>();
+        BufferedReader input = null;
+        String inputFilePath = properties.getProperty("file.path.keywords");
+        String keywordLine;
+        Charset inputCharset = ByteTokenizer.getInputCharset(properties);
+
+        try {
+            input = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(inputFilePath), inputCharset));
+
+            while ((keywordLine = input.readLine()) != null) {
+                keywordLines.add(keywordLine);
+            }
+
+        } catch (FileNotFoundException fileNotFound) {
+
+            fileNotFound.printStackTrace();
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+
+        } catch (Exception exception) {
+
+            exception.printStackTrace();
+
+        } finally {
+
+            try {
+
+                if (input != null) {
+
+                    input.close();
+                }
+            } catch (Exception exception) {
+
+                exception.printStackTrace();
+            }
+        }
+
+        return new KeywordMatcher(keywordLines, inputCharset);
+    }
+
+
+    /**
+     *  Returns the number of keywords. Keywords are numbered in sorted order.
+     *
+     *@return    The keywordCount value
+     */
+    public int getKeywordCount() {
+        return keywords.length;
+    }
+
+
+    /**
+     *  Returns the text of a keyword as it appears in the keyword file.
+     *
+     *@param  keyword  keyword number
+     *@return          The keyword value
+     */
+    public String getKeyword(int keyword) {
+        return keywords[keyword];
+    }
+
+
+    /**
+     *  Returns the number of words in a keyword.
+     *
+     *@param  keyword  keyword number
+     *@return          The keyword length
+     */
+    public int getKeywordLength(int keyword) {
+        return keywordLengths[keyword];
+    }
+
+
+    /**
+     *  Returns the number of words in the longest keyword.
+     *
+     *@return    The maximumKeywordLength value
+     */
+    public int getMaximumKeywordLength() {
+        return maximumKeywordLength;
+    }
+
+
+    /**
+     *  Returns the number of distinct keyword words. Symbols run from 0 to
+     *  one less than this number.
+     *
+     *@return    The symbolCount value
+     */
+    public int getSymbolCount() {
+        return words.size();
+    }
+
+
+    /**
+     *  Method returns the symbol of a token.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         symbol of the token, or NO_SYMBOL
+     */
+    public int findSymbol(byte[] data, int offset, int length) {
+        return words.find(data, offset, length);
+    }
+
+
+    /**
+     *  Method returns the symbol of a token String.
+     *
+     *@param  token  String token
+     *@return        symbol of the token, or NO_SYMBOL
+     */
+    public int findSymbol(String token) {
+        return words.find(token);
+    }
+
+
+    /**
+     *  Method adds every keyword word to a token dictionary and returns an
+     *  array indexed by dictionary id that holds the symbol of the word plus
+     *  one. Ids that are not keyword words hold zero.
+     *
+     *@param  dictionary  token dictionary
+     *@return             symbols by dictionary id
+     */
+    public int[] mapSymbols(TokenDictionary dictionary) {
+
+        int[] symbolIds = new int[words.size()];
+        int maximumId = -1;
+
+        for (int symbol = 0; symbol < words.size(); symbol++) {
+
+            symbolIds[symbol] = dictionary.add(words, symbol);
+            maximumId = Math.max(maximumId, symbolIds[symbol]);
+        }
+
+        int[] symbolsById = new int[maximumId + 1];
+
+        for (int symbol = 0; symbol < symbolIds.length; symbol++) {
+            symbolsById[symbolIds[symbol]] = symbol + 1;
+        }
+
+        return symbolsById;
+    }
+
+
+    /**
+     *  Method returns the state reached from a state by the next token.
+     *
+     *@param  state   current state
+     *@param  symbol  symbol of the token, or NO_SYMBOL
+     *@return         next state
+     */
+    public int nextState(int state, int symbol) {
+
+        if (symbol == NO_SYMBOL) {
+            return START_STATE;
+        }
+
+        while (true) {
+
+            int target = findTransition(state, symbol);
+
+            if (target >= 0) {
+                return target;
+            }
+
+            if (state == START_STATE) {
+                return START_STATE;
+            }
+
+            state = failures[state];
+        }
+    }
+
+
+    /**
+     *  Method returns the first state on the failure chain of a state, the
+     *  state itself included, at which a keyword ends. Following
+     *  getOutputLink from that state visits every other state on the chain
+     *  where a keyword ends.
+     *
+     *@param  state  current state
+     *@return        first matching state, or START_STATE if there is none
+     */
+    public int getMatchState(int state) {
+
+        if (stateKeywords[state] >= 0) {
+            return state;
+        }
+
+        return outputLinks[state];
+    }
+
+
+    /**
+     *  Returns the next state on the failure chain at which a keyword ends.
+     *
+     *@param  state  matching state
+     *@return        next matching state, or START_STATE if there is none
+     */
+    public int getOutputLink(int state) {
+        return outputLinks[state];
+    }
+
+
+    /**
+     *  Returns the first keyword that ends at a state.
+     *
+     *@param  state  matching state
+     *@return        keyword number, or -1 if no keyword ends there
+     */
+    public int getStateKeyword(int state) {
+        return stateKeywords[state];
+    }
+
+
+    /**
+     *  Returns the next keyword with the same words as a keyword. Keyword
+     *  lines that only differ in their non-word characters end at the same
+     *  state.
+     *
+     *@param  keyword  keyword number
+     *@return          next keyword number, or -1 if there is none
+     */
+    public int getNextKeyword(int keyword) {
+        return nextKeywords[keyword];
+    }
+
+
+    /**
+     *  Method splits every keyword into words and adds its symbols to the
+     *  trie.
+     */
+    private void buildTrie() {
+
+        int initialStates = keywords.length + 1;
+
+        stateKeywords = new int[initialStates];
+        firstChildren = new int[initialStates];
+        nextSiblings = new int[initialStates];
+        stateSymbols = new int[initialStates];
+        stateCount = 1;
+
+        Arrays.fill(stateKeywords, -1);
+        Arrays.fill(firstChildren, -1);
+        Arrays.fill(nextKeywords, -1);
+
+        for (int keyword = 0; keyword < keywords.length; keyword++) {
+
+            int state = START_STATE;
+
+            for (String word : separator.split(keywords[keyword])) {
+
+                if (word.length() > 0) {
+                    state = findOrAddChild(state, words.add(word));
+                    keywordLengths[keyword]++;
+                }
+            }
+
+            if (keywordLengths[keyword] > 0) {
+                nextKeywords[keyword] = stateKeywords[state];
+                stateKeywords[state] = keyword;
+            }
+
+            maximumKeywordLength = Math.max(maximumKeywordLength,
+                    keywordLengths[keyword]);
+        }
+    }
+
+
+    /**
+     *  Method finds the child of a trie state for a symbol, adding a new
+     *  state if there is none.
+     *
+     *@param  state   parent state
+     *@param  symbol  symbol of the word
+     *@return         child state
+     */
+    private int findOrAddChild(int state, int symbol) {
+
+        for (int child = firstChildren[state]; child >= 0;
+                child = nextSiblings[child]) {
+
+            if (stateSymbols[child] == symbol) {
+                return child;
+            }
+        }
+
+        if (stateCount == stateKeywords.length) {
+
+            int newLength = stateCount * 2;
+
+            stateKeywords = Arrays.copyOf(stateKeywords, newLength);
+            firstChildren = Arrays.copyOf(firstChildren, newLength);
+            nextSiblings = Arrays.copyOf(nextSiblings, newLength);
+            stateSymbols = Arrays.copyOf(stateSymbols, newLength);
+
+            Arrays.fill(stateKeywords, stateCount, newLength, -1);
+            Arrays.fill(firstChildren, stateCount, newLength, -1);
+        }
+
+        int child = stateCount++;
+
+        stateSymbols[child] = symbol;
+        nextSiblings[child] = firstChildren[state];
+        firstChildren[state] = child;
+
+        return child;
+    }
+
+
+    /**
+     *  Method places every trie edge in an open addressing table keyed by the
+     *  parent state and the symbol.
+     */
+    private void buildTransitions() {
+
+        int tableSize = Integer.highestOneBit(Math.max(stateCount, 2) * 2) * 2;
+
+        transitionKeys = new long[tableSize];
+        transitionTargets = new int[tableSize];
+
+        Arrays.fill(transitionKeys, EMPTY_TRANSITION);
+
+        for (int state = 0; state < stateCount; state++) {
+
+            for (int child = firstChildren[state]; child >= 0;
+                    child = nextSiblings[child]) {
+
+                long key = transitionKey(state, stateSymbols[child]);
+                int slot = transitionSlot(key);
+
+                while (transitionKeys[slot] != EMPTY_TRANSITION) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+
+                transitionKeys[slot] = key;
+                transitionTargets[slot] = child;
+            }
+        }
+    }
+
+
+    /**
+     *  Method sets the failure link and output link of every state, visiting
+     *  the states in breadth first order.
+     */
+    private void buildFailureLinks() {
+
+        failures = new int[stateCount];
+        outputLinks = new int[stateCount];
+
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = START_STATE;
+
+        while (head < tail) {
+
+            int state = queue[head++];
+
+            for (int child = firstChildren[state]; child >= 0;
+                    child = nextSiblings[child]) {
+
+                int failure = START_STATE;
+
+                if (state != START_STATE) {
+                    failure = nextState(failures[state], stateSymbols[child]);
+                }
+
+                failures[child] = failure;
+                outputLinks[child] = getMatchState(failure);
+
+                queue[tail++] = child;
+            }
+        }
+    }
+
+
+    /**
+     *  Method finds the target of the trie edge from a state for a symbol.
+     *
+     *@param  state   parent state
+     *@param  symbol  symbol of the word
+     *@return         target state, or -1 if there is no edge
+     */
+    private int findTransition(int state, int symbol) {
+
+        long key = transitionKey(state, symbol);
+        int slot = transitionSlot(key);
+
+        while (transitionKeys[slot] != EMPTY_TRANSITION) {
+
+            if (transitionKeys[slot] == key) {
+                return transitionTargets[slot];
+            }
+
+            slot = (slot + 1) & (transitionKeys.length - 1);
+        }
+
+        return -1;
+    }
+
+
+    /**
+     *  Method combines a state and a symbol into a transition key.
+     *
+     *@param  state   parent state
+     *@param  symbol  symbol of the word
+     *@return         transition key
+     */
+    private static long transitionKey(int state, int symbol) {
+        return ((long) state << 32) | (symbol & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     *  Method returns the first slot to probe for a transition key.
+     *
+     *@param  key  transition key
+     *@return      slot number
+     */
+    private int transitionSlot(long key) {
+
+        long hash = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash >>> 32) & (transitionKeys.length - 1);
+    }
+
+}
@@ -0,0 +1,64 @@
+package java112.analyzer;
+
+import jdk.jfr.*;
+
+/**
+ *  LongTokenEvent class: A Java Flight Recorder event for a token of at
+ *  least jfr.long.token.size bytes. Very long tokens are usually a sign of
+ *  input that is not text, such as encoded data. The batches are only
+ *  searched for long tokens while a recording has the event enabled.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@Name("java112.analyzer.LongToken")
+@Label("Long Token")
+@Category("Document Analyzer")
+@Description("A token at least as long as jfr.long.token.size")
+@StackTrace(false)
+public class LongTokenEvent extends Event {
+
+    /** Default number of bytes from which a token is long */
+    public final static int DEFAULT_MINIMUM_SIZE = 100;
+
+    private final static int MAXIMUM_RECORDED_LENGTH = 256;
+
+    @Label("Token")
+    @Description("Start of the token")
+    private String token;
+
+    @Label("Length")
+    @DataAmount
+    private int length;
+
+
+    /**
+     *  Method records an event for each token of a batch that has at least
+     *  the minimum number of bytes. Only the start of a very long token is
+     *  recorded.
+     *
+     *@param  batch        batch of tokens
+     *@param  minimumSize  number of bytes from which a token is long
+     */
+    public static void commitLongTokens(TokenBatch batch, int minimumSize) {
+
+        if (!new LongTokenEvent().isEnabled()) {
+            return;
+        }
+
+        for (int index = 0; index < batch.size(); index++) {
+
+            if (batch.getTokenLength(index) >= minimumSize) {
+
+                LongTokenEvent event = new LongTokenEvent();
+                String tokenText = batch.getToken(index);
+
+                event.length = batch.getTokenLength(index);
+                event.token = tokenText.substring(0, Math.min(
+                        tokenText.length(), MAXIMUM_RECORDED_LENGTH));
+                event.commit();
+            }
+        }
+    }
+
+}
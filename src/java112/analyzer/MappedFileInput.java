@@ -0,0 +1,169 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ *  MappedFileInput class: Reads an input file through a memory mapped
+ *  FileChannel and hands the mapped bytes directly to a ByteTokenizer. A
+ *  MappedByteBuffer cannot be larger than 2 GB, so the file is mapped one
+ *  window at a time. Tokens that cross a window boundary are joined by the
+ *  tokenizer.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class MappedFileInput {
+
+    /** Default size of each mapped window (1 GB) */
+    public final static long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private final static int BOUNDARY_SEARCH_SIZE = 4096;
+
+    private String inputFilePath;
+    private long windowSize;
+
+
+    /**
+     *  Constructor for the MappedFileInput object
+     *
+     *@param  inputFilePath  input file path
+     */
+    public MappedFileInput(String inputFilePath) {
+        this(inputFilePath, DEFAULT_WINDOW_SIZE);
+    }
+
+
+    /**
+     *  Constructor for the MappedFileInput object
+     *
+     *@param  inputFilePath  input file path
+     *@param  windowSize     number of bytes mapped at one time
+     */
+    public MappedFileInput(String inputFilePath, long windowSize) {
+
+        this.inputFilePath = inputFilePath;
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     *  Returns the value of inputFilePath.
+     *
+     *@return    The inputFilePath value
+     */
+    public String getInputFilePath() {
+        return inputFilePath;
+    }
+
+
+    /**
+     *  Returns the size of the input file.
+     *
+     *@return                  size of the file in bytes
+     *@exception  IOException  IO Exception
+     */
+    public long getFileSize() throws IOException {
+        return Files.size(Paths.get(inputFilePath));
+    }
+
+
+    /**
+     *  Returns the value of windowSize.
+     *
+     *@return    The windowSize value
+     */
+    public long getWindowSize() {
+        return windowSize;
+    }
+
+
+    /**
+     *  Method maps the input file window by window and passes each window to
+     *  the tokenizer. The tokenizer is finished once the whole file has been
+     *  read.
+     *
+     *@param  tokenizer        tokenizer for the mapped bytes
+     *@exception  IOException  IO Exception
+     */
+    public void read(ByteTokenizer tokenizer) throws IOException {
+
+        read(tokenizer, 0, Long.MAX_VALUE);
+    }
+
+
+    /**
+     *  Method maps the bytes of the input file from the start position up to
+     *  the end position window by window and passes each window to the
+     *  tokenizer. The tokenizer is finished once the range has been read.
+     *
+     *@param  tokenizer        tokenizer for the mapped bytes
+     *@param  start            first byte of the range
+     *@param  end              end of the range (exclusive)
+     *@exception  IOException  IO Exception
+     */
+    public void read(ByteTokenizer tokenizer, long start, long end)
+             throws IOException {
+
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath),
+                StandardOpenOption.READ)) {
+
+            long rangeEnd = Math.min(end, channel.size());
+            long position = start;
+
+            while (position < rangeEnd) {
+
+                long mappedSize = Math.min(windowSize, rangeEnd - position);
+
+                MappedByteBuffer window = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position, mappedSize);
+
+                tokenizer.tokenize(window);
+
+                position += mappedSize;
+            }
+        }
+
+        tokenizer.finish();
+    }
+
+
+    /**
+     *  Method finds the first non-word byte at or after the given position.
+     *  A range of the file that starts at this byte does not begin in the
+     *  middle of a token. If there is no non-word byte after the position
+     *  the file size is returned.
+     *
+     *@param  position         position to start searching from
+     *@return                  position of the token boundary
+     *@exception  IOException  IO Exception
+     */
+    public long findTokenBoundary(long position) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath),
+                StandardOpenOption.READ)) {
+
+            while (channel.read(buffer, position) > 0) {
+
+                buffer.flip();
+
+                for (int index = 0; index < buffer.limit(); index++) {
+
+                    if (!ByteTokenizer.isWordCharacter(buffer.get(index))) {
+                        return position + index;
+                    }
+                }
+
+                position += buffer.limit();
+                buffer.clear();
+            }
+
+            return channel.size();
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ *  ParallelFileAnalysis class: Analyzes one large input file on a fork/join
+ *  pool. The file is split in half again and again until each range is
+ *  small enough. Every split point is moved forward to a non-word byte so no
+ *  token is cut in two. Each range is read through a memory mapped channel
+ *  into its own AnalyzerSet, with its own token dictionary, and the sets are
+ *  merged back together in file order, so the merged analyzers hold the same
+ *  results as a single pass over the whole file.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class ParallelFileAnalysis extends RecursiveTask<AnalyzerSet> {
+
+    private final static long serialVersionUID = 1L;
+
+    private final static long MINIMUM_RANGE_SIZE = 8L << 20;
+    private final static int RANGES_PER_THREAD = 4;
+
+    private MappedFileInput input;
+    private Supplier<AnalyzerSet> analyzerFactory;
+    private long start;
+    private long end;
+    private long rangeSize;
+
+
+    /**
+     *  Constructor for the ParallelFileAnalysis object
+     *
+     *@param  input            mapped input file
+     *@param  analyzerFactory  creates a new set of analyzers for a range
+     *@param  start            first byte of the range
+     *@param  end              end of the range (exclusive)
+     *@param  rangeSize        largest range that is not split any further
+     */
+    public ParallelFileAnalysis(MappedFileInput input,
+            Supplier<AnalyzerSet> analyzerFactory, long start, long end,
+            long rangeSize) {
+
+        this.input = input;
+        this.analyzerFactory = analyzerFactory;
+        this.start = start;
+        this.end = end;
+        this.rangeSize = rangeSize;
+    }
+
+
+    /**
+     *  Method analyzes the whole input file using the given number of
+     *  threads and returns the merged analyzers.
+     *
+     *@param  input            mapped input file
+     *@param  analyzerFactory  creates a new set of analyzers for a range
+     *@param  parallelism      number of threads
+     *@return                  merged analyzer set for the whole file
+     *@exception  IOException  IO Exception
+     */
+    public static AnalyzerSet analyze(MappedFileInput input,
+            Supplier<AnalyzerSet> analyzerFactory, int parallelism)
+             throws IOException {
+
+        long fileSize = input.getFileSize();
+        long rangeSize = Math.max(MINIMUM_RANGE_SIZE,
+                fileSize / ((long) parallelism * RANGES_PER_THREAD));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+
+            return pool.invoke(new ParallelFileAnalysis(input, analyzerFactory,
+                    0, fileSize, rangeSize));
+
+        } catch (UncheckedIOException uncheckedException) {
+
+            throw uncheckedException.getCause();
+
+        } finally {
+
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     *  Method splits the range in two at a token boundary and analyzes both
+     *  halves in parallel, or analyzes the range directly when it is small
+     *  enough.
+     *
+     *@return    analyzers for the range
+     */
+    protected AnalyzerSet compute() {
+
+        try {
+
+            if (end - start <= rangeSize) {
+                return analyzeRange();
+            }
+
+            long middle = input.findTokenBoundary(start + (end - start) / 2);
+
+            if (middle >= end) {
+                return analyzeRange();
+            }
+
+            ParallelFileAnalysis left = new ParallelFileAnalysis(input,
+                    analyzerFactory, start, middle, rangeSize);
+            ParallelFileAnalysis right = new ParallelFileAnalysis(input,
+                    analyzerFactory, middle, end, rangeSize);
+
+            right.fork();
+
+            AnalyzerSet leftAnalyzers = left.compute();
+
+            leftAnalyzers.merge(right.join());
+
+            return leftAnalyzers;
+
+        } catch (IOException ioException) {
+
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+
+    /**
+     *  Method reads the range into a new set of analyzers.
+     *
+     *@return                  analyzers for the range
+     *@exception  IOException  IO Exception
+     */
+    private AnalyzerSet analyzeRange() throws IOException {
+
+        AnalyzerSet analyzers = analyzerFactory.get();
+
+        input.read(analyzers.createTokenizer(), start, end);
+
+        return analyzers;
+    }
+
+}
@@ -0,0 +1,525 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+import jdk.jfr.*;
+
+/**
+ *  PerformanceMonitor class: Measures where the time of a run goes. It
+ *  counts the input bytes read and the tokens analyzed, the time each
+ *  analyzer spends processing batches of tokens and writing its report,
+ *  and the peak heap use, and it asks each analyzer for an estimate of its
+ *  memory footprint. The values can be read through JMX as
+ *  java112.analyzer:type=PerformanceMonitor while the run goes on, a
+ *  ThroughputEvent is recorded periodically while a Java Flight Recorder
+ *  recording has it enabled, and the SummaryReport ends with a performance
+ *  section. A monitor is only created when performance.monitor is true;
+ *  without one every place that measures tests a null field once per block
+ *  or batch, so instrumentation costs nothing when it is off. The counters
+ *  can be added to from several threads, and the footprints are read from
+ *  the analyzers without locking, so live footprints are approximate.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class PerformanceMonitor implements PerformanceMonitorMBean {
+
+    /** Name the monitor is registered under with the platform MBean server */
+    public final static String OBJECT_NAME =
+            "java112.analyzer:type=PerformanceMonitor";
+
+    private final static double NANOS_PER_SECOND = 1.0e9;
+    private final static long NANOS_PER_MILLI = 1000000L;
+    private final static long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    private long startNanos;
+    private volatile long ingestNanos;
+    private AtomicLong bytesRead;
+    private AtomicLong tokenCount;
+    private AtomicLongArray processNanos;
+    private AtomicLongArray writeNanos;
+    private volatile AnalyzerSet analyzers;
+    private ObjectName registeredName;
+    private Runnable throughputHook;
+    private long lastThroughputNanos;
+    private long lastBytesRead;
+    private long lastTokenCount;
+
+
+    /**
+     *  Constructor for the PerformanceMonitor object. The peak heap use is
+     *  measured from now on.
+     *
+     *@param  analyzerCount  number of analyzers in each set
+     */
+    public PerformanceMonitor(int analyzerCount) {
+
+        bytesRead = new AtomicLong();
+        tokenCount = new AtomicLong();
+        processNanos = new AtomicLongArray(analyzerCount);
+        writeNanos = new AtomicLongArray(analyzerCount);
+        ingestNanos = -1;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        startNanos = System.nanoTime();
+        lastThroughputNanos = startNanos;
+    }
+
+
+    /**
+     *  Method creates a monitor when the performance.monitor property is
+     *  true and registers it with the platform MBean server.
+     *
+     *@param  properties  Properties object
+     *@return             new monitor, or null when monitoring is off
+     */
+    public static PerformanceMonitor create(Properties properties) {
+
+        if (!Boolean.parseBoolean(properties.getProperty(
+                "performance.monitor", "false"))) {
+            return null;
+        }
+
+        PerformanceMonitor monitor = new PerformanceMonitor(
+                AnalyzerSet.REPORT_COUNT);
+
+        monitor.register();
+
+        return monitor;
+    }
+
+
+    /**
+     *  Method registers the monitor with the platform MBean server, in place
+     *  of a monitor left by an earlier run in the same JVM, and adds the
+     *  periodic throughput event. A monitor that cannot be registered still
+     *  measures the run.
+     */
+    public void register() {
+
+        if (throughputHook == null) {
+            throughputHook = this::commitThroughput;
+            FlightRecorder.addPeriodicEvent(ThroughputEvent.class,
+                    throughputHook);
+        }
+
+        try {
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+
+            server.registerMBean(this, name);
+            registeredName = name;
+
+        } catch (JMException jmException) {
+
+            System.err.println("Cannot register the performance monitor: "
+                     + jmException);
+        }
+    }
+
+
+    /**
+     *  Method removes the monitor from the platform MBean server and stops
+     *  the periodic throughput event.
+     */
+    public void unregister() {
+
+        if (throughputHook != null) {
+            FlightRecorder.removePeriodicEvent(throughputHook);
+            throughputHook = null;
+        }
+
+        if (registeredName == null) {
+            return;
+        }
+
+        try {
+
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    registeredName);
+
+        } catch (JMException jmException) {
+
+            System.err.println("Cannot unregister the performance monitor: "
+                     + jmException);
+        }
+
+        registeredName = null;
+    }
+
+
+    /**
+     *  Sets the analyzers whose footprints are reported, and makes their
+     *  SummaryReport end with the performance section.
+     *
+     *@param  analyzers  The new analyzers value
+     */
+    public void setAnalyzers(AnalyzerSet analyzers) {
+
+        this.analyzers = analyzers;
+
+        for (Analyzer analyzer : analyzers.getAnalyzers()) {
+
+            if (analyzer instanceof SummaryReport) {
+                ((SummaryReport) analyzer).setPerformanceMonitor(this);
+            }
+        }
+    }
+
+
+    /**
+     *  Method adds to the number of input bytes read.
+     *
+     *@param  count  number of bytes
+     */
+    public void addBytes(long count) {
+        bytesRead.addAndGet(count);
+    }
+
+
+    /**
+     *  Method adds to the number of tokens analyzed.
+     *
+     *@param  count  number of tokens
+     */
+    public void addTokens(long count) {
+        tokenCount.addAndGet(count);
+    }
+
+
+    /**
+     *  Method adds to the time an analyzer has spent processing tokens.
+     *
+     *@param  analyzer  index of the analyzer in its set
+     *@param  nanos     time in nanoseconds
+     */
+    public void addProcessNanos(int analyzer, long nanos) {
+        processNanos.addAndGet(analyzer, nanos);
+    }
+
+
+    /**
+     *  Method adds to the time an analyzer has spent writing its report.
+     *
+     *@param  analyzer  index of the analyzer in its set
+     *@param  nanos     time in nanoseconds
+     */
+    public void addWriteNanos(int analyzer, long nanos) {
+        writeNanos.addAndGet(analyzer, nanos);
+    }
+
+
+    /**
+     *  Method ends the ingest time. The rates are measured over the time up
+     *  to this call.
+     */
+    public void finishIngest() {
+        ingestNanos = System.nanoTime() - startNanos;
+    }
+
+
+    /**
+     *  Returns the number of input bytes read so far.
+     *
+     *@return    The bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+
+    /**
+     *  Returns the number of tokens passed to the analyzers so far.
+     *
+     *@return    The token count
+     */
+    public long getTokenCount() {
+        return tokenCount.get();
+    }
+
+
+    /**
+     *  Returns the time spent reading the input, up to now while it is read.
+     *
+     *@return    The ingest time in milliseconds
+     */
+    public long getIngestMillis() {
+        return getIngestNanos() / NANOS_PER_MILLI;
+    }
+
+
+    /**
+     *  Returns the number of input bytes read per second of ingest time.
+     *
+     *@return    The bytes per second
+     */
+    public double getBytesPerSecond() {
+        return perSecond(getBytesRead());
+    }
+
+
+    /**
+     *  Returns the number of tokens analyzed per second of ingest time.
+     *
+     *@return    The tokens per second
+     */
+    public double getTokensPerSecond() {
+        return perSecond(getTokenCount());
+    }
+
+
+    /**
+     *  Returns the largest amount of heap in use since the monitor was
+     *  created, as the sum of the peak use of each heap memory pool.
+     *
+     *@return    The peak heap use in bytes
+     */
+    public long getPeakHeapBytes() {
+
+        long peak = 0;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+
+    /**
+     *  Returns the names of the analyzers.
+     *
+     *@return    The analyzer names
+     */
+    public String[] getAnalyzerNames() {
+
+        String[] names = new String[processNanos.length()];
+        List<Analyzer> analyzerList = getAnalyzerList();
+
+        for (int index = 0; index < names.length; index++) {
+            names[index] = index < analyzerList.size()
+                     ? analyzerList.get(index).getClass().getSimpleName()
+                     : "analyzer " + index;
+        }
+
+        return names;
+    }
+
+
+    /**
+     *  Returns the time each analyzer has spent processing tokens.
+     *
+     *@return    The processing time of each analyzer in nanoseconds
+     */
+    public long[] getProcessNanos() {
+        return toArray(processNanos);
+    }
+
+
+    /**
+     *  Returns the time each analyzer has spent writing its report.
+     *
+     *@return    The report writing time of each analyzer in nanoseconds
+     */
+    public long[] getWriteNanos() {
+        return toArray(writeNanos);
+    }
+
+
+    /**
+     *  Returns the memory footprint estimates of each analyzer, one line
+     *  for each analyzer.
+     *
+     *@return    The footprint of each analyzer
+     */
+    public String[] getFootprints() {
+
+        List<Analyzer> analyzerList = getAnalyzerList();
+        String[] footprints = new String[analyzerList.size()];
+
+        for (int index = 0; index < footprints.length; index++) {
+            footprints[index] = formatFootprint(analyzerList.get(index));
+        }
+
+        return footprints;
+    }
+
+
+    /**
+     *  Method writes the performance section of the summary report.
+     *
+     *@param  out              report writer
+     *@exception  IOException  if the section cannot be written
+     */
+    public void writeReport(ReportWriter out) throws IOException {
+
+        String[] names = getAnalyzerNames();
+        long[] process = getProcessNanos();
+        long[] write = getWriteNanos();
+        List<Analyzer> analyzerList = getAnalyzerList();
+
+        out.println();
+        out.println("Performance");
+        out.println("Ingest Time: " + getIngestMillis() + " ms");
+        out.println("Bytes Read: " + getBytesRead() + " (" + String.format(
+                "%.1f", getBytesPerSecond() / BYTES_PER_MEGABYTE)
+                 + " MB per second)");
+        out.println("Tokens Analyzed: " + getTokenCount() + " ("
+                 + String.format("%.0f", getTokensPerSecond())
+                 + " tokens per second)");
+        out.println("Peak Heap: " + getPeakHeapBytes() / BYTES_PER_MEGABYTE
+                 + " MB");
+
+        for (int index = 0; index < names.length; index++) {
+
+            out.println(String.format("%-30s process %8d ms  write %8d ms",
+                    names[index], process[index] / NANOS_PER_MILLI,
+                    write[index] / NANOS_PER_MILLI));
+
+            if (index < analyzerList.size()) {
+
+                String footprint = formatFootprint(analyzerList.get(index));
+
+                if (footprint.length() > 0) {
+                    out.println("    " + footprint);
+                }
+            }
+        }
+    }
+
+
+    /**
+     *  Method records a throughput event with the counts so far and the
+     *  rates since the last event. It is called by the flight recorder.
+     */
+    private synchronized void commitThroughput() {
+
+        long now = System.nanoTime();
+        long bytes = getBytesRead();
+        long tokens = getTokenCount();
+        double seconds = Math.max(now - lastThroughputNanos, 1)
+                 / NANOS_PER_SECOND;
+
+        new ThroughputEvent(bytes, tokens, (bytes - lastBytesRead) / seconds,
+                (tokens - lastTokenCount) / seconds).commit();
+
+        lastThroughputNanos = now;
+        lastBytesRead = bytes;
+        lastTokenCount = tokens;
+    }
+
+
+    /**
+     *  Returns the ingest time so far in nanoseconds.
+     *
+     *@return    The ingest time
+     */
+    private long getIngestNanos() {
+
+        long nanos = ingestNanos;
+
+        return nanos < 0 ? System.nanoTime() - startNanos : nanos;
+    }
+
+
+    /**
+     *  Method divides a count by the ingest time in seconds.
+     *
+     *@param  count  count to divide
+     *@return        count per second
+     */
+    private double perSecond(long count) {
+
+        long nanos = getIngestNanos();
+
+        return nanos == 0 ? 0 : count * NANOS_PER_SECOND / nanos;
+    }
+
+
+    /**
+     *  Returns the analyzers whose footprints are reported.
+     *
+     *@return    The analyzers, or an empty list before they are set
+     */
+    private List<Analyzer> getAnalyzerList() {
+
+        AnalyzerSet currentAnalyzers = analyzers;
+
+        if (currentAnalyzers == null) {
+            return Collections.emptyList();
+        }
+
+        return currentAnalyzers.getAnalyzers();
+    }
+
+
+    /**
+     *  Method formats the footprint of an analyzer as name=value pairs. The
+     *  analyzer may be changing on another thread, so a footprint that
+     *  cannot be read is reported as unavailable.
+     *
+     *@param  analyzer  analyzer to describe
+     *@return           the footprint, or an empty String if the analyzer
+     *      reports none
+     */
+    private String formatFootprint(Analyzer analyzer) {
+
+        StringBuilder footprint = new StringBuilder();
+
+        try {
+
+            for (Map.Entry<String, Long> entry
+                     : analyzer.getFootprint().entrySet()) {
+
+                if (footprint.length() > 0) {
+                    footprint.append(", ");
+                }
+
+                footprint.append(entry.getKey()).append('=')
+                        .append(entry.getValue());
+            }
+
+        } catch (RuntimeException runtimeException) {
+
+            return "footprint unavailable";
+        }
+
+        return footprint.toString();
+    }
+
+
+    /**
+     *  Method copies the values of an atomic array.
+     *
+     *@param  values  atomic values
+     *@return         copy of the values
+     */
+    private static long[] toArray(AtomicLongArray values) {
+
+        long[] copy = new long[values.length()];
+
+        for (int index = 0; index < copy.length; index++) {
+            copy[index] = values.get(index);
+        }
+
+        return copy;
+    }
+
+}
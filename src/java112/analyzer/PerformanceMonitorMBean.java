@@ -0,0 +1,94 @@
+package java112.analyzer;
+
+/**
+ *  PerformanceMonitorMBean interface. The values of a PerformanceMonitor
+ *  that can be read through JMX while the analysis runs. The arrays of
+ *  analyzer values are in report order and line up with the analyzer
+ *  names.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public interface PerformanceMonitorMBean {
+
+    /**
+     *  Returns the number of input bytes read so far.
+     *
+     *@return    The bytes read
+     */
+    long getBytesRead();
+
+
+    /**
+     *  Returns the number of tokens passed to the analyzers so far.
+     *
+     *@return    The token count
+     */
+    long getTokenCount();
+
+
+    /**
+     *  Returns the time spent reading the input, up to now while it is read.
+     *
+     *@return    The ingest time in milliseconds
+     */
+    long getIngestMillis();
+
+
+    /**
+     *  Returns the number of input bytes read per second of ingest time.
+     *
+     *@return    The bytes per second
+     */
+    double getBytesPerSecond();
+
+
+    /**
+     *  Returns the number of tokens analyzed per second of ingest time.
+     *
+     *@return    The tokens per second
+     */
+    double getTokensPerSecond();
+
+
+    /**
+     *  Returns the largest amount of heap in use since the run started.
+     *
+     *@return    The peak heap use in bytes
+     */
+    long getPeakHeapBytes();
+
+
+    /**
+     *  Returns the names of the analyzers.
+     *
+     *@return    The analyzer names
+     */
+    String[] getAnalyzerNames();
+
+
+    /**
+     *  Returns the time each analyzer has spent processing tokens.
+     *
+     *@return    The processing time of each analyzer in nanoseconds
+     */
+    long[] getProcessNanos();
+
+
+    /**
+     *  Returns the time each analyzer has spent writing its report.
+     *
+     *@return    The report writing time of each analyzer in nanoseconds
+     */
+    long[] getWriteNanos();
+
+
+    /**
+     *  Returns the memory footprint estimates of each analyzer, one line
+     *  for each analyzer.
+     *
+     *@return    The footprint of each analyzer
+     */
+    String[] getFootprints();
+
+}
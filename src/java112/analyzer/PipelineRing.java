@@ -0,0 +1,382 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+/**
+ *  PipelineRing class: A bounded ring of preallocated slots that connects
+ *  two stages of a PipelinedInput. The producing stage claims the next free
+ *  slot, fills it and publishes it; each consuming stage takes the published
+ *  slots in order and releases each one once it is done with it, so the
+ *  same objects go round the ring for the whole run and nothing is
+ *  allocated per item. A ring has one producer and one or more consumers.
+ *  Every consumer sees every slot at its own pace, and a slot is only free
+ *  again once all of them have released it, so consumers must not change a
+ *  slot they share. A producer that finds every slot in use waits, which
+ *  holds it back to the pace of the slowest consumer. The ring counts the
+ *  time each side spends waiting and the number of slots in use, which
+ *  shows which stage holds the pipeline up.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class PipelineRing<T> {
+
+    private String name;
+    private List<T> slots;
+    private ReentrantLock lock;
+    private Condition slotReleased;
+    private Condition slotPublished;
+    private long published;
+    private long[] taken;
+    private long[] released;
+    private long releasedByAll;
+    private boolean closed;
+    private int[] maximumDepths;
+    private long producerWaitNanos;
+    private long[] consumerWaitNanos;
+
+
+    /**
+     *  Constructor for a PipelineRing with one consumer
+     *
+     *@param  name   name of the ring used in its counters
+     *@param  slots  preallocated slot objects, one for each slot
+     */
+    public PipelineRing(String name, List<T> slots) {
+        this(name, slots, 1);
+    }
+
+
+    /**
+     *  Constructor for the PipelineRing object
+     *
+     *@param  name           name of the ring used in its counters
+     *@param  slots          preallocated slot objects, one for each slot
+     *@param  consumerCount  number of consumers that each take every slot
+     */
+    public PipelineRing(String name, List<T> slots, int consumerCount) {
+
+        this.name = name;
+        this.slots = new ArrayList<T>(slots);
+
+        if (this.slots.isEmpty() || consumerCount < 1) {
+            throw new IllegalArgumentException("A ring needs a slot and a "
+                     + "consumer");
+        }
+
+        lock = new ReentrantLock();
+        slotReleased = lock.newCondition();
+        slotPublished = lock.newCondition();
+        taken = new long[consumerCount];
+        released = new long[consumerCount];
+        maximumDepths = new int[consumerCount];
+        consumerWaitNanos = new long[consumerCount];
+    }
+
+
+    /**
+     *  Returns the value of name.
+     *
+     *@return    The name value
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     *  Returns the number of slots in the ring.
+     *
+     *@return    The capacity value
+     */
+    public int getCapacity() {
+        return slots.size();
+    }
+
+
+    /**
+     *  Returns the number of consumers of the ring.
+     *
+     *@return    The consumer count
+     */
+    public int getConsumerCount() {
+        return taken.length;
+    }
+
+
+    /**
+     *  Method waits for the next free slot and returns it to the producer,
+     *  which owns it until it is published.
+     *
+     *@return                           the free slot
+     *@exception  InterruptedException  if the producer is interrupted while
+     *      it waits
+     */
+    public T claim() throws InterruptedException {
+
+        lock.lock();
+
+        try {
+
+            if (published - releasedByAll == slots.size()) {
+
+                long waitStart = System.nanoTime();
+
+                while (published - releasedByAll == slots.size()) {
+                    slotReleased.await();
+                }
+
+                producerWaitNanos += System.nanoTime() - waitStart;
+            }
+
+            return slots.get((int) (published % slots.size()));
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Method hands the claimed slot to the consumers.
+     */
+    public void publish() {
+
+        lock.lock();
+
+        try {
+
+            published++;
+
+            for (int consumer = 0; consumer < released.length; consumer++) {
+                maximumDepths[consumer] = Math.max(maximumDepths[consumer],
+                        (int) (published - released[consumer]));
+            }
+
+            slotPublished.signalAll();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Method tells the consumers that nothing more will be published.
+     */
+    public void close() {
+
+        lock.lock();
+
+        try {
+
+            closed = true;
+            slotPublished.signalAll();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Method waits for the next published slot of the only consumer.
+     *
+     *@return                           the published slot, or null once the
+     *      ring is closed and every published slot has been taken
+     *@exception  InterruptedException  if the consumer is interrupted while
+     *      it waits
+     */
+    public T take() throws InterruptedException {
+        return take(0);
+    }
+
+
+    /**
+     *  Method waits for the next published slot of a consumer and returns
+     *  it. The consumer may use the slot until it releases it, and must
+     *  release its slots in the order it takes them.
+     *
+     *@param  consumer                  index of the consumer
+     *@return                           the published slot, or null once the
+     *      ring is closed and the consumer has taken every published slot
+     *@exception  InterruptedException  if the consumer is interrupted while
+     *      it waits
+     */
+    public T take(int consumer) throws InterruptedException {
+
+        lock.lock();
+
+        try {
+
+            if (taken[consumer] == published && !closed) {
+
+                long waitStart = System.nanoTime();
+
+                while (taken[consumer] == published && !closed) {
+                    slotPublished.await();
+                }
+
+                consumerWaitNanos[consumer] += System.nanoTime() - waitStart;
+            }
+
+            if (taken[consumer] == published) {
+                return null;
+            }
+
+            return slots.get((int) (taken[consumer]++ % slots.size()));
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Method releases the oldest slot taken by the only consumer.
+     */
+    public void release() {
+        release(0);
+    }
+
+
+    /**
+     *  Method releases the oldest slot taken by a consumer. The slot is
+     *  handed back to the producer once every consumer has released it.
+     *
+     *@param  consumer  index of the consumer
+     */
+    public void release(int consumer) {
+
+        lock.lock();
+
+        try {
+
+            released[consumer]++;
+
+            long oldest = released[0];
+
+            for (long consumerReleased : released) {
+                oldest = Math.min(oldest, consumerReleased);
+            }
+
+            if (oldest > releasedByAll) {
+                releasedByAll = oldest;
+                slotReleased.signal();
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Returns the number of slots that have been published and not yet
+     *  released by every consumer.
+     *
+     *@return    The depth value
+     */
+    public int getDepth() {
+
+        lock.lock();
+
+        try {
+            return (int) (published - releasedByAll);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Returns the number of slots that have been published and not yet
+     *  released by a consumer.
+     *
+     *@param  consumer  index of the consumer
+     *@return           The depth value
+     */
+    public int getDepth(int consumer) {
+
+        lock.lock();
+
+        try {
+            return (int) (published - released[consumer]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Returns the largest number of slots that a consumer had not yet
+     *  released at one time.
+     *
+     *@param  consumer  index of the consumer
+     *@return           The maximum depth value
+     */
+    public int getMaximumDepth(int consumer) {
+
+        lock.lock();
+
+        try {
+            return maximumDepths[consumer];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Returns the number of slots that have been published.
+     *
+     *@return    The published count
+     */
+    public long getPublishedCount() {
+
+        lock.lock();
+
+        try {
+            return published;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Returns the time the producer has spent waiting for a free slot.
+     *
+     *@return    The producer wait in nanoseconds
+     */
+    public long getProducerWaitNanos() {
+
+        lock.lock();
+
+        try {
+            return producerWaitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     *  Returns the time a consumer has spent waiting for a published slot.
+     *
+     *@param  consumer  index of the consumer
+     *@return           The consumer wait in nanoseconds
+     */
+    public long getConsumerWaitNanos(int consumer) {
+
+        lock.lock();
+
+        try {
+            return consumerWaitNanos[consumer];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package java112.analyzer;
+
+/**
+ *  PipelineStage class: The counters of one stage of a PipelinedInput,
+ *  taken from the rings on either side of it. A stage waits on its input
+ *  ring when the stage before it is slower, and on its output ring when the
+ *  stage after it is slower, so the stage that waits least is the one that
+ *  holds the pipeline up. The queue depth is the number of items in the
+ *  input ring that the stage has not finished with yet. When several
+ *  stages consume the same ring each has counters of its own.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class PipelineStage {
+
+    private final static long NANOS_PER_MILLI = 1000000L;
+
+    private String name;
+    private PipelineRing<?> input;
+    private int consumer;
+    private PipelineRing<?> output;
+
+
+    /**
+     *  Constructor for the PipelineStage object
+     *
+     *@param  name    name of the stage
+     *@param  input   ring the stage takes from, or null for the first stage
+     *@param  output  ring the stage publishes to, or null for the last stage
+     */
+    public PipelineStage(String name, PipelineRing<?> input,
+            PipelineRing<?> output) {
+        this(name, input, 0, output);
+    }
+
+
+    /**
+     *  Constructor for a PipelineStage that is one of several consumers of
+     *  its input ring
+     *
+     *@param  name      name of the stage
+     *@param  input     ring the stage takes from, or null for the first stage
+     *@param  consumer  index of the stage among the consumers of the input
+     *@param  output    ring the stage publishes to, or null for the last
+     *      stage
+     */
+    public PipelineStage(String name, PipelineRing<?> input, int consumer,
+            PipelineRing<?> output) {
+
+        this.name = name;
+        this.input = input;
+        this.consumer = consumer;
+        this.output = output;
+    }
+
+
+    /**
+     *  Returns the value of name.
+     *
+     *@return    The name value
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     *  Returns the number of items waiting in the input ring of the stage.
+     *
+     *@return    The queue depth
+     */
+    public int getQueueDepth() {
+        return input == null ? 0 : input.getDepth(consumer);
+    }
+
+
+    /**
+     *  Returns the largest number of items that waited in the input ring of
+     *  the stage at one time.
+     *
+     *@return    The maximum queue depth
+     */
+    public int getMaximumQueueDepth() {
+        return input == null ? 0 : input.getMaximumDepth(consumer);
+    }
+
+
+    /**
+     *  Returns the capacity of the input ring of the stage.
+     *
+     *@return    The queue capacity
+     */
+    public int getQueueCapacity() {
+        return input == null ? 0 : input.getCapacity();
+    }
+
+
+    /**
+     *  Returns the time the stage has spent waiting for input.
+     *
+     *@return    The input stall time in nanoseconds
+     */
+    public long getInputStallNanos() {
+        return input == null ? 0 : input.getConsumerWaitNanos(consumer);
+    }
+
+
+    /**
+     *  Returns the time the stage has spent waiting for room in its output
+     *  ring.
+     *
+     *@return    The output stall time in nanoseconds
+     */
+    public long getOutputStallNanos() {
+        return output == null ? 0 : output.getProducerWaitNanos();
+    }
+
+
+    /**
+     *  Returns the total time the stage has spent waiting.
+     *
+     *@return    The stall time in nanoseconds
+     */
+    public long getStallNanos() {
+        return getInputStallNanos() + getOutputStallNanos();
+    }
+
+
+    /**
+     *  Returns the counters of the stage on one line.
+     *
+     *@return    the stage counters
+     */
+    public String toString() {
+
+        String counters = String.format("%-30s input stall %8d ms  output "
+                 + "stall %8d ms", name, getInputStallNanos() / NANOS_PER_MILLI,
+                getOutputStallNanos() / NANOS_PER_MILLI);
+
+        if (input == null) {
+            return counters;
+        }
+
+        return counters + String.format("  queue %d (max %d of %d)",
+                getQueueDepth(), getMaximumQueueDepth(), getQueueCapacity());
+    }
+
+}
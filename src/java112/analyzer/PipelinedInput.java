@@ -0,0 +1,587 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ *  PipelinedInput class: Reads an input file in three stages that run on
+ *  threads of their own, so waiting for the disk overlaps with tokenizing
+ *  and analyzing. The read stage fills blocks of bytes from the file, the
+ *  tokenize stage turns the blocks into batches of tokens, and the analyze
+ *  stage, which runs on the calling thread, passes each batch to the
+ *  analyzers. The stages are connected by PipelineRings of blocks and
+ *  batches that are allocated once, so a stage that runs ahead waits for a
+ *  free slot instead of filling memory. In fan-out mode the analyze stage
+ *  is split into one stage for each analyzer, each on a thread of its own:
+ *  every batch is published once, its token ids are resolved before it is
+ *  published, and each analyzer reads it at its own pace without changing
+ *  it. A batch is filled again only after every analyzer is done with it,
+ *  so a slow analyzer holds the others back by at most the length of the
+ *  ring. The counters of each stage are kept after the file is read.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class PipelinedInput {
+
+    /** Default number of bytes in each block (256 KB) */
+    public final static int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /** Default number of blocks in the ring between reading and tokenizing */
+    public final static int DEFAULT_BLOCK_COUNT = 4;
+
+    /** Default number of batches in the ring before the analyzers */
+    public final static int DEFAULT_BATCH_COUNT = 4;
+
+    private String inputFilePath;
+    private int blockSize;
+    private int blockCount;
+    private int batchCount;
+    private boolean fanOut;
+    private PipelineRing<ByteBuffer> blocks;
+    private PipelineRing<TokenBatch> batches;
+    private List<PipelineStage> stages;
+    private List<Thread> threads;
+    private int longTokenSize;
+    private volatile Throwable failure;
+
+
+    /**
+     *  Constructor for the PipelinedInput object
+     *
+     *@param  inputFilePath  input file path
+     */
+    public PipelinedInput(String inputFilePath) {
+        this(inputFilePath, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT,
+                DEFAULT_BATCH_COUNT, false);
+    }
+
+
+    /**
+     *  Constructor for the PipelinedInput object
+     *
+     *@param  inputFilePath  input file path
+     *@param  blockSize      number of bytes in each block
+     *@param  blockCount     number of blocks between reading and tokenizing
+     *@param  batchCount     number of token batches before the analyzers
+     *@param  fanOut         true to run each analyzer on its own thread
+     */
+    public PipelinedInput(String inputFilePath, int blockSize, int blockCount,
+            int batchCount, boolean fanOut) {
+
+        this.inputFilePath = inputFilePath;
+        this.blockSize = Math.max(1, blockSize);
+        this.blockCount = Math.max(1, blockCount);
+        this.batchCount = Math.max(1, batchCount);
+        this.fanOut = fanOut;
+        stages = new ArrayList<PipelineStage>();
+        threads = new CopyOnWriteArrayList<Thread>();
+    }
+
+
+    /**
+     *  Method creates a PipelinedInput with the block size and ring sizes of
+     *  the input.pipeline.block.size, input.pipeline.blocks and
+     *  input.pipeline.batches properties.
+     *
+     *@param  inputFilePath  input file path
+     *@param  properties     properties object
+     *@param  fanOut         true to run each analyzer on its own thread
+     *@return                pipelined input for the file
+     */
+    public static PipelinedInput create(String inputFilePath,
+            Properties properties, boolean fanOut) {
+
+        return new PipelinedInput(inputFilePath,
+                Integer.parseInt(properties.getProperty(
+                "input.pipeline.block.size",
+                String.valueOf(DEFAULT_BLOCK_SIZE))),
+                Integer.parseInt(properties.getProperty(
+                "input.pipeline.blocks",
+                String.valueOf(DEFAULT_BLOCK_COUNT))),
+                Integer.parseInt(properties.getProperty(
+                "input.pipeline.batches",
+                String.valueOf(DEFAULT_BATCH_COUNT))), fanOut);
+    }
+
+
+    /**
+     *  Returns the value of inputFilePath.
+     *
+     *@return    The inputFilePath value
+     */
+    public String getInputFilePath() {
+        return inputFilePath;
+    }
+
+
+    /**
+     *  Returns the stages of the last read in pipeline order. Their counters
+     *  can be read while the file is read.
+     *
+     *@return    The stages value
+     */
+    public List<PipelineStage> getStages() {
+        return stages;
+    }
+
+
+    /**
+     *  Returns the value of fanOut.
+     *
+     *@return    true if each analyzer runs on its own thread
+     */
+    public boolean isFanOut() {
+        return fanOut;
+    }
+
+
+    /**
+     *  Method reads the file through the pipeline into a set of analyzers.
+     *  The tokens are found with the charset and tokenizer backend of the
+     *  set, and the analyzers have seen every token when the method returns.
+     *  A failure on any stage thread, Errors included, is thrown here.
+     *
+     *@param  analyzers        analyzers for the tokens
+     *@exception  IOException  if the file cannot be read
+     */
+    public void read(AnalyzerSet analyzers) throws IOException {
+
+        List<ByteBuffer> blockSlots = new ArrayList<ByteBuffer>();
+        List<TokenBatch> batchSlots = new ArrayList<TokenBatch>();
+
+        for (int index = 0; index < blockCount; index++) {
+            blockSlots.add(ByteBuffer.allocate(blockSize));
+        }
+
+        for (int index = 0; index < batchCount; index++) {
+            batchSlots.add(new TokenBatch());
+        }
+
+        List<Analyzer> analyzerList = analyzers.getAnalyzers();
+
+        blocks = new PipelineRing<ByteBuffer>("blocks", blockSlots);
+        batches = new PipelineRing<TokenBatch>("batches", batchSlots,
+                fanOut ? analyzerList.size() : 1);
+        longTokenSize = analyzers.getLongTokenSize();
+        failure = null;
+
+        stages = new ArrayList<PipelineStage>();
+        stages.add(new PipelineStage("read", null, blocks));
+        stages.add(new PipelineStage("tokenize", blocks, batches));
+
+        ByteTokenizer tokenizer = new ByteTokenizer(new BatchFiller(
+                fanOut ? analyzers.getDictionary() : null),
+                analyzers.getInputCharset(), analyzers.getTokenizerBackend());
+        String fileName = String.valueOf(Paths.get(inputFilePath)
+                .getFileName());
+
+        tokenizer.setMonitor(analyzers.getMonitor());
+
+        threads = new CopyOnWriteArrayList<Thread>();
+        startStage(this::readBlocks, "read-" + fileName);
+        startStage(() -> tokenizeBlocks(tokenizer), "tokenize-" + fileName);
+
+        try {
+
+            if (fanOut) {
+                fanOutBatches(analyzerList, analyzers.getMonitor(), fileName);
+            } else {
+                stages.add(new PipelineStage("analyze", batches, null));
+                analyzeBatches(analyzers.createDispatcher());
+            }
+
+        } catch (InterruptedException interrupted) {
+
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Reading " + inputFilePath
+                     + " was interrupted");
+
+        } finally {
+            interruptStages();
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+
+    /**
+     *  Method starts a stage on a daemon thread of its own.
+     *
+     *@param  stage  work of the stage
+     *@param  name   name of the thread
+     */
+    private void startStage(Runnable stage, String name) {
+
+        Thread thread = new Thread(stage, name);
+
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+
+    /**
+     *  Method stops every stage thread that is still running, other than the
+     *  current one.
+     */
+    private void interruptStages() {
+
+        for (Thread thread : threads) {
+
+            if (thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+
+    /**
+     *  Method starts an analyze stage for each analyzer, each consuming every
+     *  batch on its own thread, and waits until all of them are done.
+     *
+     *@param  analyzerList              analyzers that consume the batches
+     *@param  monitor                   monitor of the analyzers, or null
+     *@param  fileName                  name of the input file
+     *@exception  InterruptedException  if the thread is interrupted
+     */
+    private void fanOutBatches(List<Analyzer> analyzerList,
+            PerformanceMonitor monitor, String fileName)
+             throws InterruptedException {
+
+        List<Thread> analyzerThreads = new ArrayList<Thread>();
+
+        for (int consumer = 0; consumer < analyzerList.size(); consumer++) {
+
+            Analyzer analyzer = analyzerList.get(consumer);
+            String name = analyzer.getClass().getSimpleName();
+            int consumerIndex = consumer;
+
+            stages.add(new PipelineStage(name, batches, consumer, null));
+            startStage(() -> analyzeBatches(analyzer, consumerIndex,
+                    monitor), "analyze-" + name + "-" + fileName);
+            analyzerThreads.add(threads.get(threads.size() - 1));
+        }
+
+        for (Thread thread : analyzerThreads) {
+            thread.join();
+        }
+    }
+
+
+    /**
+     *  Method runs the analyze stage of one analyzer in fan-out mode. Any
+     *  failure, Errors included, stops the other stages, since the batches
+     *  this analyzer would have released can no longer be filled again. With a monitor
+     *  the time the analyzer spends on each batch is recorded, and the
+     *  first analyzer also counts the tokens. The first analyzer records
+     *  the long tokens of each batch as flight recorder events.
+     *
+     *@param  analyzer  analyzer that consumes the batches
+     *@param  consumer  index of the analyzer among the consumers
+     *@param  monitor   monitor of the analyzers, or null
+     */
+    private void analyzeBatches(Analyzer analyzer, int consumer,
+            PerformanceMonitor monitor) {
+
+        try {
+
+            TokenBatch batch = batches.take(consumer);
+
+            while (batch != null) {
+
+                if (consumer == 0) {
+                    LongTokenEvent.commitLongTokens(batch, longTokenSize);
+                }
+
+                if (monitor == null) {
+                    AnalyzerBatchEvent.processTokens(analyzer, batch);
+                } else {
+                    analyzeMeasured(analyzer, consumer, monitor, batch);
+                }
+
+                batches.release(consumer);
+
+                batch = batches.take(consumer);
+            }
+
+        } catch (InterruptedException interrupted) {
+
+            return;
+
+        } catch (Throwable throwable) {
+
+            setFailure(throwable);
+            interruptStages();
+        }
+    }
+
+
+    /**
+     *  Method passes a batch to an analyzer in fan-out mode and records the
+     *  time it takes.
+     *
+     *@param  analyzer  analyzer that consumes the batch
+     *@param  consumer  index of the analyzer among the consumers
+     *@param  monitor   monitor of the analyzers
+     *@param  batch     batch of tokens
+     */
+    private void analyzeMeasured(Analyzer analyzer, int consumer,
+            PerformanceMonitor monitor, TokenBatch batch) {
+
+        if (consumer == 0) {
+            monitor.addTokens(batch.size());
+        }
+
+        long start = System.nanoTime();
+
+        AnalyzerBatchEvent.processTokens(analyzer, batch);
+
+        monitor.addProcessNanos(consumer, System.nanoTime() - start);
+    }
+
+
+    /**
+     *  Method runs the analyze stage. Each batch is passed to the analyzers
+     *  and then released for the tokenize stage to fill again.
+     *
+     *@param  dispatcher                dispatcher that passes the batches to
+     *      the analyzers
+     *@exception  InterruptedException  if the thread is interrupted
+     */
+    private void analyzeBatches(TokenDispatcher dispatcher)
+             throws InterruptedException {
+
+        TokenBatch batch = batches.take();
+
+        while (batch != null) {
+
+            dispatcher.dispatch(batch);
+            batches.release();
+
+            batch = batches.take();
+        }
+    }
+
+
+    /**
+     *  Method runs the read stage on its own thread. It fills free blocks
+     *  from the file and publishes them. A failure is kept for the calling
+     *  thread and stops the other stages. The block ring is always closed,
+     *  so the tokenize stage never waits for a block that will not come.
+     */
+    private void readBlocks() {
+
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath),
+                StandardOpenOption.READ)) {
+
+            boolean endOfFile = false;
+
+            while (!endOfFile) {
+
+                ByteBuffer block = blocks.claim();
+
+                block.clear();
+
+                while (block.hasRemaining() && !endOfFile) {
+                    endOfFile = channel.read(block) < 0;
+                }
+
+                block.flip();
+
+                if (block.hasRemaining()) {
+                    blocks.publish();
+                }
+            }
+
+        } catch (ClosedByInterruptException interrupted) {
+
+            return;
+
+        } catch (IOException ioException) {
+
+            setFailure(ioException);
+
+        } catch (InterruptedException interrupted) {
+
+            return;
+
+        } catch (Throwable throwable) {
+
+            setFailure(throwable);
+            interruptStages();
+
+        } finally {
+            blocks.close();
+        }
+    }
+
+
+    /**
+     *  Method runs the tokenize stage on its own thread. It tokenizes each
+     *  block and releases it to the read stage. A failure is kept for the
+     *  calling thread and stops the other stages, so a partly tokenized file
+     *  is not taken for the whole of it. The batch ring is always closed, so
+     *  the analyze stage never waits for a batch that will not come.
+     *
+     *@param  tokenizer  tokenizer that fills the batches
+     */
+    private void tokenizeBlocks(ByteTokenizer tokenizer) {
+
+        try {
+
+            ByteBuffer block = blocks.take();
+
+            while (block != null) {
+
+                tokenizer.tokenize(block);
+                blocks.release();
+
+                block = blocks.take();
+            }
+
+            if (failure == null) {
+                tokenizer.finish();
+            }
+
+        } catch (InterruptedException interrupted) {
+
+            return;
+
+        } catch (Throwable throwable) {
+
+            setFailure(throwable);
+            interruptStages();
+
+        } finally {
+            batches.close();
+        }
+    }
+
+
+    /**
+     *  Method keeps the first failure of a stage to be thrown on the calling
+     *  thread.
+     *
+     *@param  throwable  failure of a stage
+     */
+    private synchronized void setFailure(Throwable throwable) {
+
+        if (failure == null) {
+            failure = throwable;
+        }
+    }
+
+
+    /**
+     *  BatchFiller class: The handler of the tokenizer in the tokenize
+     *  stage. It claims a free batch from the ring, clears it, fills it with
+     *  tokens and publishes it once it is full or the input is finished. In
+     *  fan-out mode the token ids are resolved before the batch is
+     *  published, since the analyzers share it and must not change it.
+     */
+    private class BatchFiller implements TokenHandler {
+
+        private TokenDictionary dictionary;
+        private TokenBatch batch;
+
+
+        /**
+         *  Constructor for the BatchFiller object
+         *
+         *@param  dictionary  dictionary to resolve the batches with, or null
+         */
+        public BatchFiller(TokenDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+
+        /**
+         *  Method adds a token to the batch being filled.
+         *
+         *@param  buffer  buffer holding the token bytes
+         *@param  offset  index of the first byte of the token
+         *@param  length  number of bytes in the token
+         */
+        public void handleToken(ByteBuffer buffer, int offset, int length) {
+
+            if (batch == null) {
+                batch = claimBatch();
+            }
+
+            batch.addToken(buffer, offset, length);
+
+            if (batch.isFull()) {
+                publishBatch();
+            }
+        }
+
+
+        /**
+         *  Method publishes the last partial batch.
+         */
+        public void finish() {
+
+            if (batch != null) {
+                publishBatch();
+            }
+        }
+
+
+        /**
+         *  Method resolves the batch when the analyzers share it and hands
+         *  it to them.
+         */
+        private void publishBatch() {
+
+            if (dictionary != null) {
+                dictionary.resolveTokens(batch);
+            }
+
+            batches.publish();
+            batch = null;
+        }
+
+
+        /**
+         *  Method claims the next free batch. An interrupt while it waits
+         *  stops the tokenize stage.
+         *
+         *@return    the free batch
+         */
+        private TokenBatch claimBatch() {
+
+            try {
+
+                TokenBatch freeBatch = batches.claim();
+
+                freeBatch.clear();
+
+                return freeBatch;
+
+            } catch (InterruptedException interrupted) {
+
+                Thread.currentThread().interrupt();
+
+                throw new UncheckedIOException(new InterruptedIOException(
+                        "Tokenizing " + inputFilePath + " was interrupted"));
+            }
+        }
+    }
+
+}
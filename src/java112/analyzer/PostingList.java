@@ -0,0 +1,403 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ *  PostingList class: An ascending list of token positions stored without
+ *  boxing. Each position is written as the difference from the previous
+ *  position in a variable length encoding of seven bits per byte, so the
+ *  positions of a frequent keyword take one or two bytes each. When the
+ *  encoded bytes held in memory reach the spill size they are appended to a
+ *  temporary file, so the memory used by a list stays bounded however many
+ *  positions it holds. The positions are read back in order with a
+ *  PositionReader, which streams the temporary file before the bytes still
+ *  held in memory. The temporary file is removed by delete once the
+ *  positions are no longer needed.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class PostingList {
+
+    /** Default number of encoded bytes held in memory before spilling */
+    public final static int DEFAULT_SPILL_SIZE = 1 << 20;
+
+    private final static int INITIAL_DATA_SIZE = 16;
+    private final static int MAXIMUM_ENCODED_SIZE = 10;
+    private final static int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private int spillSize;
+    private byte[] data;
+    private int dataLength;
+    private long size;
+    private long lastPosition;
+    private File spillFile;
+    private long spilledSize;
+
+
+    /**
+     *  Constructor for the PostingList object
+     */
+    public PostingList() {
+        this(DEFAULT_SPILL_SIZE);
+    }
+
+
+    /**
+     *  Constructor for a PostingList that spills to a temporary file once the
+     *  given number of encoded bytes is held in memory.
+     *
+     *@param  spillSize  number of encoded bytes held in memory
+     */
+    public PostingList(int spillSize) {
+
+        this.spillSize = Math.max(spillSize, MAXIMUM_ENCODED_SIZE);
+
+        data = new byte[Math.min(INITIAL_DATA_SIZE, this.spillSize)];
+        dataLength = 0;
+        size = 0;
+        lastPosition = 0;
+        spilledSize = 0;
+    }
+
+
+    /**
+     *  Returns the number of positions in the list.
+     *
+     *@return    The size value
+     */
+    public long size() {
+        return size;
+    }
+
+
+    /**
+     *  Returns the number of bytes of encoded positions held in memory.
+     *
+     *@return    The memory size
+     */
+    public long getMemorySize() {
+        return data.length;
+    }
+
+
+    /**
+     *  Returns the last position added to the list.
+     *
+     *@return    The lastPosition value, or 0 if the list is empty
+     */
+    public long getLastPosition() {
+        return lastPosition;
+    }
+
+
+    /**
+     *  Method adds a position to the end of the list. Positions must be added
+     *  in ascending order.
+     *
+     *@param  position  token position
+     */
+    public void add(long position) {
+
+        if (position < lastPosition) {
+            throw new IllegalArgumentException("Position " + position
+                     + " added after " + lastPosition);
+        }
+
+        if (dataLength + MAXIMUM_ENCODED_SIZE > data.length) {
+            growData();
+        }
+
+        long delta = position - lastPosition;
+
+        while ((delta & ~0x7FL) != 0) {
+            data[dataLength++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+
+        data[dataLength++] = (byte) delta;
+
+        lastPosition = position;
+        size++;
+    }
+
+
+    /**
+     *  Method adds every position of another list to the end of this list,
+     *  each moved on by the given offset.
+     *
+     *@param  other   list to add
+     *@param  offset  amount added to each position of the other list
+     */
+    public void addAll(PostingList other, long offset) {
+
+        PositionReader reader = other.reader();
+
+        try {
+
+            while (reader.hasNext()) {
+                add(reader.nextPosition() + offset);
+            }
+
+        } finally {
+
+            reader.close();
+        }
+    }
+
+
+    /**
+     *  Method writes the number of positions and the difference between each
+     *  position and the one before it to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the positions cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+
+        PositionReader reader = reader();
+        long previousPosition = 0;
+
+        Snapshot.writeNumber(out, size);
+
+        try {
+
+            while (reader.hasNext()) {
+
+                long position = reader.nextPosition();
+
+                Snapshot.writeNumber(out, position - previousPosition);
+                previousPosition = position;
+            }
+
+        } finally {
+
+            reader.close();
+        }
+    }
+
+
+    /**
+     *  Method reads positions written by writeTo and adds them to the end of
+     *  the list.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the positions cannot be read
+     */
+    public void readFrom(DataInput in) throws IOException {
+
+        long count = Snapshot.readNumber(in);
+        long position = 0;
+
+        for (long index = 0; index < count; index++) {
+            position += Snapshot.readNumber(in);
+            add(position);
+        }
+    }
+
+
+    /**
+     *  Method returns a reader that decodes the positions in order.
+     *
+     *@return    new position reader
+     */
+    public PositionReader reader() {
+        return new PositionReader();
+    }
+
+
+    /**
+     *  Method removes every position from the list and deletes the spill
+     *  file, if there is one. The list is empty afterwards and can be used
+     *  again.
+     */
+    public void delete() {
+
+        if (spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+
+        data = new byte[Math.min(INITIAL_DATA_SIZE, spillSize)];
+        dataLength = 0;
+        size = 0;
+        lastPosition = 0;
+        spilledSize = 0;
+    }
+
+
+    /**
+     *  Method makes room for another encoded position, appending the bytes
+     *  held in memory to the spill file once they reach the spill size.
+     */
+    private void growData() {
+
+        if (data.length < spillSize) {
+            data = Arrays.copyOf(data,
+                    Math.min(data.length * 2, spillSize));
+            return;
+        }
+
+        OutputStream out = null;
+
+        try {
+
+            if (spillFile == null) {
+                spillFile = File.createTempFile("postings", ".tmp");
+            }
+
+            out = new FileOutputStream(spillFile, true);
+            out.write(data, 0, dataLength);
+
+        } catch (IOException ioException) {
+
+            throw new UncheckedIOException(ioException);
+
+        } finally {
+
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } catch (IOException ioException) {
+
+                ioException.printStackTrace();
+            }
+        }
+
+        spilledSize = size;
+        dataLength = 0;
+    }
+
+
+    /**
+     *  PositionReader class: Decodes the positions of the list in ascending
+     *  order. Positions in the spill file are streamed through a small
+     *  buffer, so reading a list does not load it into memory. The list must
+     *  not be changed while a reader is in use.
+     */
+    public class PositionReader {
+
+        private InputStream spillInput;
+        private long spillRemaining;
+        private int dataIndex;
+        private int dataEnd;
+        private long remaining;
+        private long position;
+
+
+        /**
+         *  Constructor for the PositionReader object
+         */
+        private PositionReader() {
+
+            remaining = size;
+            spillRemaining = spilledSize;
+            dataIndex = 0;
+            dataEnd = dataLength;
+            position = 0;
+
+            if (spillRemaining > 0) {
+
+                try {
+                    spillInput = new BufferedInputStream(
+                            new FileInputStream(spillFile), STREAM_BUFFER_SIZE);
+                } catch (IOException ioException) {
+
+                    throw new UncheckedIOException(ioException);
+                }
+            }
+        }
+
+
+        /**
+         *  Method determines if there is another position to read.
+         *
+         *@return    true if there is another position
+         */
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+
+        /**
+         *  Method decodes the next position.
+         *
+         *@return    next position
+         */
+        public long nextPosition() {
+
+            long delta = 0;
+            int shift = 0;
+            int value;
+
+            do {
+                value = nextByte();
+                delta |= (long) (value & 0x7F) << shift;
+                shift += 7;
+            } while ((value & 0x80) != 0);
+
+            position += delta;
+            remaining--;
+
+            return position;
+        }
+
+
+        /**
+         *  Method closes the spill file if it is still open.
+         */
+        public void close() {
+
+            try {
+                if (spillInput != null) {
+                    spillInput.close();
+                    spillInput = null;
+                }
+            } catch (IOException ioException) {
+
+                ioException.printStackTrace();
+            }
+        }
+
+
+        /**
+         *  Method reads the next encoded byte, first from the spill file and
+         *  then from memory.
+         *
+         *@return    next encoded byte
+         */
+        private int nextByte() {
+
+            if (spillRemaining > 0) {
+
+                try {
+
+                    int value = spillInput.read();
+
+                    if (value < 0) {
+                        throw new EOFException(spillFile.getPath());
+                    }
+
+                    if ((value & 0x80) == 0 && --spillRemaining == 0) {
+                        close();
+                    }
+
+                    return value;
+
+                } catch (IOException ioException) {
+
+                    throw new UncheckedIOException(ioException);
+                }
+            }
+
+            if (dataIndex >= dataEnd) {
+                throw new IllegalStateException("No more positions");
+            }
+
+            return data[dataIndex++];
+        }
+    }
+
+}
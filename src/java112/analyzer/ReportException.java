@@ -0,0 +1,86 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ *  ReportException class: Thrown when one or more reports of an analyzer
+ *  set could not be written. The other reports are still written, and each
+ *  failure is kept as a suppressed exception and listed in the message, so
+ *  every failed report is reported at once.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class ReportException extends IOException {
+
+    private final static long serialVersionUID = 1L;
+
+    private int reportCount;
+    private List<Throwable> failures;
+
+
+    /**
+     *  Constructor for the ReportException object
+     *
+     *@param  reportCount  number of reports that were attempted
+     *@param  failures     failure of each report that could not be written
+     */
+    public ReportException(int reportCount, List<Throwable> failures) {
+
+        super(describe(reportCount, failures));
+
+        this.reportCount = reportCount;
+        this.failures = failures;
+
+        for (Throwable failure : failures) {
+            addSuppressed(failure);
+        }
+    }
+
+
+    /**
+     *  Returns the number of reports that were attempted, including the
+     *  ones that failed.
+     *
+     *@return    The reportCount value
+     */
+    public int getReportCount() {
+        return reportCount;
+    }
+
+
+    /**
+     *  Returns the failure of each report that could not be written.
+     *
+     *@return    The failures value
+     */
+    public List<Throwable> getFailures() {
+        return failures;
+    }
+
+
+    /**
+     *  Method builds the message, with one line for each failure.
+     *
+     *@param  reportCount  number of reports that were attempted
+     *@param  failures     failure of each report that could not be written
+     *@return              the message
+     */
+    private static String describe(int reportCount, List<Throwable> failures) {
+
+        StringBuilder message = new StringBuilder();
+
+        message.append(failures.size()).append(" of ").append(reportCount)
+                .append(" reports could not be written:");
+
+        for (Throwable failure : failures) {
+            message.append(System.lineSeparator()).append("    ")
+                    .append(failure.getMessage() == null ? failure.toString()
+                     : failure.getMessage());
+        }
+
+        return message.toString();
+    }
+
+}
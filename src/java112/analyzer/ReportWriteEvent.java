@@ -0,0 +1,42 @@
+package java112.analyzer;
+
+import jdk.jfr.*;
+
+/**
+ *  ReportWriteEvent class: A Java Flight Recorder event for writing the
+ *  report of one analyzer. The event lasts as long as the report is
+ *  written.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@Name("java112.analyzer.ReportWrite")
+@Label("Report Write")
+@Category("Document Analyzer")
+@Description("Writing the report of one analyzer")
+@StackTrace(false)
+public class ReportWriteEvent extends Event {
+
+    @Label("Report")
+    private String report;
+
+    @Label("Input File")
+    private String inputFile;
+
+
+    /**
+     *  Constructor for the ReportWriteEvent object. The event starts when it
+     *  is created.
+     *
+     *@param  analyzer   analyzer whose report is written
+     *@param  inputFile  input file path of the report
+     */
+    public ReportWriteEvent(Analyzer analyzer, String inputFile) {
+
+        report = analyzer.getClass().getSimpleName();
+        this.inputFile = inputFile;
+
+        begin();
+    }
+
+}
@@ -0,0 +1,402 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ *  ReportWriter class: Writes a report file through a FileChannel. Text is
+ *  encoded straight into a large byte buffer that is reused by every report
+ *  written on the same thread, and numbers and token bytes are copied into
+ *  the buffer without building Strings, so the time to write a report only
+ *  grows with its size. Reports are written in UTF-8. A report is written
+ *  to a temporary file in the output directory that replaces the report
+ *  file when it is closed, so a report that is rewritten while the input is
+ *  still being read is never seen half written. The static writeReport
+ *  method opens the file, has the report body write to it and moves it
+ *  into place, or removes it and passes the failure on, so the analyzers
+ *  only write their content. Each thread has its own buffer, so several
+ *  reports can be written at the same time.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class ReportWriter implements Closeable {
+
+    /** Character set of the report files */
+    public final static Charset REPORT_CHARSET = StandardCharsets.UTF_8;
+
+    private final static int BUFFER_SIZE = 256 * 1024;
+    private final static int MAXIMUM_DIGITS = 20;
+
+    private final static byte[] LINE_SEPARATOR
+             = System.lineSeparator().getBytes(REPORT_CHARSET);
+
+    private final static ThreadLocal<ByteBuffer> BUFFERS
+             = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private Path outputPath;
+    private Path temporaryPath;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private byte[] digits;
+
+
+    /**
+     *  Body interface: The content of a report.
+     */
+    public interface Body {
+
+        /**
+         *  Method writes the content of the report.
+         *
+         *@param  out              report writer
+         *@exception  IOException  if the report cannot be written
+         */
+        void write(ReportWriter out) throws IOException;
+    }
+
+
+    /**
+     *  Constructor for the ReportWriter object. The report is written to a
+     *  new temporary file next to the report file.
+     *
+     *@param  outputFilePath   path of the report file
+     *@exception  IOException  if the file cannot be opened
+     */
+    public ReportWriter(String outputFilePath) throws IOException {
+
+        outputPath = Paths.get(outputFilePath).toAbsolutePath();
+        temporaryPath = outputPath.resolveSibling(outputPath.getFileName()
+                 + "." + Thread.currentThread().getId() + "."
+                 + System.nanoTime() + ".tmp");
+        channel = FileChannel.open(temporaryPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        buffer = BUFFERS.get();
+        buffer.clear();
+        digits = new byte[MAXIMUM_DIGITS];
+    }
+
+
+    /**
+     *  Method writes a report file. When the report cannot be written its
+     *  temporary file is removed, any earlier report file is left in place
+     *  and the failure is thrown, with an IOException wrapped in an
+     *  UncheckedIOException that names the report file.
+     *
+     *@param  outputFilePath  path of the report file
+     *@param  body            content of the report
+     */
+    public static void writeReport(String outputFilePath, Body body) {
+
+        ReportWriter out = null;
+
+        try {
+
+            out = new ReportWriter(outputFilePath);
+
+            body.write(out);
+
+            out.close();
+            out = null;
+
+        } catch (IOException ioException) {
+
+            throw new UncheckedIOException("Cannot write " + outputFilePath
+                     + ": " + ioException, ioException);
+
+        } finally {
+
+            try {
+                if (out != null) {
+                    out.abort();
+                }
+            } catch (IOException abortException) {
+
+                abortException.printStackTrace();
+            }
+
+        }
+    }
+
+
+    /**
+     *  Method writes a String.
+     *
+     *@param  text             text to write
+     *@exception  IOException  if the text cannot be written
+     */
+    public void print(String text) throws IOException {
+
+        for (int index = 0; index < text.length(); index++) {
+
+            char character = text.charAt(index);
+
+            if (character >= 0x80) {
+                printEncoded(text.substring(index));
+                return;
+            }
+
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+
+            buffer.put((byte) character);
+        }
+    }
+
+
+    /**
+     *  Method writes a character a number of times.
+     *
+     *@param  character        ASCII character to write
+     *@param  count            number of times to write it
+     *@exception  IOException  if the characters cannot be written
+     */
+    public void print(char character, int count) throws IOException {
+
+        for (int index = 0; index < count; index++) {
+
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+
+            buffer.put((byte) character);
+        }
+    }
+
+
+    /**
+     *  Method writes a number in decimal.
+     *
+     *@param  value            number to write
+     *@exception  IOException  if the number cannot be written
+     */
+    public void print(long value) throws IOException {
+
+        if (value == Long.MIN_VALUE) {
+            print(String.valueOf(value));
+            return;
+        }
+
+        int start = digits.length;
+        long remaining = Math.abs(value);
+
+        do {
+            digits[--start] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+
+        if (value < 0) {
+            digits[--start] = '-';
+        }
+
+        print(digits, start, digits.length - start);
+    }
+
+
+    /**
+     *  Method writes bytes that are already encoded, such as the bytes of a
+     *  token.
+     *
+     *@param  data             array holding the bytes
+     *@param  offset           index of the first byte
+     *@param  length           number of bytes
+     *@exception  IOException  if the bytes cannot be written
+     */
+    public void print(byte[] data, int offset, int length) throws IOException {
+
+        while (length > 0) {
+
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+
+            int count = Math.min(length, buffer.remaining());
+
+            buffer.put(data, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+
+    /**
+     *  Method writes an int as four bytes, high byte first.
+     *
+     *@param  value            number to write
+     *@exception  IOException  if the number cannot be written
+     */
+    public void writeInt(int value) throws IOException {
+
+        if (buffer.remaining() < Integer.BYTES) {
+            flushBuffer();
+        }
+
+        buffer.putInt(value);
+    }
+
+
+    /**
+     *  Method writes a long as eight bytes, high byte first.
+     *
+     *@param  value            number to write
+     *@exception  IOException  if the number cannot be written
+     */
+    public void writeLong(long value) throws IOException {
+
+        if (buffer.remaining() < Long.BYTES) {
+            flushBuffer();
+        }
+
+        buffer.putLong(value);
+    }
+
+
+    /**
+     *  Method copies the whole content of a file into the report. The bytes
+     *  are transferred from channel to channel without passing through the
+     *  buffer.
+     *
+     *@param  file             file to copy
+     *@exception  IOException  if the file cannot be copied
+     */
+    public void writeFile(Path file) throws IOException {
+
+        flushBuffer();
+
+        try (FileChannel input = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+
+            long size = input.size();
+            long position = 0;
+
+            while (position < size) {
+                position += input.transferTo(position, size - position,
+                        channel);
+            }
+        }
+    }
+
+
+    /**
+     *  Method writes the token of a dictionary id.
+     *
+     *@param  dictionary       token dictionary
+     *@param  id               id of the token
+     *@exception  IOException  if the token cannot be written
+     */
+    public void printToken(TokenDictionary dictionary, int id)
+             throws IOException {
+
+        print(dictionary.getKeyData(), dictionary.getKeyOffset(id),
+                dictionary.getKeyLength(id));
+    }
+
+
+    /**
+     *  Method ends the current line.
+     *
+     *@exception  IOException  if the line separator cannot be written
+     */
+    public void println() throws IOException {
+        print(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+    }
+
+
+    /**
+     *  Method writes a String and ends the line.
+     *
+     *@param  text             text to write
+     *@exception  IOException  if the text cannot be written
+     */
+    public void println(String text) throws IOException {
+
+        print(text);
+        println();
+    }
+
+
+    /**
+     *  Method writes any buffered bytes, closes the temporary file and moves
+     *  it over the report file.
+     *
+     *@exception  IOException  if the file cannot be written or moved
+     */
+    public void close() throws IOException {
+
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+
+        try {
+            Files.move(temporaryPath, outputPath,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException notSupported) {
+            Files.move(temporaryPath, outputPath,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     *  Method closes and deletes the temporary file, leaving any earlier
+     *  report file in place.
+     *
+     *@exception  IOException  if the temporary file cannot be deleted
+     */
+    public void abort() throws IOException {
+
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+
+    /**
+     *  Method encodes text that is not plain ASCII and writes it.
+     *
+     *@param  text             text to write
+     *@exception  IOException  if the text cannot be written
+     */
+    private void printEncoded(String text) throws IOException {
+
+        byte[] encoded = text.getBytes(REPORT_CHARSET);
+
+        print(encoded, 0, encoded.length);
+    }
+
+
+    /**
+     *  Method writes the buffered bytes to the channel.
+     *
+     *@exception  IOException  if the bytes cannot be written
+     */
+    private void flushBuffer() throws IOException {
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+}
@@ -0,0 +1,264 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ *  Snapshot class: Saves the state of a set of analyzers to a binary file
+ *  and loads it back, so a long analysis can be continued with more input
+ *  later, and the reports can be written again without reading the input
+ *  documents. The file starts with a magic number and a format version,
+ *  followed by one section for each analyzer: the analyzer class name, the
+ *  state itself and the magic number again, which shows that the state was
+ *  read back exactly. Sections are streamed, so the state of an analyzer
+ *  does not have to fit in memory as bytes. Each analyzer writes its own
+ *  state; numbers are written as variable length integers and sorted token
+ *  lists share the prefix of the previous token, which keeps snapshots of
+ *  large vocabularies small.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class Snapshot {
+
+    /** Number at the start of every snapshot file ("DASN") */
+    public final static int MAGIC = 0x4441534E;
+
+    /** Version of the snapshot format */
+    public final static int VERSION = 1;
+
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     *  Constructor for the Snapshot object
+     */
+    private Snapshot() {
+    }
+
+
+    /**
+     *  Method writes the state of every analyzer of the set to a snapshot
+     *  file. The file is written next to the snapshot path and moved over it
+     *  when it is complete.
+     *
+     *@param  analyzers        analyzer set to save
+     *@param  snapshotPath     path of the snapshot file
+     *@exception  IOException  if the snapshot cannot be written
+     */
+    public static void write(AnalyzerSet analyzers, String snapshotPath)
+             throws IOException {
+
+        Path outputPath = Paths.get(snapshotPath).toAbsolutePath();
+        Path temporaryPath = outputPath.resolveSibling(outputPath.getFileName()
+                 + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryPath),
+                BUFFER_SIZE))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(analyzers.getAnalyzers().size());
+
+            for (Analyzer analyzer : analyzers.getAnalyzers()) {
+
+                out.writeUTF(analyzer.getClass().getName());
+                analyzer.writeState(out);
+                out.writeInt(MAGIC);
+            }
+        }
+
+        Files.move(temporaryPath, outputPath,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     *  Method loads a snapshot file into a new set of analyzers. The set must
+     *  hold the same analyzers, in the same order, as the set that was
+     *  saved.
+     *
+     *@param  analyzers        new analyzer set to load into
+     *@param  snapshotPath     path of the snapshot file
+     *@exception  IOException  if the snapshot cannot be read or does not
+     *      match the set
+     */
+    public static void read(AnalyzerSet analyzers, String snapshotPath)
+             throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(Paths.get(snapshotPath)), BUFFER_SIZE))) {
+
+            if (in.readInt() != MAGIC) {
+                throw new IOException(snapshotPath + " is not a snapshot");
+            }
+
+            int version = in.readInt();
+
+            if (version != VERSION) {
+                throw new IOException(snapshotPath + " has snapshot version "
+                         + version + ", expected " + VERSION);
+            }
+
+            int analyzerCount = in.readInt();
+
+            if (analyzerCount != analyzers.getAnalyzers().size()) {
+                throw new IOException(snapshotPath + " holds "
+                         + analyzerCount + " analyzers, expected "
+                         + analyzers.getAnalyzers().size());
+            }
+
+            for (Analyzer analyzer : analyzers.getAnalyzers()) {
+
+                String className = in.readUTF();
+
+                if (!className.equals(analyzer.getClass().getName())) {
+                    throw new IOException(snapshotPath + " holds " + className
+                             + " where " + analyzer.getClass().getName()
+                             + " was expected");
+                }
+
+                analyzer.readState(in);
+
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(snapshotPath + " has a damaged "
+                             + className + " section");
+                }
+            }
+        }
+    }
+
+
+    /**
+     *  Method writes a number that is zero or more in seven bit groups, so
+     *  small numbers take a single byte.
+     *
+     *@param  out              state output
+     *@param  value            number to write
+     *@exception  IOException  IO Exception
+     */
+    public static void writeNumber(DataOutput out, long value)
+             throws IOException {
+
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.writeByte((int) value);
+    }
+
+
+    /**
+     *  Method reads a number written by writeNumber.
+     *
+     *@param  in               state input
+     *@return                  the number
+     *@exception  IOException  IO Exception
+     */
+    public static long readNumber(DataInput in) throws IOException {
+
+        long value = 0;
+        int shift = 0;
+        int next;
+
+        do {
+
+            if (shift > 63) {
+                throw new IOException("Malformed number in snapshot");
+            }
+
+            next = in.readUnsignedByte();
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+
+        } while ((next & 0x80) != 0);
+
+        return value;
+    }
+
+
+    /**
+     *  Method writes the tokens of a list of ids sorted by token. Each token
+     *  is written as the number of bytes it shares with the previous token
+     *  and the bytes that follow.
+     *
+     *@param  out              state output
+     *@param  dictionary       dictionary the ids belong to
+     *@param  sortedIds        ids sorted by token
+     *@exception  IOException  IO Exception
+     */
+    public static void writeTokens(DataOutput out, TokenDictionary dictionary,
+            int[] sortedIds) throws IOException {
+
+        byte[] keyData = dictionary.getKeyData();
+        int previousOffset = 0;
+        int previousLength = 0;
+
+        writeNumber(out, sortedIds.length);
+
+        for (int id : sortedIds) {
+
+            int offset = dictionary.getKeyOffset(id);
+            int length = dictionary.getKeyLength(id);
+            int shared = 0;
+
+            while (shared < length && shared < previousLength
+                     && keyData[offset + shared]
+                     == keyData[previousOffset + shared]) {
+                shared++;
+            }
+
+            writeNumber(out, shared);
+            writeNumber(out, length - shared);
+            out.write(keyData, offset + shared, length - shared);
+
+            previousOffset = offset;
+            previousLength = length;
+        }
+    }
+
+
+    /**
+     *  Method reads tokens written by writeTokens and adds them to a
+     *  dictionary.
+     *
+     *@param  in               state input
+     *@param  dictionary       dictionary to add the tokens to
+     *@return                  ids of the tokens in the order they were read
+     *@exception  IOException  IO Exception
+     */
+    public static int[] readTokens(DataInput in, TokenDictionary dictionary)
+             throws IOException {
+
+        int[] ids = new int[Math.toIntExact(readNumber(in))];
+        byte[] token = new byte[64];
+        int tokenLength = 0;
+
+        for (int index = 0; index < ids.length; index++) {
+
+            int shared = Math.toIntExact(readNumber(in));
+            int suffixLength = Math.toIntExact(readNumber(in));
+
+            if (shared > tokenLength) {
+                throw new IOException("Malformed token list in snapshot");
+            }
+
+            tokenLength = shared + suffixLength;
+
+            if (tokenLength > token.length) {
+                token = Arrays.copyOf(token, Math.max(token.length * 2,
+                        tokenLength));
+            }
+
+            in.readFully(token, shared, suffixLength);
+
+            ids[index] = dictionary.add(token, 0, tokenLength);
+        }
+
+        return ids;
+    }
+
+}
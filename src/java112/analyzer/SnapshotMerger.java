@@ -0,0 +1,138 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ *  SnapshotMerger class: Combines analyzer snapshots and writes the reports
+ *  for them without reading any input documents. The snapshots are merged
+ *  in the order they are given, as if their inputs had been read one after
+ *  another as separate documents. Given a single snapshot it simply writes
+ *  its reports. When the snapshot.save property is set the merged state is
+ *  also saved as a new snapshot, so daily snapshots can be rolled up into
+ *  one.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class SnapshotMerger {
+
+    private final static int MINIMUM_ARGUMENT_COUNT = 2;
+
+    private Properties properties;
+    private KeywordMatcher keywordMatcher;
+
+
+    /**
+     *  The main program for the SnapshotMerger class. The arguments are the
+     *  properties configuration file path followed by one or more snapshot
+     *  paths.
+     *
+     *@param  arguments  command line arguments
+     */
+    public static void main(String[] arguments) {
+
+        if (arguments.length < MINIMUM_ARGUMENT_COUNT) {
+            System.out.println("Enter the properties configuration file path "
+                     + "and one or more snapshot file paths.");
+            return;
+        }
+
+        Properties properties = new Properties();
+
+        try {
+            properties.load(
+                    SnapshotMerger.class.getResourceAsStream(arguments[0]));
+        } catch (IOException ioe) {
+            System.out.println("Can't load the properties file");
+            ioe.printStackTrace();
+            return;
+        } catch (Exception e) {
+            System.out.println("Problem: " + e);
+            e.printStackTrace();
+            return;
+        }
+
+        List<String> snapshotPaths = Arrays.asList(arguments).subList(1,
+                arguments.length);
+
+        try {
+
+            new SnapshotMerger(properties).merge(snapshotPaths).close();
+
+        } catch (ReportException reportException) {
+
+            System.err.println(reportException.getMessage());
+
+        } catch (IOException ioException) {
+
+            ioException.printStackTrace();
+        }
+    }
+
+
+    /**
+     *  Constructor for the SnapshotMerger object
+     *
+     *@param  properties  Properties object
+     */
+    public SnapshotMerger(Properties properties) {
+
+        this.properties = properties;
+
+        keywordMatcher = KeywordMatcher.load(properties);
+    }
+
+
+    /**
+     *  Method loads and merges the snapshots, saves the merged snapshot if
+     *  snapshot.save is set, and writes every report.
+     *
+     *@param  snapshotPaths    snapshot paths in input order
+     *@return                  the merged analyzers, which the caller
+     *      closes once it is done with them
+     *@exception  IOException  if a snapshot cannot be read or written, or
+     *      a report cannot be written
+     */
+    public AnalyzerSet merge(List<String> snapshotPaths) throws IOException {
+
+        AnalyzerSet merged = null;
+
+        for (String snapshotPath : snapshotPaths) {
+
+            AnalyzerSet analyzers = new AnalyzerSet(properties,
+                    keywordMatcher);
+
+            Snapshot.read(analyzers, snapshotPath);
+            analyzers.finishDocument();
+
+            if (merged == null) {
+                merged = analyzers;
+            } else {
+                merged.merge(analyzers);
+            }
+        }
+
+        String savePath = properties.getProperty("snapshot.save");
+
+        if (savePath != null) {
+            Snapshot.write(merged, savePath);
+        }
+
+        ExecutorService reportExecutor = AnalyzerSet.createReportExecutor(
+                properties);
+
+        try {
+            merged.writeOutputFiles(String.join(" ", snapshotPaths),
+                    reportExecutor);
+        } finally {
+            reportExecutor.shutdown();
+        }
+
+        System.out.println("Files generated.");
+
+        return merged;
+    }
+
+}
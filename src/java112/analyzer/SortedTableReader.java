@@ -0,0 +1,262 @@
+package java112.analyzer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ *  SortedTableReader class: Reads a sorted string table written by
+ *  SortedTableWriter. Each section of the file is memory mapped and read
+ *  in place: a token is found with a binary search that compares the
+ *  mapped token bytes, and counts and positions are read straight from the
+ *  mapped arrays, so opening a table does not depend on its size. Each
+ *  section can be at most 2 GB.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class SortedTableReader {
+
+    private int kind;
+    private int tokenCount;
+    private long positionCount;
+    private LongBuffer offsets;
+    private LongBuffer values;
+    private LongBuffer positions;
+    private ByteBuffer strings;
+
+
+    /**
+     *  Constructor for the SortedTableReader object
+     *
+     *@param  tablePath        path of the table file
+     *@exception  IOException  if the file cannot be mapped or is not a
+     *      sorted string table
+     */
+    public SortedTableReader(String tablePath) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(Paths.get(tablePath),
+                StandardOpenOption.READ)) {
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), SortedTableWriter.HEADER_SIZE));
+
+            if (header.limit() < SortedTableWriter.HEADER_SIZE
+                     || header.getInt(0) != SortedTableWriter.MAGIC) {
+                throw new IOException(tablePath
+                         + " is not a sorted string table");
+            }
+
+            if (header.getInt(4) != SortedTableWriter.VERSION) {
+                throw new IOException(tablePath + " has table version "
+                         + header.getInt(4) + ", expected "
+                         + SortedTableWriter.VERSION);
+            }
+
+            kind = header.getInt(8);
+            tokenCount = Math.toIntExact(header.getLong(16));
+            positionCount = header.getLong(24);
+
+            long offsetsStart = header.getLong(32);
+            long valuesStart = header.getLong(40);
+            long positionsStart = header.getLong(48);
+            long stringsStart = header.getLong(56);
+            long fileLength = header.getLong(64);
+
+            if (fileLength != channel.size()) {
+                throw new IOException(tablePath + " is " + channel.size()
+                         + " bytes long, expected " + fileLength);
+            }
+
+            offsets = mapLongs(channel, offsetsStart, tokenCount + 1L);
+
+            if (kind == SortedTableWriter.TOKEN_COUNTS) {
+                values = mapLongs(channel, valuesStart, tokenCount);
+            } else if (kind == SortedTableWriter.TOKEN_POSITIONS) {
+                values = mapLongs(channel, valuesStart, tokenCount + 1L);
+                positions = mapLongs(channel, positionsStart, positionCount);
+            }
+
+            strings = channel.map(FileChannel.MapMode.READ_ONLY,
+                    stringsStart, fileLength - stringsStart);
+        }
+    }
+
+
+    /**
+     *  Returns the kind of table: SortedTableWriter.TOKEN_SET, TOKEN_COUNTS
+     *  or TOKEN_POSITIONS.
+     *
+     *@return    The kind value
+     */
+    public int getKind() {
+        return kind;
+    }
+
+
+    /**
+     *  Returns the number of tokens in the table.
+     *
+     *@return    The tokenCount value
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+
+    /**
+     *  Returns the number of positions in a position table.
+     *
+     *@return    The positionCount value
+     */
+    public long getPositionCount() {
+        return positionCount;
+    }
+
+
+    /**
+     *  Returns the token at an index.
+     *
+     *@param  index  index of the token in sorted order
+     *@return        The token value
+     */
+    public String getToken(int index) {
+
+        int start = (int) offsets.get(index);
+        byte[] token = new byte[(int) offsets.get(index + 1) - start];
+
+        strings.get(start, token);
+
+        return new String(token, TokenBatch.TOKEN_CHARSET);
+    }
+
+
+    /**
+     *  Method finds the index of a token with a binary search.
+     *
+     *@param  token  String token
+     *@return        index of the token, or -1 if it is not in the table
+     */
+    public int find(String token) {
+
+        byte[] tokenBytes = token.getBytes(TokenBatch.TOKEN_CHARSET);
+
+        return find(tokenBytes, 0, tokenBytes.length);
+    }
+
+
+    /**
+     *  Method finds the index of a token with a binary search.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         index of the token, or -1 if it is not in the table
+     */
+    public int find(byte[] data, int offset, int length) {
+
+        int low = 0;
+        int high = tokenCount - 1;
+
+        while (low <= high) {
+
+            int middle = (low + high) >>> 1;
+            int order = compareToken(middle, data, offset, length);
+
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     *  Returns the count of the token at an index of a count table.
+     *
+     *@param  index  index of the token
+     *@return        The count value
+     */
+    public long getCount(int index) {
+        return values.get(index);
+    }
+
+
+    /**
+     *  Returns the number of positions of the token at an index of a
+     *  position table.
+     *
+     *@param  index  index of the token
+     *@return        number of positions
+     */
+    public int getPositionCount(int index) {
+        return (int) (values.get(index + 1) - values.get(index));
+    }
+
+
+    /**
+     *  Returns one position of the token at an index of a position table.
+     *
+     *@param  index     index of the token
+     *@param  position  index of the position in the list of the token
+     *@return           The position value
+     */
+    public long getPosition(int index, int position) {
+        return positions.get((int) values.get(index) + position);
+    }
+
+
+    /**
+     *  Method compares the token at an index with the given bytes as
+     *  unsigned bytes.
+     *
+     *@param  index   index of a token
+     *@param  data    array holding the other token bytes
+     *@param  offset  index of the first byte of the other token
+     *@param  length  number of bytes in the other token
+     *@return         negative, zero or positive as the token at the index
+     *      sorts before, with or after the other token
+     */
+    private int compareToken(int index, byte[] data, int offset, int length) {
+
+        int start = (int) offsets.get(index);
+        int tokenLength = (int) offsets.get(index + 1) - start;
+        int commonLength = Math.min(tokenLength, length);
+
+        for (int byteIndex = 0; byteIndex < commonLength; byteIndex++) {
+
+            int order = Integer.compare(strings.get(start + byteIndex) & 0xFF,
+                    data[offset + byteIndex] & 0xFF);
+
+            if (order != 0) {
+                return order;
+            }
+        }
+
+        return Integer.compare(tokenLength, length);
+    }
+
+
+    /**
+     *  Method maps a section of longs.
+     *
+     *@param  channel          table file
+     *@param  start            file offset of the section
+     *@param  count            number of longs in the section
+     *@return                  the mapped longs
+     *@exception  IOException  if the section cannot be mapped
+     */
+    private static LongBuffer mapLongs(FileChannel channel, long start,
+            long count) throws IOException {
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, start,
+                Math.multiplyExact(count, Long.BYTES)).asLongBuffer();
+    }
+
+}
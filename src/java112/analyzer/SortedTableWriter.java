@@ -0,0 +1,325 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ *  SortedTableWriter class: Writes a report as a sorted string table, a
+ *  binary file that a consumer can memory map and search without parsing.
+ *  Tokens are added in ascending byte order. The file starts with a header
+ *  of 80 bytes: the magic number, the format version, the kind of table,
+ *  the number of tokens, the number of positions, the file offset of each
+ *  section and the length of the file. Then come the sections, all made of big
+ *  endian longs and starting on an eight byte boundary: the offset index,
+ *  which has the offset of every token in the string data and the end of
+ *  the string data, so token i is the bytes from entry i to entry i + 1;
+ *  for a count table the count of every token; for a position table the
+ *  index of the first position of every token and the end of the
+ *  positions, followed by all the positions. The string data, holding the
+ *  token bytes one after another, comes last. A token is found with a
+ *  binary search over the offset index. The sections are staged in
+ *  temporary files while the tokens are added, since their sizes are not
+ *  known in advance, and are copied into the report when it is written.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class SortedTableWriter implements Closeable {
+
+    /** Output format property value that selects a sorted string table */
+    public final static String BINARY_FORMAT = "binary";
+
+    /** Number at the start of every table ("DAST") */
+    public final static int MAGIC = 0x44415354;
+
+    /** Version of the table format */
+    public final static int VERSION = 1;
+
+    /** Table of tokens only */
+    public final static int TOKEN_SET = 1;
+
+    /** Table of tokens with a count for each */
+    public final static int TOKEN_COUNTS = 2;
+
+    /** Table of tokens with a list of positions for each */
+    public final static int TOKEN_POSITIONS = 3;
+
+    /** Number of bytes in the header */
+    public final static int HEADER_SIZE = 80;
+
+    private final static int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private int kind;
+    private long tokenCount;
+    private long positionCount;
+    private long stringSize;
+    private byte[] previousToken;
+    private int previousLength;
+    private List<File> sectionFiles;
+    private DataOutputStream strings;
+    private DataOutputStream offsets;
+    private DataOutputStream values;
+    private DataOutputStream positions;
+
+
+    /**
+     *  Constructor for the SortedTableWriter object
+     *
+     *@param  kind             TOKEN_SET, TOKEN_COUNTS or TOKEN_POSITIONS
+     *@exception  IOException  if the section files cannot be created
+     */
+    public SortedTableWriter(int kind) throws IOException {
+
+        if (kind < TOKEN_SET || kind > TOKEN_POSITIONS) {
+            throw new IllegalArgumentException("Unknown table kind " + kind);
+        }
+
+        this.kind = kind;
+
+        previousToken = new byte[64];
+        previousLength = -1;
+        sectionFiles = new ArrayList<File>();
+
+        strings = createSection();
+        offsets = createSection();
+
+        if (kind != TOKEN_SET) {
+            values = createSection();
+        }
+
+        if (kind == TOKEN_POSITIONS) {
+            positions = createSection();
+        }
+
+        offsets.writeLong(0);
+    }
+
+
+    /**
+     *  Method determines if a report is to be written as a sorted string
+     *  table from its output format property.
+     *
+     *@param  properties      Properties object
+     *@param  formatProperty  name of the output format property
+     *@return                 true if the format is binary
+     */
+    public static boolean isBinary(Properties properties,
+            String formatProperty) {
+
+        return BINARY_FORMAT.equals(properties.getProperty(formatProperty));
+    }
+
+
+    /**
+     *  Method adds a token to a TOKEN_SET table.
+     *
+     *@param  data             array holding the token bytes
+     *@param  offset           index of the first byte of the token
+     *@param  length           number of bytes in the token
+     *@exception  IOException  if the token cannot be written
+     */
+    public void addToken(byte[] data, int offset, int length)
+             throws IOException {
+
+        checkKind(TOKEN_SET);
+        writeToken(data, offset, length);
+    }
+
+
+    /**
+     *  Method adds a token and its count to a TOKEN_COUNTS table.
+     *
+     *@param  data             array holding the token bytes
+     *@param  offset           index of the first byte of the token
+     *@param  length           number of bytes in the token
+     *@param  count            count of the token
+     *@exception  IOException  if the token cannot be written
+     */
+    public void addToken(byte[] data, int offset, int length, long count)
+             throws IOException {
+
+        checkKind(TOKEN_COUNTS);
+        writeToken(data, offset, length);
+        values.writeLong(count);
+    }
+
+
+    /**
+     *  Method adds a token and its positions to a TOKEN_POSITIONS table.
+     *
+     *@param  data             array holding the token bytes
+     *@param  offset           index of the first byte of the token
+     *@param  length           number of bytes in the token
+     *@param  tokenPositions   positions of the token
+     *@exception  IOException  if the token cannot be written
+     */
+    public void addToken(byte[] data, int offset, int length,
+            PostingList tokenPositions) throws IOException {
+
+        checkKind(TOKEN_POSITIONS);
+        writeToken(data, offset, length);
+        values.writeLong(positionCount);
+
+        PostingList.PositionReader reader = tokenPositions.reader();
+
+        try {
+
+            while (reader.hasNext()) {
+                positions.writeLong(reader.nextPosition());
+                positionCount++;
+            }
+
+        } finally {
+
+            reader.close();
+        }
+    }
+
+
+    /**
+     *  Method writes the header and the sections to a report.
+     *
+     *@param  out              report writer
+     *@exception  IOException  if the table cannot be written
+     */
+    public void writeTo(ReportWriter out) throws IOException {
+
+        if (kind == TOKEN_POSITIONS) {
+            values.writeLong(positionCount);
+        }
+
+        for (DataOutputStream section : Arrays.asList(strings, offsets,
+                values, positions)) {
+
+            if (section != null) {
+                section.close();
+            }
+        }
+
+        long offsetsStart = HEADER_SIZE;
+        long valuesStart = offsetsStart + (tokenCount + 1) * Long.BYTES;
+        long positionsStart = valuesStart;
+
+        if (kind == TOKEN_COUNTS) {
+            positionsStart = valuesStart + tokenCount * Long.BYTES;
+        } else if (kind == TOKEN_POSITIONS) {
+            positionsStart = valuesStart + (tokenCount + 1) * Long.BYTES;
+        }
+
+        long stringsStart = positionsStart + positionCount * Long.BYTES;
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(kind);
+        out.writeInt(0);
+        out.writeLong(tokenCount);
+        out.writeLong(positionCount);
+        out.writeLong(offsetsStart);
+        out.writeLong(kind == TOKEN_SET ? 0 : valuesStart);
+        out.writeLong(kind == TOKEN_POSITIONS ? positionsStart : 0);
+        out.writeLong(stringsStart);
+        out.writeLong(stringsStart + stringSize);
+        out.writeLong(0);
+
+        out.writeFile(sectionFiles.get(1).toPath());
+
+        for (int section = 2; section < sectionFiles.size(); section++) {
+            out.writeFile(sectionFiles.get(section).toPath());
+        }
+
+        out.writeFile(sectionFiles.get(0).toPath());
+    }
+
+
+    /**
+     *  Method closes and deletes the section files.
+     *
+     *@exception  IOException  if a section file cannot be closed
+     */
+    public void close() throws IOException {
+
+        try {
+
+            for (DataOutputStream section : Arrays.asList(strings, offsets,
+                    values, positions)) {
+
+                if (section != null) {
+                    section.close();
+                }
+            }
+
+        } finally {
+
+            for (File sectionFile : sectionFiles) {
+                sectionFile.delete();
+            }
+        }
+    }
+
+
+    /**
+     *  Method creates a temporary file for a section.
+     *
+     *@return                  output stream of the section
+     *@exception  IOException  if the file cannot be created
+     */
+    private DataOutputStream createSection() throws IOException {
+
+        File sectionFile = File.createTempFile("table", ".tmp");
+
+        sectionFiles.add(sectionFile);
+
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(sectionFile), STREAM_BUFFER_SIZE));
+    }
+
+
+    /**
+     *  Method checks that a token is added the way the kind of table needs.
+     *
+     *@param  expectedKind  kind of table the token belongs to
+     */
+    private void checkKind(int expectedKind) {
+
+        if (kind != expectedKind) {
+            throw new IllegalStateException("Table of kind " + kind
+                     + " cannot hold tokens of kind " + expectedKind);
+        }
+    }
+
+
+    /**
+     *  Method adds the bytes of a token to the string data and its end to
+     *  the offset index. Tokens must be added in ascending byte order
+     *  without duplicates, so the table can be searched.
+     *
+     *@param  data             array holding the token bytes
+     *@param  offset           index of the first byte of the token
+     *@param  length           number of bytes in the token
+     *@exception  IOException  if the token cannot be written
+     */
+    private void writeToken(byte[] data, int offset, int length)
+             throws IOException {
+
+        if (previousLength >= 0 && Arrays.compareUnsigned(previousToken, 0,
+                previousLength, data, offset, offset + length) >= 0) {
+            throw new IllegalStateException("Tokens must be added to a "
+                     + "sorted table in ascending order");
+        }
+
+        if (length > previousToken.length) {
+            previousToken = Arrays.copyOf(previousToken, Math.max(
+                    previousToken.length * 2, length));
+        }
+
+        System.arraycopy(data, offset, previousToken, 0, length);
+        previousLength = length;
+
+        strings.write(data, offset, length);
+        stringSize += length;
+        offsets.writeLong(stringSize);
+        tokenCount++;
+    }
+
+}
@@ -0,0 +1,614 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ *  SortedTokenRuns class: Lets a token analyzer keep a vocabulary larger
+ *  than memory. When the dictionary of an analyzer reaches its spill size
+ *  the analyzer writes its tokens, sorted, to a run in a temporary file and
+ *  starts again with an empty dictionary. When the report is written the
+ *  runs and the tokens still in memory are merged in a single pass, and
+ *  each token is passed on once in sorted order with its values added up,
+ *  so the report is the same as if every token had been kept in memory. A
+ *  run stores each token as the number of bytes it shares with the
+ *  previous token and the bytes that follow, together with its count when
+ *  the runs are counted. Runs are merged into one whenever there are too
+ *  many to read at the same time. The run files are deleted by delete when
+ *  the analyzer that owns them is closed.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class SortedTokenRuns {
+
+    /** Most runs read at the same time by a merge */
+    public final static int MAXIMUM_MERGE_RUNS = 64;
+
+    private final static int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private boolean counted;
+    private List<File> runFiles;
+
+
+    /**
+     *  EntryHandler interface. Receives the merged tokens in sorted order.
+     */
+    public interface EntryHandler {
+
+        /**
+         *  Method handles a token and its value.
+         *
+         *@param  token            array holding the token bytes
+         *@param  length           number of bytes in the token
+         *@param  value            sum of the values of the token, or 0 when
+         *      the runs are not counted
+         *@exception  IOException  IO Exception
+         */
+        void handleEntry(byte[] token, int length, long value)
+                 throws IOException;
+    }
+
+
+    /**
+     *  Constructor for the SortedTokenRuns object
+     *
+     *@param  counted  true if every token has a count
+     */
+    public SortedTokenRuns(boolean counted) {
+
+        this.counted = counted;
+
+        runFiles = new ArrayList<File>();
+    }
+
+
+    /**
+     *  Returns the number of runs written to disk.
+     *
+     *@return    The runCount value
+     */
+    public int getRunCount() {
+        return runFiles.size();
+    }
+
+
+    /**
+     *  Method writes tokens from a dictionary to a new run.
+     *
+     *@param  dictionary       dictionary the ids belong to
+     *@param  sortedIds        ids sorted by token
+     *@param  values           count of each id, or null when not counted
+     *@exception  IOException  if the run cannot be written
+     */
+    public void writeRun(TokenDictionary dictionary, int[] sortedIds,
+            long[] values) throws IOException {
+
+        if (sortedIds.length == 0) {
+            return;
+        }
+
+        mergeRuns(dictionary, sortedIds, values, Collections.emptyList());
+
+        if (runFiles.size() >= MAXIMUM_MERGE_RUNS) {
+            mergeRuns(null, null, null, runFiles);
+        }
+    }
+
+
+    /**
+     *  Method takes over the runs of another object, which is left without
+     *  runs.
+     *
+     *@param  other  runs to take over
+     */
+    public void addRuns(SortedTokenRuns other) {
+
+        runFiles.addAll(other.runFiles);
+        other.runFiles.clear();
+
+        if (runFiles.size() >= MAXIMUM_MERGE_RUNS) {
+
+            try {
+                mergeRuns(null, null, null, runFiles);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        }
+    }
+
+
+    /**
+     *  Method merges the runs with tokens from a dictionary and passes each
+     *  token to the handler in sorted order.
+     *
+     *@param  dictionary       dictionary the ids belong to
+     *@param  sortedIds        ids sorted by token
+     *@param  values           count of each id, or null when not counted
+     *@param  handler          receives each token
+     *@exception  IOException  if a run cannot be read
+     */
+    public void merge(TokenDictionary dictionary, int[] sortedIds,
+            long[] values, EntryHandler handler) throws IOException {
+
+        List<EntrySource> sources = new ArrayList<EntrySource>();
+
+        try {
+
+            sources.add(new DictionarySource(dictionary, sortedIds, values));
+
+            for (File runFile : runFiles) {
+                sources.add(new RunSource(runFile));
+            }
+
+            mergeSources(sources, handler);
+
+        } finally {
+
+            for (EntrySource source : sources) {
+                source.close();
+            }
+        }
+    }
+
+
+    /**
+     *  Method writes the runs and the tokens from a dictionary to a snapshot
+     *  in the same form as Snapshot.writeTokens, followed by the counts when
+     *  the runs are counted. Everything is first merged into a single run,
+     *  which is then read once for the tokens and once for the counts.
+     *
+     *@param  out              snapshot output
+     *@param  dictionary       dictionary the ids belong to
+     *@param  sortedIds        ids sorted by token
+     *@param  values           count of each id, or null when not counted
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out, TokenDictionary dictionary,
+            int[] sortedIds, long[] values) throws IOException {
+
+        File mergedFile = File.createTempFile("tokens", ".tmp");
+
+        try {
+
+            long entryCount = writeMergedRun(mergedFile, dictionary,
+                    sortedIds, values, runFiles);
+
+            Snapshot.writeNumber(out, entryCount);
+
+            try (RunSource source = new RunSource(mergedFile)) {
+
+                byte[] previous = new byte[0];
+                int previousLength = 0;
+
+                while (source.next()) {
+
+                    int shared = 0;
+
+                    while (shared < source.length && shared < previousLength
+                             && source.token[shared] == previous[shared]) {
+                        shared++;
+                    }
+
+                    Snapshot.writeNumber(out, shared);
+                    Snapshot.writeNumber(out, source.length - shared);
+                    out.write(source.token, shared, source.length - shared);
+
+                    previous = Arrays.copyOf(source.token, source.length);
+                    previousLength = source.length;
+                }
+            }
+
+            if (counted) {
+
+                try (RunSource source = new RunSource(mergedFile)) {
+
+                    while (source.next()) {
+                        Snapshot.writeNumber(out, source.value);
+                    }
+                }
+            }
+
+        } finally {
+
+            mergedFile.delete();
+        }
+    }
+
+
+    /**
+     *  Method deletes every run. The analyzer that owns the runs calls it
+     *  once they are no longer needed.
+     */
+    public void delete() {
+
+        for (File runFile : runFiles) {
+            runFile.delete();
+        }
+
+        runFiles.clear();
+    }
+
+
+    /**
+     *  Method merges runs, and tokens from a dictionary when one is given,
+     *  into a new run that replaces the merged runs.
+     *
+     *@param  dictionary       dictionary the ids belong to, or null
+     *@param  sortedIds        ids sorted by token
+     *@param  values           count of each id, or null when not counted
+     *@param  mergedRuns       runs to merge
+     *@exception  IOException  if a run cannot be read or written
+     */
+    private void mergeRuns(TokenDictionary dictionary, int[] sortedIds,
+            long[] values, List<File> mergedRuns) throws IOException {
+
+        List<File> inputFiles = new ArrayList<File>(mergedRuns);
+        File runFile = File.createTempFile("tokens", ".tmp");
+
+        writeMergedRun(runFile, dictionary, sortedIds, values, inputFiles);
+
+        for (File inputFile : inputFiles) {
+            inputFile.delete();
+        }
+
+        runFiles.removeAll(inputFiles);
+        runFiles.add(runFile);
+    }
+
+
+    /**
+     *  Method writes the merge of runs, and tokens from a dictionary when one
+     *  is given, to a run file.
+     *
+     *@param  runFile          file to write
+     *@param  dictionary       dictionary the ids belong to, or null
+     *@param  sortedIds        ids sorted by token
+     *@param  values           count of each id, or null when not counted
+     *@param  inputFiles       runs to merge
+     *@return                  number of tokens written
+     *@exception  IOException  if a run cannot be read or written
+     */
+    private long writeMergedRun(File runFile, TokenDictionary dictionary,
+            int[] sortedIds, long[] values, List<File> inputFiles)
+             throws IOException {
+
+        List<EntrySource> sources = new ArrayList<EntrySource>();
+
+        try (RunWriter writer = new RunWriter(runFile)) {
+
+            if (dictionary != null) {
+                sources.add(new DictionarySource(dictionary, sortedIds,
+                        values));
+            }
+
+            for (File inputFile : inputFiles) {
+                sources.add(new RunSource(inputFile));
+            }
+
+            mergeSources(sources, writer);
+
+            return writer.entryCount;
+
+        } finally {
+
+            for (EntrySource source : sources) {
+                source.close();
+            }
+        }
+    }
+
+
+    /**
+     *  Method merges sorted sources with a priority queue ordered by their
+     *  current tokens, adding up the values of equal tokens.
+     *
+     *@param  sources          sorted sources
+     *@param  handler          receives each token
+     *@exception  IOException  if a source cannot be read
+     */
+    private static void mergeSources(List<EntrySource> sources,
+            EntryHandler handler) throws IOException {
+
+        PriorityQueue<EntrySource> queue = new PriorityQueue<EntrySource>(
+                Math.max(sources.size(), 1), EntrySource::compareTokens);
+
+        for (EntrySource source : sources) {
+
+            if (source.next()) {
+                queue.add(source);
+            }
+        }
+
+        byte[] token = new byte[64];
+
+        while (!queue.isEmpty()) {
+
+            EntrySource source = queue.poll();
+            int length = source.length;
+            long value = source.value;
+
+            if (length > token.length) {
+                token = Arrays.copyOf(token, Math.max(token.length * 2,
+                        length));
+            }
+
+            System.arraycopy(source.token, 0, token, 0, length);
+            advance(queue, source);
+
+            while (!queue.isEmpty() && Arrays.equals(queue.peek().token, 0,
+                    queue.peek().length, token, 0, length)) {
+
+                EntrySource equalSource = queue.poll();
+
+                value += equalSource.value;
+                advance(queue, equalSource);
+            }
+
+            handler.handleEntry(token, length, value);
+        }
+    }
+
+
+    /**
+     *  Method moves a source to its next token and puts it back in the
+     *  queue unless it has ended.
+     *
+     *@param  queue            merge queue
+     *@param  source           source to advance
+     *@exception  IOException  if the source cannot be read
+     */
+    private static void advance(PriorityQueue<EntrySource> queue,
+            EntrySource source) throws IOException {
+
+        if (source.next()) {
+            queue.add(source);
+        }
+    }
+
+
+    /**
+     *  EntrySource class: A sorted sequence of tokens and values that is
+     *  read one token at a time.
+     */
+    private abstract static class EntrySource implements Closeable {
+
+        byte[] token = new byte[64];
+        int length;
+        long value;
+
+
+        /**
+         *  Method moves to the next token.
+         *
+         *@return                  false when there are no more tokens
+         *@exception  IOException  IO Exception
+         */
+        abstract boolean next() throws IOException;
+
+
+        /**
+         *  Method compares the current tokens of two sources as unsigned
+         *  bytes.
+         *
+         *@param  other  other source
+         *@return        negative, zero or positive
+         */
+        int compareTokens(EntrySource other) {
+            return Arrays.compareUnsigned(token, 0, length, other.token, 0,
+                    other.length);
+        }
+
+
+        /**
+         *  Method makes room for a token of the given length.
+         *
+         *@param  tokenLength  length of the next token
+         */
+        void ensureCapacity(int tokenLength) {
+
+            if (tokenLength > token.length) {
+                token = Arrays.copyOf(token, Math.max(token.length * 2,
+                        tokenLength));
+            }
+        }
+
+
+        /**
+         *  Method closes the source.
+         *
+         *@exception  IOException  IO Exception
+         */
+        public void close() throws IOException {
+        }
+    }
+
+
+    /**
+     *  DictionarySource class: The tokens still held in a dictionary.
+     */
+    private static class DictionarySource extends EntrySource {
+
+        private TokenDictionary dictionary;
+        private int[] sortedIds;
+        private long[] values;
+        private int index;
+
+
+        /**
+         *  Constructor for the DictionarySource object
+         *
+         *@param  dictionary  dictionary the ids belong to
+         *@param  sortedIds   ids sorted by token
+         *@param  values      count of each id, or null when not counted
+         */
+        DictionarySource(TokenDictionary dictionary, int[] sortedIds,
+                long[] values) {
+
+            this.dictionary = dictionary;
+            this.sortedIds = sortedIds;
+            this.values = values;
+        }
+
+
+        /**
+         *  Method moves to the next id.
+         *
+         *@return    false when there are no more ids
+         */
+        boolean next() {
+
+            if (index == sortedIds.length) {
+                return false;
+            }
+
+            int id = sortedIds[index++];
+
+            length = dictionary.getKeyLength(id);
+            ensureCapacity(length);
+            System.arraycopy(dictionary.getKeyData(),
+                    dictionary.getKeyOffset(id), token, 0, length);
+            value = values == null ? 0 : values[id];
+
+            return true;
+        }
+    }
+
+
+    /**
+     *  RunSource class: The tokens of a run file.
+     */
+    private class RunSource extends EntrySource {
+
+        private DataInputStream in;
+
+
+        /**
+         *  Constructor for the RunSource object
+         *
+         *@param  runFile          run to read
+         *@exception  IOException  if the run cannot be opened
+         */
+        RunSource(File runFile) throws IOException {
+
+            in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(runFile), STREAM_BUFFER_SIZE));
+        }
+
+
+        /**
+         *  Method reads the next token of the run. The shared prefix of the
+         *  previous token is still at the start of the token array.
+         *
+         *@return                  false at the end of the run
+         *@exception  IOException  if the run cannot be read
+         */
+        boolean next() throws IOException {
+
+            long header = Snapshot.readNumber(in);
+
+            if (header == 0) {
+                return false;
+            }
+
+            int shared = Math.toIntExact(header - 1);
+            int suffixLength = Math.toIntExact(Snapshot.readNumber(in));
+
+            length = shared + suffixLength;
+            ensureCapacity(length);
+            in.readFully(token, shared, suffixLength);
+            value = counted ? Snapshot.readNumber(in) : 0;
+
+            return true;
+        }
+
+
+        /**
+         *  Method closes the run file.
+         *
+         *@exception  IOException  IO Exception
+         */
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+
+    /**
+     *  RunWriter class: Writes tokens to a run file. Each token is written as
+     *  one more than the number of bytes it shares with the previous token,
+     *  the number of bytes that follow, the bytes and the count; a 0 ends
+     *  the run.
+     */
+    private class RunWriter implements EntryHandler, Closeable {
+
+        private DataOutputStream out;
+        private byte[] previous;
+        private int previousLength;
+        private long entryCount;
+
+
+        /**
+         *  Constructor for the RunWriter object
+         *
+         *@param  runFile          run to write
+         *@exception  IOException  if the run cannot be created
+         */
+        RunWriter(File runFile) throws IOException {
+
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(runFile), STREAM_BUFFER_SIZE));
+            previous = new byte[64];
+        }
+
+
+        /**
+         *  Method writes a token and its value.
+         *
+         *@param  token            array holding the token bytes
+         *@param  length           number of bytes in the token
+         *@param  value            count of the token
+         *@exception  IOException  if the run cannot be written
+         */
+        public void handleEntry(byte[] token, int length, long value)
+                 throws IOException {
+
+            int shared = 0;
+
+            while (shared < length && shared < previousLength
+                     && token[shared] == previous[shared]) {
+                shared++;
+            }
+
+            Snapshot.writeNumber(out, shared + 1);
+            Snapshot.writeNumber(out, length - shared);
+            out.write(token, shared, length - shared);
+
+            if (counted) {
+                Snapshot.writeNumber(out, value);
+            }
+
+            if (length > previous.length) {
+                previous = Arrays.copyOf(previous, Math.max(
+                        previous.length * 2, length));
+            }
+
+            System.arraycopy(token, shared, previous, shared, length - shared);
+            previousLength = length;
+            entryCount++;
+        }
+
+
+        /**
+         *  Method ends the run and closes the file.
+         *
+         *@exception  IOException  if the run cannot be written
+         */
+        public void close() throws IOException {
+
+            Snapshot.writeNumber(out, 0);
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,559 @@
+package java112.analyzer;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ *  SpaceSavingTable class: Keeps the most frequent tokens of a stream in a
+ *  table of fixed capacity with the Space-Saving algorithm. A token in the
+ *  table has its count raised. A new token is added while there is room;
+ *  once the table is full it takes the place of the token with the
+ *  smallest count, and starts from that count, which is remembered as its
+ *  error. A count is therefore never too low, and at most its error too
+ *  high. Every token that occurred more than total / capacity times is in
+ *  the table. The entries are kept in an open addressing table keyed by
+ *  token hash and in a heap ordered by count, so the smallest entry is
+ *  found without a search, and token bytes are copied into arrays that are
+ *  reused when an entry is replaced.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class SpaceSavingTable {
+
+    private int capacity;
+    private int size;
+    private byte[][] tokens;
+    private int[] tokenLengths;
+    private long[] hashes;
+    private long[] counts;
+    private long[] errors;
+    private int[] heap;
+    private int[] heapPositions;
+    private int[] slots;
+    private int slotMask;
+
+
+    /**
+     *  Constructor for the SpaceSavingTable object
+     *
+     *@param  capacity  number of tokens kept
+     */
+    public SpaceSavingTable(int capacity) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Space-Saving capacity "
+                     + capacity + " is too small");
+        }
+
+        this.capacity = capacity;
+
+        tokens = new byte[capacity][];
+        tokenLengths = new int[capacity];
+        hashes = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapPositions = new int[capacity];
+        slots = new int[Integer.highestOneBit(capacity) * 4];
+        slotMask = slots.length - 1;
+    }
+
+
+    /**
+     *  Returns the value of capacity.
+     *
+     *@return    The capacity value
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     *  Returns the number of tokens in the table.
+     *
+     *@return    The size value
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     *  Returns the smallest count in the table, or 0 while the table is not
+     *  full. A token that is not in the table occurred at most this many
+     *  times.
+     *
+     *@return    The minimumCount value
+     */
+    public long getMinimumCount() {
+
+        if (size < capacity) {
+            return 0;
+        }
+
+        return counts[heap[0]];
+    }
+
+
+    /**
+     *  Returns the token of an entry.
+     *
+     *@param  entry  index of an entry
+     *@return        The token value
+     */
+    public String getToken(int entry) {
+        return new String(tokens[entry], 0, tokenLengths[entry],
+                TokenBatch.TOKEN_CHARSET);
+    }
+
+
+    /**
+     *  Returns the hash of the token of an entry.
+     *
+     *@param  entry  index of an entry
+     *@return        The hash value
+     */
+    public long getHash(int entry) {
+        return hashes[entry];
+    }
+
+
+    /**
+     *  Returns the count of an entry. The count is never too low.
+     *
+     *@param  entry  index of an entry
+     *@return        The count value
+     */
+    public long getCount(int entry) {
+        return counts[entry];
+    }
+
+
+    /**
+     *  Returns the most the count of an entry is too high.
+     *
+     *@param  entry  index of an entry
+     *@return        The error value
+     */
+    public long getError(int entry) {
+        return errors[entry];
+    }
+
+
+    /**
+     *  Method returns the entries from the highest count to the lowest.
+     *  Entries with the same count are in token order.
+     *
+     *@return    sorted entry indexes
+     */
+    public int[] sortedEntries() {
+
+        Integer[] entries = new Integer[size];
+
+        for (int entry = 0; entry < size; entry++) {
+            entries[entry] = entry;
+        }
+
+        Arrays.sort(entries, (first, second) -> {
+
+            int order = Long.compare(counts[second], counts[first]);
+
+            if (order == 0) {
+                order = Arrays.compareUnsigned(tokens[first], 0,
+                        tokenLengths[first], tokens[second], 0,
+                        tokenLengths[second]);
+            }
+
+            return order;
+        });
+
+        int[] sortedEntries = new int[size];
+
+        for (int index = 0; index < size; index++) {
+            sortedEntries[index] = entries[index];
+        }
+
+        return sortedEntries;
+    }
+
+
+    /**
+     *  Method adds a count for a token.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@param  hash    64 bit hash of the token
+     *@param  count   amount to add
+     */
+    public void add(byte[] data, int offset, int length, long hash,
+            long count) {
+
+        int slot = findSlot(data, offset, length, hash);
+
+        if (slots[slot] != 0) {
+
+            int entry = slots[slot] - 1;
+
+            counts[entry] += count;
+            siftDown(heapPositions[entry]);
+
+            return;
+        }
+
+        if (size < capacity) {
+
+            int entry = size++;
+
+            setToken(entry, data, offset, length, hash);
+            counts[entry] = count;
+            errors[entry] = 0;
+            slots[slot] = entry + 1;
+            heap[entry] = entry;
+            heapPositions[entry] = entry;
+            siftUp(entry);
+
+            return;
+        }
+
+        int entry = heap[0];
+        long minimumCount = counts[entry];
+
+        removeSlot(findSlot(tokens[entry], 0, tokenLengths[entry],
+                hashes[entry]));
+        setToken(entry, data, offset, length, hash);
+        counts[entry] = minimumCount + count;
+        errors[entry] = minimumCount;
+        slots[findSlot(data, offset, length, hash)] = entry + 1;
+        siftDown(0);
+    }
+
+
+    /**
+     *  Method merges another table of the same capacity into this one. The
+     *  count of a token missing from one table is taken as the smallest
+     *  count of that table, so the merged counts are still never too low,
+     *  and the tokens with the highest merged counts are kept.
+     *
+     *@param  other  table to merge
+     */
+    public void merge(SpaceSavingTable other) {
+
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot merge a Space-Saving "
+                     + "table of capacity " + other.capacity
+                     + " into capacity " + capacity);
+        }
+
+        long minimumCount = getMinimumCount();
+        long otherMinimumCount = other.getMinimumCount();
+        int candidateCount = size + other.size;
+        byte[][] candidateTokens = new byte[candidateCount][];
+        long[] candidateHashes = new long[candidateCount];
+        long[] candidateCounts = new long[candidateCount];
+        long[] candidateErrors = new long[candidateCount];
+        int candidates = 0;
+
+        for (int entry = 0; entry < size; entry++) {
+
+            int otherEntry = other.find(tokens[entry], 0,
+                    tokenLengths[entry], hashes[entry]);
+
+            candidateTokens[candidates] = Arrays.copyOf(tokens[entry],
+                    tokenLengths[entry]);
+            candidateHashes[candidates] = hashes[entry];
+            candidateCounts[candidates] = counts[entry] + (otherEntry < 0
+                     ? otherMinimumCount : other.counts[otherEntry]);
+            candidateErrors[candidates] = errors[entry] + (otherEntry < 0
+                     ? otherMinimumCount : other.errors[otherEntry]);
+            candidates++;
+        }
+
+        for (int otherEntry = 0; otherEntry < other.size; otherEntry++) {
+
+            if (find(other.tokens[otherEntry], 0,
+                    other.tokenLengths[otherEntry],
+                    other.hashes[otherEntry]) < 0) {
+
+                candidateTokens[candidates] = Arrays.copyOf(
+                        other.tokens[otherEntry],
+                        other.tokenLengths[otherEntry]);
+                candidateHashes[candidates] = other.hashes[otherEntry];
+                candidateCounts[candidates] = other.counts[otherEntry]
+                         + minimumCount;
+                candidateErrors[candidates] = other.errors[otherEntry]
+                         + minimumCount;
+                candidates++;
+            }
+        }
+
+        Integer[] order = new Integer[candidates];
+
+        for (int index = 0; index < candidates; index++) {
+            order[index] = index;
+        }
+
+        Arrays.sort(order, (first, second) -> Long.compare(
+                candidateCounts[second], candidateCounts[first]));
+
+        size = 0;
+        Arrays.fill(slots, 0);
+
+        for (int index = 0; index < Math.min(candidates, capacity); index++) {
+
+            int candidate = order[index];
+            byte[] token = candidateTokens[candidate];
+
+            add(token, 0, token.length, candidateHashes[candidate],
+                    candidateCounts[candidate]);
+            errors[size - 1] = candidateErrors[candidate];
+        }
+    }
+
+
+    /**
+     *  Method writes the capacity and the entries to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the table cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+
+        Snapshot.writeNumber(out, capacity);
+        Snapshot.writeNumber(out, size);
+
+        for (int entry = 0; entry < size; entry++) {
+
+            Snapshot.writeNumber(out, tokenLengths[entry]);
+            out.write(tokens[entry], 0, tokenLengths[entry]);
+            Snapshot.writeNumber(out, counts[entry]);
+            Snapshot.writeNumber(out, errors[entry]);
+        }
+    }
+
+
+    /**
+     *  Method reads a table written by writeTo and merges it into this
+     *  table.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the table cannot be read or has a
+     *      different capacity
+     */
+    public void readFrom(DataInput in) throws IOException {
+
+        long savedCapacity = Snapshot.readNumber(in);
+
+        if (savedCapacity != capacity) {
+            throw new IOException("The snapshot has a Space-Saving table of "
+                     + savedCapacity + " tokens, expected " + capacity);
+        }
+
+        SpaceSavingTable saved = new SpaceSavingTable(capacity);
+        long savedSize = Snapshot.readNumber(in);
+
+        if (savedSize > capacity) {
+            throw new IOException("Malformed Space-Saving table in snapshot");
+        }
+
+        for (int entry = 0; entry < savedSize; entry++) {
+
+            byte[] token = new byte[Math.toIntExact(Snapshot.readNumber(in))];
+
+            in.readFully(token);
+            saved.add(token, 0, token.length,
+                    TokenHash.hash(token, 0, token.length),
+                    Snapshot.readNumber(in));
+            saved.errors[entry] = Snapshot.readNumber(in);
+        }
+
+        merge(saved);
+    }
+
+
+    /**
+     *  Method returns the entry of a token.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@param  hash    64 bit hash of the token
+     *@return         index of the entry, or -1 if the token is not in the
+     *      table
+     */
+    private int find(byte[] data, int offset, int length, long hash) {
+        return slots[findSlot(data, offset, length, hash)] - 1;
+    }
+
+
+    /**
+     *  Method returns the slot holding a token, or the empty slot where it
+     *  would be added.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@param  hash    64 bit hash of the token
+     *@return         index of the slot
+     */
+    private int findSlot(byte[] data, int offset, int length, long hash) {
+
+        int slot = homeSlot(hash);
+
+        while (slots[slot] != 0) {
+
+            int entry = slots[slot] - 1;
+
+            if (hashes[entry] == hash && tokenLengths[entry] == length
+                     && Arrays.equals(tokens[entry], 0, length, data, offset,
+                    offset + length)) {
+                return slot;
+            }
+
+            slot = (slot + 1) & slotMask;
+        }
+
+        return slot;
+    }
+
+
+    /**
+     *  Method returns the first slot probed for a hash.
+     *
+     *@param  hash  64 bit hash of a token
+     *@return       index of the slot
+     */
+    private int homeSlot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & slotMask;
+    }
+
+
+    /**
+     *  Method empties a slot, moving later entries of the same probe run
+     *  back so every entry can still be found from its home slot.
+     *
+     *@param  slot  index of the slot to empty
+     */
+    private void removeSlot(int slot) {
+
+        int next = slot;
+
+        while (true) {
+
+            next = (next + 1) & slotMask;
+
+            if (slots[next] == 0) {
+                break;
+            }
+
+            int home = homeSlot(hashes[slots[next] - 1]);
+
+            if (((next - home) & slotMask) >= ((next - slot) & slotMask)) {
+                slots[slot] = slots[next];
+                slot = next;
+            }
+        }
+
+        slots[slot] = 0;
+    }
+
+
+    /**
+     *  Method copies the bytes of a token into an entry, reusing the array
+     *  of the entry when it is long enough.
+     *
+     *@param  entry   index of the entry
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@param  hash    64 bit hash of the token
+     */
+    private void setToken(int entry, byte[] data, int offset, int length,
+            long hash) {
+
+        if (tokens[entry] == null || tokens[entry].length < length) {
+            tokens[entry] = new byte[Math.max(length, 16)];
+        }
+
+        System.arraycopy(data, offset, tokens[entry], 0, length);
+        tokenLengths[entry] = length;
+        hashes[entry] = hash;
+    }
+
+
+    /**
+     *  Method moves a heap entry towards the root while its count is
+     *  smaller than the count of its parent.
+     *
+     *@param  position  heap position of the entry
+     */
+    private void siftUp(int position) {
+
+        int entry = heap[position];
+
+        while (position > 0) {
+
+            int parent = (position - 1) >>> 1;
+
+            if (counts[heap[parent]] <= counts[entry]) {
+                break;
+            }
+
+            moveHeapEntry(heap[parent], position);
+            position = parent;
+        }
+
+        moveHeapEntry(entry, position);
+    }
+
+
+    /**
+     *  Method moves a heap entry away from the root while its count is
+     *  larger than the count of a child.
+     *
+     *@param  position  heap position of the entry
+     */
+    private void siftDown(int position) {
+
+        int entry = heap[position];
+
+        while (true) {
+
+            int child = 2 * position + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && counts[heap[child + 1]]
+                     < counts[heap[child]]) {
+                child++;
+            }
+
+            if (counts[entry] <= counts[heap[child]]) {
+                break;
+            }
+
+            moveHeapEntry(heap[child], position);
+            position = child;
+        }
+
+        moveHeapEntry(entry, position);
+    }
+
+
+    /**
+     *  Method places an entry at a heap position.
+     *
+     *@param  entry     index of the entry
+     *@param  position  heap position
+     */
+    private void moveHeapEntry(int entry, int position) {
+
+        heap[position] = entry;
+        heapPositions[entry] = position;
+    }
+
+}
@@ -6,16 +6,18 @@ import java.io.*;
 /**
  *  SummaryReport class: This class generates the summary report for the
  *  Analyzer application. It will count all the tokens being analyzed and it
- *  will include this information along with a header into the report. This
- *  class implements the Analyzer interface.
+ *  will include this information along with a header into the report. When
+ *  the run is measured by a PerformanceMonitor the report ends with its
+ *  performance section. This class implements the Analyzer interface.
  *
  *@author     Nicole LaBonte
  */
 
 public class SummaryReport implements Analyzer {
 
-    private int totalTokensCount;
+    private long totalTokensCount;
     private Properties properties;
+    private PerformanceMonitor performanceMonitor;
 
 
     /**
@@ -40,11 +42,21 @@ public class SummaryReport implements Analyzer {
      *
      *@return    The totalTokensCount value
      */
-    public int getTotalTokensCount() {
+    public long getTotalTokensCount() {
         return totalTokensCount;
     }
 
 
+    /**
+     *  Sets the monitor whose performance section ends the report.
+     *
+     *@param  performanceMonitor  The new performanceMonitor value, or null
+     */
+    public void setPerformanceMonitor(PerformanceMonitor performanceMonitor) {
+        this.performanceMonitor = performanceMonitor;
+    }
+
+
     /**
      *  Method counts all the tokens processed.
      *
@@ -57,46 +69,62 @@ public class SummaryReport implements Analyzer {
 
 
     /**
-     *  Method calls a method to write the summary information to the file. It
-     *  handles exceptions for writing output.
+     *  Method counts all the tokens in the batch.
      *
-     *@param  inputFilePath  input file path
+     *@param  batch  batch of tokens
      */
-    public void writeOutputFile(String inputFilePath) {
-
-        PrintWriter out = null;
+    public void processTokens(TokenBatch batch) {
 
-        String outputFilePath = properties.getProperty("output.dir")
-                 + properties.getProperty("output.file.summary");
-
-        try {
+        totalTokensCount += batch.size();
+    }
 
-            out = new PrintWriter(
-                    new BufferedWriter(new FileWriter(outputFilePath)));
 
-            writeReportHeader(inputFilePath, out);
+    /**
+     *  Method adds the token count of another SummaryReport to this report.
+     *
+     *@param  other  SummaryReport to merge
+     */
+    public void merge(Analyzer other) {
 
-        } catch (IOException ioException) {
+        totalTokensCount += ((SummaryReport) other).getTotalTokensCount();
+    }
 
-            ioException.printStackTrace();
 
-        } catch (Exception exception) {
+    /**
+     *  Method writes the total token count to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+        Snapshot.writeNumber(out, totalTokensCount);
+    }
 
-            exception.printStackTrace();
 
-        } finally {
+    /**
+     *  Method loads the total token count from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+        totalTokensCount = Snapshot.readNumber(in);
+    }
 
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (Exception exception) {
 
-                exception.printStackTrace();
-            }
+    /**
+     *  Method calls a method to write the summary information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
 
-        }
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.summary");
 
+        ReportWriter.writeReport(outputFilePath,
+                out -> writeReportHeader(inputFilePath, out));
     }
 
 
@@ -104,9 +132,10 @@ public class SummaryReport implements Analyzer {
      *  Method writes the summary information to the file.
      *
      *@param  inputFilePath  input file path
-     *@param  out            PrintWriter
+     *@param  out            report writer
      */
-    private void writeReportHeader(String inputFilePath, PrintWriter out) {
+    private void writeReportHeader(String inputFilePath, ReportWriter out)
+             throws IOException {
 
         out.println("Application: "
                  + properties.getProperty("application.name"));
@@ -123,6 +152,10 @@ public class SummaryReport implements Analyzer {
 
         out.println("Total Token Count: " + totalTokensCount);
 
+        if (performanceMonitor != null) {
+            performanceMonitor.writeReport(out);
+        }
+
     }
 
 }
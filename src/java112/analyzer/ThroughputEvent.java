@@ -0,0 +1,57 @@
+package java112.analyzer;
+
+import jdk.jfr.*;
+
+/**
+ *  ThroughputEvent class: A periodic Java Flight Recorder event with the
+ *  bytes and tokens a PerformanceMonitor has counted so far and the rates
+ *  since the last event. It is recorded every second unless the recording
+ *  sets another period, while a measured run is going on.
+ *
+ *@author     Nicole LaBonte
+ */
+
+@Name("java112.analyzer.Throughput")
+@Label("Analysis Throughput")
+@Category("Document Analyzer")
+@Description("Input bytes and tokens analyzed so far and their rates")
+@Period("1 s")
+@StackTrace(false)
+public class ThroughputEvent extends Event {
+
+    @Label("Bytes Read")
+    @DataAmount
+    private long bytesRead;
+
+    @Label("Token Count")
+    private long tokenCount;
+
+    @Label("Bytes Per Second")
+    @DataAmount(DataAmount.BYTES)
+    @Frequency
+    private double bytesPerSecond;
+
+    @Label("Tokens Per Second")
+    @Frequency
+    private double tokensPerSecond;
+
+
+    /**
+     *  Constructor for the ThroughputEvent object
+     *
+     *@param  bytesRead        input bytes read so far
+     *@param  tokenCount       tokens analyzed so far
+     *@param  bytesPerSecond   bytes read per second since the last event
+     *@param  tokensPerSecond  tokens analyzed per second since the last
+     *      event
+     */
+    public ThroughputEvent(long bytesRead, long tokenCount,
+            double bytesPerSecond, double tokensPerSecond) {
+
+        this.bytesRead = bytesRead;
+        this.tokenCount = tokenCount;
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+}
@@ -0,0 +1,336 @@
+package java112.analyzer;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ *  TokenBatch class: A reusable block of tokens that is handed to the
+ *  analyzers at once. The token bytes are stored one after another in a
+ *  single byte array with an offset and a length for each token. The String
+ *  for a token is only created when an analyzer asks for it, and it is then
+ *  shared by every analyzer that processes the batch. When the batch has
+ *  been resolved by a TokenDictionary it also holds the dictionary id of
+ *  each token, so analyzers sharing that dictionary do not need to look the
+ *  token up again. Token bytes are UTF-8, which is also plain ASCII for
+ *  ASCII tokens.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class TokenBatch {
+
+    /** Default number of tokens in a batch */
+    public final static int DEFAULT_CAPACITY = 4096;
+
+    /** Charset used to convert between token bytes and token Strings */
+    public final static Charset TOKEN_CHARSET = StandardCharsets.UTF_8;
+
+    private final static int AVERAGE_TOKEN_SIZE = 16;
+
+    private byte[] data;
+    private int dataLength;
+    private int[] offsets;
+    private int[] lengths;
+    private String[] tokens;
+    private int[] tokenIds;
+    private TokenDictionary dictionary;
+    private int size;
+
+
+    /**
+     *  Constructor for the TokenBatch object
+     */
+    public TokenBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     *  Constructor for the TokenBatch object
+     *
+     *@param  capacity  number of tokens the batch can hold
+     */
+    public TokenBatch(int capacity) {
+
+        data = new byte[capacity * AVERAGE_TOKEN_SIZE];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        tokens = new String[capacity];
+        tokenIds = new int[capacity];
+        size = 0;
+        dataLength = 0;
+    }
+
+
+    /**
+     *  Returns the number of tokens in the batch.
+     *
+     *@return    The size value
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     *  Returns the number of tokens the batch can hold.
+     *
+     *@return    The capacity value
+     */
+    public int getCapacity() {
+        return offsets.length;
+    }
+
+
+    /**
+     *  Method determines if the batch cannot hold any more tokens.
+     *
+     *@return    true if the batch is full
+     */
+    public boolean isFull() {
+        return size == offsets.length;
+    }
+
+
+    /**
+     *  Method removes all the tokens from the batch so it can be reused.
+     */
+    public void clear() {
+
+        Arrays.fill(tokens, 0, size, null);
+        size = 0;
+        dataLength = 0;
+        dictionary = null;
+    }
+
+
+    /**
+     *  Method copies a token from a buffer into the batch. The batch must not
+     *  be full.
+     *
+     *@param  buffer  buffer holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     */
+    public void addToken(ByteBuffer buffer, int offset, int length) {
+
+        ensureDataCapacity(length);
+
+        buffer.get(offset, data, dataLength, length);
+
+        offsets[size] = dataLength;
+        lengths[size] = length;
+        size++;
+        dataLength += length;
+    }
+
+
+    /**
+     *  Method adds a token String to the batch. The batch must not be full.
+     *
+     *@param  token  String token
+     */
+    public void addToken(String token) {
+
+        int length = token.length();
+
+        ensureDataCapacity(length);
+
+        for (int index = 0; index < length; index++) {
+
+            char character = token.charAt(index);
+
+            if (character >= 0x80) {
+                addEncodedToken(token);
+                return;
+            }
+
+            data[dataLength + index] = (byte) character;
+        }
+
+        offsets[size] = dataLength;
+        lengths[size] = length;
+        tokens[size] = token;
+        size++;
+        dataLength += length;
+    }
+
+
+    /**
+     *  Method adds a token String that is not plain ASCII to the batch.
+     *
+     *@param  token  String token
+     */
+    private void addEncodedToken(String token) {
+
+        byte[] tokenBytes = token.getBytes(TOKEN_CHARSET);
+
+        ensureDataCapacity(tokenBytes.length);
+
+        System.arraycopy(tokenBytes, 0, data, dataLength, tokenBytes.length);
+
+        offsets[size] = dataLength;
+        lengths[size] = tokenBytes.length;
+        tokens[size] = token;
+        size++;
+        dataLength += tokenBytes.length;
+    }
+
+
+    /**
+     *  Returns the token String at the given index. The String is created the
+     *  first time it is requested. When analyzers on several threads share
+     *  the batch, each may create an equal String of its own.
+     *
+     *@param  index  index of the token
+     *@return        The token value
+     */
+    public String getToken(int index) {
+
+        String token = tokens[index];
+
+        if (token == null) {
+
+            token = new String(data, offsets[index], lengths[index],
+                    TOKEN_CHARSET);
+            tokens[index] = token;
+        }
+
+        return token;
+    }
+
+
+    /**
+     *  Returns the number of bytes in the token at the given index.
+     *
+     *@param  index  index of the token
+     *@return        The token length
+     */
+    public int getTokenLength(int index) {
+        return lengths[index];
+    }
+
+
+    /**
+     *  Returns the number of characters in the token at the given index,
+     *  which is the number of bytes that do not continue a multi-byte
+     *  character.
+     *
+     *@param  index  index of the token
+     *@return        The character count
+     */
+    public int getCharacterCount(int index) {
+
+        int count = lengths[index];
+        int end = offsets[index] + lengths[index];
+
+        for (int offset = offsets[index]; offset < end; offset++) {
+
+            if ((data[offset] & 0xC0) == 0x80) {
+                count--;
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     *  Returns the dictionary that resolved the token ids of the batch.
+     *
+     *@return    The dictionary value, or null if the ids are not resolved
+     */
+    public TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+
+    /**
+     *  Sets the dictionary that resolved the token ids of the batch.
+     *
+     *@param  dictionary  The new dictionary value
+     */
+    public void setDictionary(TokenDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+
+    /**
+     *  Returns the dictionary id of the token at the given index. The batch
+     *  must have been resolved.
+     *
+     *@param  index  index of the token
+     *@return        The token id
+     */
+    public int getTokenId(int index) {
+        return tokenIds[index];
+    }
+
+
+    /**
+     *  Returns the id of the token at the given index in a dictionary. The
+     *  stored id is used when the batch was resolved by that dictionary;
+     *  otherwise the token is added to the dictionary.
+     *
+     *@param  index            index of the token
+     *@param  tokenDictionary  dictionary to find the id in
+     *@return                  The token id
+     */
+    public int getTokenId(int index, TokenDictionary tokenDictionary) {
+
+        if (tokenDictionary == dictionary) {
+            return tokenIds[index];
+        }
+
+        return tokenDictionary.add(data, offsets[index], lengths[index]);
+    }
+
+
+    /**
+     *  Sets the dictionary id of the token at the given index.
+     *
+     *@param  index  index of the token
+     *@param  id     The new token id
+     */
+    public void setTokenId(int index, int id) {
+        tokenIds[index] = id;
+    }
+
+
+    /**
+     *  Returns the array holding the token bytes.
+     *
+     *@return    The data value
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+
+    /**
+     *  Returns the offset of the token at the given index in the data array.
+     *
+     *@param  index  index of the token
+     *@return        The token offset
+     */
+    public int getTokenOffset(int index) {
+        return offsets[index];
+    }
+
+
+    /**
+     *  Method grows the data array when it cannot hold another token of the
+     *  given length.
+     *
+     *@param  length  length of the next token
+     */
+    private void ensureDataCapacity(int length) {
+
+        if (dataLength + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2,
+                    dataLength + length));
+        }
+    }
+
+}
@@ -8,23 +8,37 @@ import java.io.*;
  *  unique tokens along with a count of times the token appeared.  
  *  The output file will contain a row for each unique token. 
  *  Each row will have the token, a tab character, and the number of 
- *  times that token occurred in the file. 
+ *  times that token occurred in the file. The counts are kept in a
+ *  primitive array indexed by TokenDictionary id, and the tokens are only
+ *  sorted when the report is written. When token.spill.size is set and the
+ *  analyzer has a dictionary of its own, the tokens and their counts are
+ *  spilled to sorted runs on disk whenever the dictionary and the counts
+ *  grow past that size, and the runs are merged, adding up the counts of
+ *  each token, when the file is written. With
+ *  output.format.token.count=binary the counts are written as a sorted
+ *  string table instead of text.
  *
  *@author     Nicole LaBonte
  */
 
 public class TokenCountAnalyzer implements Analyzer {
 
+    private final static int INITIAL_COUNT_SIZE = 1024;
+
     private Properties properties;
-    private Map<String, Integer> tokenCounts;
-    //private Map tokenCounts;
+    private TokenDictionary dictionary;
+    private long[] tokenCounts;
+    private long spillSize;
+    private SortedTokenRuns runs;
 
 
     /**
      *  Constructor for the UniqueTokenCountAnalyzer object
      */
     public TokenCountAnalyzer() {
-        tokenCounts = new TreeMap<String, Integer>();
+
+        dictionary = new TokenDictionary();
+        tokenCounts = new long[INITIAL_COUNT_SIZE];
     }
 
 
@@ -34,8 +48,33 @@ public class TokenCountAnalyzer implements Analyzer {
      *@param  properties  Properties object
      */
     public TokenCountAnalyzer(Properties properties) {
+
         this();
         this.properties = properties;
+
+        spillSize = Long.parseLong(properties.getProperty("token.spill.size",
+                "0"));
+
+        if (spillSize > 0) {
+            runs = new SortedTokenRuns(true);
+        }
+    }
+
+
+    /**
+     *  Constructor for a UniqueTokenCountAnalyzer that shares a token
+     *  dictionary with other analyzers. A shared dictionary is never
+     *  spilled.
+     *
+     *@param  properties  Properties object
+     *@param  dictionary  shared token dictionary
+     */
+    public TokenCountAnalyzer(Properties properties,
+            TokenDictionary dictionary) {
+
+        this(properties);
+        this.dictionary = dictionary;
+        runs = null;
     }
 
 
@@ -50,14 +89,37 @@ public class TokenCountAnalyzer implements Analyzer {
 
 
     /**
-     *  Method returns the tokenCounts map.
+     *  Method returns the tokenCounts as a sorted map. The map is built from
+     *  the counts each time it is requested. A count that does not fit an
+     *  Integer throws an ArithmeticException instead of being cut short.
      *
      *@return    Map of tokenCounts
      */
     public Map<String, Integer> tokenCounts() {
     //public Map tokenCounts() {
 
-        return tokenCounts;
+        Map<String, Integer> tokenCountMap = new TreeMap<String, Integer>();
+
+        if (runs != null) {
+
+            try {
+                runs.merge(dictionary, sortedIds(), tokenCounts,
+                        (token, length, count) -> tokenCountMap.put(
+                        new String(token, 0, length, TokenBatch.TOKEN_CHARSET),
+                        Math.toIntExact(count)));
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+
+            return tokenCountMap;
+        }
+
+        for (int id : countedIds()) {
+            tokenCountMap.put(dictionary.getToken(id),
+                    Math.toIntExact(tokenCounts[id]));
+        }
+
+        return tokenCountMap;
     }
 
 
@@ -67,90 +129,299 @@ public class TokenCountAnalyzer implements Analyzer {
      *@return    The tokenCounts value
      */
     public Map getTokenCounts() {
-        return tokenCounts;
+        return tokenCounts();
+    }
+
+
+    /**
+     *  Returns the count of the token with the given dictionary id. Counts
+     *  that have been spilled to disk are not included.
+     *
+     *@param  id  id of a token
+     *@return     number of times the token occurred
+     */
+    public long getTokenCount(int id) {
+
+        if (id < tokenCounts.length) {
+            return tokenCounts[id];
+        }
+
+        return 0;
     }
 
 
     /**
-     *  Method determines if the token is currently in the tokenCounts map.
-     *  If the token exists in the map, then the current value for the
-     *  key is incremented by 1.  If the token is not in the map, then
-     *  it is added as a key with a value of 1.
+     *  Method adds 1 to the count of the token.
      *
      *@param  token  token
      */
     public void processToken(String token) {
 
-        int tokenCount = 1;
+        addCount(dictionary.add(token), 1);
+        spillIfFull();
+    }
 
-        if (tokenCounts.containsKey(token)) {
 
-            tokenCount = tokenCounts.get(token);
-            tokenCount++;
-            tokenCounts.put(token, tokenCount);
+    /**
+     *  Method adds 1 to the count of each token in the batch using the token
+     *  ids, so no token Strings are created.
+     *
+     *@param  batch  batch of tokens
+     */
+    public void processTokens(TokenBatch batch) {
 
-        } else {
-            tokenCounts.put(token, tokenCount);
+        for (int index = 0; index < batch.size(); index++) {
+            addCount(batch.getTokenId(index, dictionary), 1);
         }
+
+        spillIfFull();
     }
 
 
     /**
-     *  Method calls a method to write the token information to the file. It
-     *  handles exceptions for writing output.
+     *  Method adds the token counts of another TokenCountAnalyzer to the
+     *  counts of this analyzer.
      *
-     *@param  inputFilePath  input file path
+     *@param  other  TokenCountAnalyzer to merge
      */
-    public void writeOutputFile(String inputFilePath) {
+    public void merge(Analyzer other) {
 
-        PrintWriter out = null;
+        TokenCountAnalyzer otherAnalyzer = (TokenCountAnalyzer) other;
 
-        String outputFilePath = properties.getProperty("output.dir")
-                 + properties.getProperty("output.file.token.count");
+        for (int id : otherAnalyzer.countedIds()) {
+            addCount(dictionary.add(otherAnalyzer.dictionary, id),
+                    otherAnalyzer.tokenCounts[id]);
+        }
 
-        try {
+        if (runs != null && otherAnalyzer.runs != null) {
+            runs.addRuns(otherAnalyzer.runs);
+        }
 
-            out = new PrintWriter(
-                    new BufferedWriter(new FileWriter(outputFilePath)));
+        spillIfFull();
+    }
 
-            writeTokens(out);
 
-        } catch (IOException ioException) {
+    /**
+     *  Method deletes the runs spilled to disk.
+     */
+    public void close() {
+
+        if (runs != null) {
+            runs.delete();
+        }
+    }
+
+
+    /**
+     *  Method estimates the memory of the token counts held in memory.
+     *
+     *@return    footprint counts
+     */
+    public Map<String, Long> getFootprint() {
 
-            ioException.printStackTrace();
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
 
-        } catch (Exception exception) {
+        footprint.put("dictionary tokens", (long) dictionary.size());
+        footprint.put("dictionary bytes", dictionary.getMemorySize());
+        footprint.put("count bytes", (long) Long.BYTES * tokenCounts.length);
 
-            exception.printStackTrace();
+        return footprint;
+    }
 
-        } finally {
 
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (Exception exception) {
+    /**
+     *  Method writes the counted tokens to a snapshot in sorted order,
+     *  followed by their counts.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
 
-                exception.printStackTrace();
+        int[] sortedIds = sortedIds();
+
+        if (runs != null) {
+            runs.writeState(out, dictionary, sortedIds, tokenCounts);
+            return;
+        }
+
+        Snapshot.writeTokens(out, dictionary, sortedIds);
+
+        for (int id : sortedIds) {
+            Snapshot.writeNumber(out, tokenCounts[id]);
+        }
+    }
+
+
+    /**
+     *  Method loads the counted tokens and their counts from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+
+        for (int id : Snapshot.readTokens(in, dictionary)) {
+            addCount(id, Snapshot.readNumber(in));
+        }
+
+        spillIfFull();
+    }
+
+
+    /**
+     *  Method adds an amount to the count of a token id, growing the counts
+     *  array when the id is past its end.
+     *
+     *@param  id      id of a token
+     *@param  amount  amount to add
+     */
+    private void addCount(int id, long amount) {
+
+        if (id >= tokenCounts.length) {
+            tokenCounts = Arrays.copyOf(tokenCounts,
+                    Math.max(tokenCounts.length * 2, id + 1));
+        }
+
+        tokenCounts[id] += amount;
+    }
+
+
+    /**
+     *  Method returns the id of every token with a count, in id order. The
+     *  shared dictionary can hold tokens this analyzer has not counted.
+     *
+     *@return    ids of the counted tokens
+     */
+    private int[] countedIds() {
+
+        int limit = Math.min(tokenCounts.length, dictionary.size());
+        int[] ids = new int[limit];
+        int idCount = 0;
+
+        for (int id = 0; id < limit; id++) {
+
+            if (tokenCounts[id] > 0) {
+                ids[idCount++] = id;
             }
+        }
+
+        return Arrays.copyOf(ids, idCount);
+    }
+
+
+    /**
+     *  Method returns the ids of the counted tokens in memory sorted by
+     *  token.
+     *
+     *@return    sorted ids
+     */
+    private int[] sortedIds() {
+        return dictionary.sortIds(countedIds());
+    }
+
+
+    /**
+     *  Method writes the counted tokens in memory to a sorted run and starts
+     *  again with an empty dictionary once the dictionary and the counts
+     *  hold more than the spill size.
+     */
+    private void spillIfFull() {
 
+        if (runs == null || dictionary.getMemorySize()
+                 + 8L * tokenCounts.length <= spillSize) {
+            return;
         }
 
+        try {
+            runs.writeRun(dictionary, sortedIds(), tokenCounts);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+
+        dictionary = new TokenDictionary();
+        tokenCounts = new long[INITIAL_COUNT_SIZE];
+    }
+
+
+    /**
+     *  Method calls a method to write the token information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
+
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.token.count");
+
+        if (SortedTableWriter.isBinary(properties,
+                "output.format.token.count")) {
+            ReportWriter.writeReport(outputFilePath, this::writeTable);
+        } else {
+            ReportWriter.writeReport(outputFilePath, this::writeTokens);
+        }
+    }
+
+
+    /**
+     *  Method writes all the unique tokens with their counts as a sorted
+     *  string table.
+     *
+     *@param  out              report writer
+     *@exception  IOException  if the table cannot be written
+     */
+    private void writeTable(ReportWriter out) throws IOException {
+
+        try (SortedTableWriter table = new SortedTableWriter(
+                SortedTableWriter.TOKEN_COUNTS)) {
+
+            if (runs != null) {
+                runs.merge(dictionary, sortedIds(), tokenCounts,
+                        (token, length, count) -> table.addToken(token, 0,
+                        length, count));
+            } else {
+
+                for (int id : sortedIds()) {
+                    table.addToken(dictionary.getKeyData(),
+                            dictionary.getKeyOffset(id),
+                            dictionary.getKeyLength(id), tokenCounts[id]);
+                }
+            }
+
+            table.writeTo(out);
+        }
     }
 
 
     /**
      *  Method writes all the unique tokens with their counts into a file.
      *
-     *@param  out  PrintWriter object
+     *@param  out  report writer
      */
-    private void writeTokens(PrintWriter out) {
+    private void writeTokens(ReportWriter out)
+             throws IOException {
 
         String delimiter = "\t";
 
-        for (Map.Entry<String, Integer> entry : tokenCounts.entrySet()) {
-        //for (int i = 0; i < 2; i++) {
-            out.println(entry.getKey() + delimiter + entry.getValue());
+        if (runs != null) {
+
+            runs.merge(dictionary, sortedIds(), tokenCounts,
+                    (token, length, count) -> {
+                        out.print(token, 0, length);
+                        out.print(delimiter);
+                        out.print(count);
+                        out.println();
+                    });
+
+            return;
+        }
+
+        for (int id : sortedIds()) {
+            out.printToken(dictionary, id);
+            out.print(delimiter);
+            out.print(tokenCounts[id]);
+            out.println();
         }
     }
 
@@ -0,0 +1,430 @@
+package java112.analyzer;
+
+import java.util.*;
+
+/**
+ *  TokenDictionary class: An open addressing hash table that gives every
+ *  distinct token a dense int id, starting at 0 in the order the tokens are
+ *  added. The bytes of every token are stored one after another in a single
+ *  byte array, so the text of an id can be looked up when a report is
+ *  written. One dictionary is shared by a set of analyzers: each token is
+ *  hashed once, and the analyzers keep their results in arrays and bit sets
+ *  indexed by id instead of each keeping its own copy of the vocabulary.
+ *  The dictionary is not kept in order; sortIds sorts ids by token when a
+ *  report is written.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class TokenDictionary {
+
+    private final static int INITIAL_SLOT_COUNT = 1024;
+    private final static int INITIAL_TOKEN_COUNT = 256;
+    private final static int INITIAL_KEY_DATA_SIZE = 4096;
+    private final static int MAXIMUM_LOAD_PERCENT = 70;
+
+    private int[] slotIds;
+    private int[] slotHashes;
+    private byte[] keyData;
+    private int[] keyOffsets;
+    private int size;
+    private int resizeThreshold;
+
+
+    /**
+     *  Constructor for the TokenDictionary object
+     */
+    public TokenDictionary() {
+
+        slotIds = new int[INITIAL_SLOT_COUNT];
+        slotHashes = new int[INITIAL_SLOT_COUNT];
+        keyData = new byte[INITIAL_KEY_DATA_SIZE];
+        keyOffsets = new int[INITIAL_TOKEN_COUNT + 1];
+        size = 0;
+        resizeThreshold = INITIAL_SLOT_COUNT * MAXIMUM_LOAD_PERCENT / 100;
+    }
+
+
+    /**
+     *  Returns the number of distinct tokens in the dictionary. Every id is
+     *  less than the size.
+     *
+     *@return    The size value
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     *  Returns the number of bytes held by the arrays of the dictionary.
+     *
+     *@return    The memorySize value
+     */
+    public long getMemorySize() {
+
+        return 4L * (slotIds.length + slotHashes.length + keyOffsets.length)
+                 + keyData.length;
+    }
+
+
+    /**
+     *  Method returns the id of a token, adding the token to the dictionary
+     *  if it is not already there.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         id of the token
+     */
+    public int add(byte[] data, int offset, int length) {
+
+        int hash = hash(data, offset, length);
+        int slot = findSlot(hash, data, offset, length);
+
+        if (slotIds[slot] != 0) {
+            return slotIds[slot] - 1;
+        }
+
+        int id = addKey(data, offset, length);
+
+        slotIds[slot] = id + 1;
+        slotHashes[slot] = hash;
+
+        if (size > resizeThreshold) {
+            resize();
+        }
+
+        return id;
+    }
+
+
+    /**
+     *  Method returns the id of a token String, adding the token to the
+     *  dictionary if it is not already there.
+     *
+     *@param  token  String token
+     *@return        id of the token
+     */
+    public int add(String token) {
+
+        byte[] tokenBytes = token.getBytes(TokenBatch.TOKEN_CHARSET);
+
+        return add(tokenBytes, 0, tokenBytes.length);
+    }
+
+
+    /**
+     *  Method returns the id of a token without adding it to the dictionary.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         id of the token, or -1 if it is not in the dictionary
+     */
+    public int find(byte[] data, int offset, int length) {
+
+        int slot = findSlot(hash(data, offset, length), data, offset, length);
+
+        return slotIds[slot] - 1;
+    }
+
+
+    /**
+     *  Method returns the id of a token String without adding it to the
+     *  dictionary.
+     *
+     *@param  token  String token
+     *@return        id of the token, or -1 if it is not in the dictionary
+     */
+    public int find(String token) {
+
+        byte[] tokenBytes = token.getBytes(TokenBatch.TOKEN_CHARSET);
+
+        return find(tokenBytes, 0, tokenBytes.length);
+    }
+
+
+    /**
+     *  Method sets the id of every token in the batch, adding new tokens to
+     *  the dictionary, and marks the batch as resolved by this dictionary.
+     *
+     *@param  batch  batch of tokens
+     */
+    public void resolveTokens(TokenBatch batch) {
+
+        byte[] data = batch.getData();
+
+        for (int index = 0; index < batch.size(); index++) {
+            batch.setTokenId(index, add(data, batch.getTokenOffset(index),
+                    batch.getTokenLength(index)));
+        }
+
+        batch.setDictionary(this);
+    }
+
+
+    /**
+     *  Returns the token String of an id.
+     *
+     *@param  id  id of a token
+     *@return     The token value
+     */
+    public String getToken(int id) {
+
+        return new String(keyData, keyOffsets[id], getKeyLength(id),
+                TokenBatch.TOKEN_CHARSET);
+    }
+
+
+    /**
+     *  Returns the array holding the bytes of every token.
+     *
+     *@return    The keyData value
+     */
+    public byte[] getKeyData() {
+        return keyData;
+    }
+
+
+    /**
+     *  Returns the offset of the bytes of an id in the key data.
+     *
+     *@param  id  id of a token
+     *@return     The key offset
+     */
+    public int getKeyOffset(int id) {
+        return keyOffsets[id];
+    }
+
+
+    /**
+     *  Returns the number of bytes in the token of an id.
+     *
+     *@param  id  id of a token
+     *@return     The key length
+     */
+    public int getKeyLength(int id) {
+        return keyOffsets[id + 1] - keyOffsets[id];
+    }
+
+
+    /**
+     *  Method returns the id of a token from another dictionary, adding the
+     *  token to this dictionary if it is not already there.
+     *
+     *@param  other    dictionary the id belongs to
+     *@param  otherId  id in the other dictionary
+     *@return          id of the same token in this dictionary
+     */
+    public int add(TokenDictionary other, int otherId) {
+
+        return add(other.keyData, other.keyOffsets[otherId],
+                other.getKeyLength(otherId));
+    }
+
+
+    /**
+     *  Method sorts an array of ids by their tokens. Tokens are compared as
+     *  unsigned UTF-8 bytes, which gives the Unicode code point order.
+     *
+     *@param  ids  ids to sort
+     *@return      the sorted ids
+     */
+    public int[] sortIds(int[] ids) {
+
+        sortIds(ids, new int[ids.length], 0, ids.length);
+
+        return ids;
+    }
+
+
+    /**
+     *  Method sorts a range of ids with a merge sort.
+     *
+     *@param  ids    ids to sort
+     *@param  work   work array the same size as the ids
+     *@param  start  first index of the range
+     *@param  end    end of the range (exclusive)
+     */
+    private void sortIds(int[] ids, int[] work, int start, int end) {
+
+        if (end - start < 2) {
+            return;
+        }
+
+        int middle = (start + end) >>> 1;
+
+        sortIds(ids, work, start, middle);
+        sortIds(ids, work, middle, end);
+
+        if (compareKeys(ids[middle - 1], ids[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(ids, start, work, start, end - start);
+
+        int left = start;
+        int right = middle;
+
+        for (int index = start; index < end; index++) {
+
+            if (right >= end || (left < middle
+                     && compareKeys(work[left], work[right]) <= 0)) {
+                ids[index] = work[left++];
+            } else {
+                ids[index] = work[right++];
+            }
+        }
+    }
+
+
+    /**
+     *  Method compares the tokens of two ids as unsigned bytes.
+     *
+     *@param  firstId   first id
+     *@param  secondId  second id
+     *@return           negative, zero or positive as the first token sorts
+     *      before, with or after the second token
+     */
+    private int compareKeys(int firstId, int secondId) {
+
+        return Arrays.compareUnsigned(
+                keyData, keyOffsets[firstId], keyOffsets[firstId + 1],
+                keyData, keyOffsets[secondId], keyOffsets[secondId + 1]);
+    }
+
+
+    /**
+     *  Method computes the hash of the token bytes.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         hash value
+     */
+    private static int hash(byte[] data, int offset, int length) {
+
+        int hash = 0;
+
+        for (int index = offset; index < offset + length; index++) {
+            hash = 31 * hash + data[index];
+        }
+
+        hash *= 0x9E3779B9;
+
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     *  Method finds the slot holding the token, or the empty slot where the
+     *  token would be placed.
+     *
+     *@param  hash    hash of the token bytes
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         slot of the token
+     */
+    private int findSlot(int hash, byte[] data, int offset, int length) {
+
+        int mask = slotIds.length - 1;
+        int slot = hash & mask;
+
+        while (slotIds[slot] != 0) {
+
+            if (slotHashes[slot] == hash
+                     && keyEquals(slotIds[slot] - 1, data, offset, length)) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+
+    /**
+     *  Method determines if the token of an id has the given bytes.
+     *
+     *@param  id      id of a token
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         true if the bytes are equal
+     */
+    private boolean keyEquals(int id, byte[] data, int offset, int length) {
+
+        int keyOffset = keyOffsets[id];
+
+        return getKeyLength(id) == length && Arrays.equals(keyData, keyOffset,
+                keyOffset + length, data, offset, offset + length);
+    }
+
+
+    /**
+     *  Method stores the bytes of a new token.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         id of the new token
+     */
+    private int addKey(byte[] data, int offset, int length) {
+
+        if (size + 1 == keyOffsets.length) {
+            keyOffsets = Arrays.copyOf(keyOffsets, size * 2 + 1);
+        }
+
+        int keyOffset = keyOffsets[size];
+
+        if (keyOffset + length > keyData.length) {
+            keyData = Arrays.copyOf(keyData, Math.max(keyData.length * 2,
+                    keyOffset + length));
+        }
+
+        System.arraycopy(data, offset, keyData, keyOffset, length);
+
+        int id = size;
+
+        keyOffsets[id + 1] = keyOffset + length;
+        size++;
+
+        return id;
+    }
+
+
+    /**
+     *  Method doubles the number of slots and places every token again.
+     */
+    private void resize() {
+
+        int[] oldIds = slotIds;
+        int[] oldHashes = slotHashes;
+
+        slotIds = new int[oldIds.length * 2];
+        slotHashes = new int[oldHashes.length * 2];
+        resizeThreshold = (int) ((long) slotIds.length
+                 * MAXIMUM_LOAD_PERCENT / 100);
+
+        int mask = slotIds.length - 1;
+
+        for (int oldSlot = 0; oldSlot < oldIds.length; oldSlot++) {
+
+            if (oldIds[oldSlot] != 0) {
+
+                int slot = oldHashes[oldSlot] & mask;
+
+                while (slotIds[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                slotIds[slot] = oldIds[oldSlot];
+                slotHashes[slot] = oldHashes[oldSlot];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package java112.analyzer;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ *  TokenDispatcher class: A TokenHandler that collects tokens into a
+ *  TokenBatch and passes each full batch to every analyzer in a list. Each
+ *  analyzer then runs its own loop over the whole batch instead of being
+ *  called once for every token. When the dispatcher has a TokenDictionary
+ *  every token in the batch is given its id before the batch is passed on.
+ *  The last partial batch is passed on when the input is finished. With a
+ *  PerformanceMonitor the time each analyzer spends on a batch is
+ *  recorded. Slow batches and long tokens are recorded as flight recorder
+ *  events while a recording has them enabled.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class TokenDispatcher implements TokenHandler {
+
+    private List<Analyzer> analyzers;
+    private TokenDictionary dictionary;
+    private PerformanceMonitor monitor;
+    private int longTokenSize;
+    private TokenBatch batch;
+
+
+    /**
+     *  Constructor for the TokenDispatcher object
+     *
+     *@param  analyzers  analyzers that process the tokens
+     */
+    public TokenDispatcher(List<Analyzer> analyzers) {
+        this(analyzers, null);
+    }
+
+
+    /**
+     *  Constructor for a TokenDispatcher that resolves token ids
+     *
+     *@param  analyzers   analyzers that process the tokens
+     *@param  dictionary  dictionary shared by the analyzers, or null
+     */
+    public TokenDispatcher(List<Analyzer> analyzers,
+            TokenDictionary dictionary) {
+        this(analyzers, dictionary, null, LongTokenEvent.DEFAULT_MINIMUM_SIZE);
+    }
+
+
+    /**
+     *  Constructor for a TokenDispatcher that resolves token ids and is
+     *  measured by a monitor
+     *
+     *@param  analyzers      analyzers that process the tokens
+     *@param  dictionary     dictionary shared by the analyzers, or null
+     *@param  monitor        monitor of the analyzers, or null
+     *@param  longTokenSize  number of bytes from which a token is recorded
+     *      as a LongTokenEvent
+     */
+    public TokenDispatcher(List<Analyzer> analyzers,
+            TokenDictionary dictionary, PerformanceMonitor monitor,
+            int longTokenSize) {
+
+        this.analyzers = analyzers;
+        this.dictionary = dictionary;
+        this.monitor = monitor;
+        this.longTokenSize = longTokenSize;
+        batch = new TokenBatch();
+    }
+
+
+    /**
+     *  Method adds a token found by a ByteTokenizer to the batch.
+     *
+     *@param  buffer  buffer holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     */
+    public void handleToken(ByteBuffer buffer, int offset, int length) {
+
+        batch.addToken(buffer, offset, length);
+
+        if (batch.isFull()) {
+            dispatchBatch();
+        }
+    }
+
+
+    /**
+     *  Method adds a token String to the batch.
+     *
+     *@param  token  String token
+     */
+    public void handleToken(String token) {
+
+        batch.addToken(token);
+
+        if (batch.isFull()) {
+            dispatchBatch();
+        }
+    }
+
+
+    /**
+     *  Method passes the tokens still in the batch to the analyzers.
+     */
+    public void finish() {
+
+        if (batch.size() > 0) {
+            dispatchBatch();
+        }
+    }
+
+
+    /**
+     *  Method resolves the token ids of a batch that was filled elsewhere
+     *  and passes it to each analyzer. The batch is not cleared.
+     *
+     *@param  tokenBatch  batch of tokens
+     */
+    public void dispatch(TokenBatch tokenBatch) {
+
+        if (dictionary != null) {
+            dictionary.resolveTokens(tokenBatch);
+        }
+
+        LongTokenEvent.commitLongTokens(tokenBatch, longTokenSize);
+
+        if (monitor != null) {
+            dispatchMeasured(tokenBatch);
+            return;
+        }
+
+        for (Analyzer anAnalyzer : analyzers) {
+            AnalyzerBatchEvent.processTokens(anAnalyzer, tokenBatch);
+        }
+    }
+
+
+    /**
+     *  Method passes a batch to each analyzer and records the time each one
+     *  takes.
+     *
+     *@param  tokenBatch  batch of tokens
+     */
+    private void dispatchMeasured(TokenBatch tokenBatch) {
+
+        monitor.addTokens(tokenBatch.size());
+
+        for (int index = 0; index < analyzers.size(); index++) {
+
+            long start = System.nanoTime();
+
+            AnalyzerBatchEvent.processTokens(analyzers.get(index), tokenBatch);
+
+            monitor.addProcessNanos(index, System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     *  Method resolves the token ids, passes the batch to each analyzer and
+     *  then clears it.
+     */
+    private void dispatchBatch() {
+
+        dispatch(batch);
+
+        batch.clear();
+    }
+
+}
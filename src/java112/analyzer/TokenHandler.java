@@ -0,0 +1,30 @@
+package java112.analyzer;
+
+import java.nio.*;
+
+/**
+ *  TokenHandler interface. Receives tokens found by a ByteTokenizer as a
+ *  range of bytes. The bytes are only valid for the duration of the call.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public interface TokenHandler {
+
+    /**
+     *  Method handles a token.
+     *
+     *@param  buffer  buffer holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     */
+    void handleToken(ByteBuffer buffer, int offset, int length);
+
+
+    /**
+     *  Method is called once the tokenizer has reached the end of its input
+     *  and every token has been handled.
+     */
+    default void finish() { }
+
+}
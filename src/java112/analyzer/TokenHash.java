@@ -0,0 +1,52 @@
+package java112.analyzer;
+
+/**
+ *  TokenHash class: A 64 bit hash of the bytes of a token for the sketches
+ *  of the approximate analysis mode. The bytes are combined with FNV-1a and
+ *  the result is mixed with the MurmurHash3 finalizer, so every bit of the
+ *  hash depends on every byte of the token. The sketches take their
+ *  register and counter indexes from different bits of the same hash.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class TokenHash {
+
+    private final static long OFFSET_BASIS = 0xCBF29CE484222325L;
+    private final static long PRIME = 0x100000001B3L;
+
+
+    /**
+     *  Constructor for the TokenHash object
+     */
+    private TokenHash() {
+    }
+
+
+    /**
+     *  Method returns the hash of a token.
+     *
+     *@param  data    array holding the token bytes
+     *@param  offset  index of the first byte of the token
+     *@param  length  number of bytes in the token
+     *@return         64 bit hash of the token
+     */
+    public static long hash(byte[] data, int offset, int length) {
+
+        long hash = OFFSET_BASIS;
+
+        for (int index = offset; index < offset + length; index++) {
+            hash ^= data[index] & 0xFF;
+            hash *= PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+}
@@ -11,14 +11,19 @@ import java.io.*;
  *  display a histogram of the results. The display will be adjusted
  *  for each file. The value of each asterisk will be changed so that 
  *  the histogram doesn’t exceed the max length in the properties file and
- *  it will minimally display at least one “*”.
+ *  it will minimally display at least one “*”. The counts are kept in a
+ *  primitive array indexed by token size that grows when a longer token is
+ *  seen, so processing a token does not allocate anything.
  *
  *@author     Nicole LaBonte
  */
 
 public class TokenSizeAnalyzer implements Analyzer {
 
-    private Map<Integer, Counter> tokenSizes;
+    private final static int INITIAL_SIZE_COUNT = 64;
+    private final static char HISTOGRAM_ICON = '*';
+
+    private long[] sizeCounts;
     private Properties properties;
     private int maximumSize;
 
@@ -27,7 +32,7 @@ public class TokenSizeAnalyzer implements Analyzer {
      *  Constructor for the TokenSizeAnalyzer object
      */
     public TokenSizeAnalyzer() { 
-        tokenSizes = new TreeMap<Integer, Counter>();
+        sizeCounts = new long[INITIAL_SIZE_COUNT];
     }
 
     /**
@@ -48,16 +53,46 @@ public class TokenSizeAnalyzer implements Analyzer {
 
 
     /**
-     *  Gets the tokenSizes attribute of the TokenSizeAnalyzer object
+     *  Gets the tokenSizes attribute of the TokenSizeAnalyzer object. The map
+     *  is built from the size counts each time it is requested. A count
+     *  that does not fit a Counter throws an ArithmeticException instead of
+     *  being cut short.
      *
      *@return    The tokenSizes value
      */
     //public Map getTokenSizes() {
     public Map<Integer, Counter> getTokenSizes() {
+
+        Map<Integer, Counter> tokenSizes = new TreeMap<Integer, Counter>();
+
+        for (int size = 0; size < sizeCounts.length; size++) {
+
+            if (sizeCounts[size] > 0) {
+                tokenSizes.put(size, new Counter(Math.toIntExact(
+                        sizeCounts[size])));
+            }
+        }
+
         return tokenSizes;
     }
 
 
+    /**
+     *  Returns the number of tokens of the given size.
+     *
+     *@param  size  token size
+     *@return       number of tokens with that size
+     */
+    public long getSizeCount(int size) {
+
+        if (size < sizeCounts.length) {
+            return sizeCounts[size];
+        }
+
+        return 0;
+    }
+
+
     /**
      *  Gets the maximumSize attribute of the TokenSizeAnalyzer object
      *
@@ -80,25 +115,28 @@ public class TokenSizeAnalyzer implements Analyzer {
 
 
     /**
-     *  Method creates the histogram row.
+     *  Method adds the length of each token in the batch to the size counts
+     *  without creating the token Strings.
      *
-     *@param  numberOfIcons  number of icons
-     *@return                String of the histogram row
+     *@param  batch  batch of tokens
      */
-    private String determineHistogramRow(double numberOfIcons) {
-
-        String histogramIcon = "*";
-        String histogramRow = "";
+    public void processTokens(TokenBatch batch) {
 
-        for (int index = 0; index < numberOfIcons; index++) {
-            histogramRow += histogramIcon;
+        for (int index = 0; index < batch.size(); index++) {
+            addTokenSize(batch.getCharacterCount(index));
         }
+    }
 
-        if (histogramRow.length() <= 0) {
-            histogramRow += histogramIcon;
-        }
 
-        return histogramRow;
+    /**
+     *  Method determines the number of icons in a histogram row. Every row
+     *  has at least one icon.
+     *
+     *@param  numberOfIcons  scaled number of icons
+     *@return                number of icons to write
+     */
+    private int determineHistogramRowLength(double numberOfIcons) {
+        return Math.max((int) Math.ceil(numberOfIcons), 1);
     }
 
 
@@ -124,17 +162,16 @@ public class TokenSizeAnalyzer implements Analyzer {
     /**
      *  Method determines the max token frequency
      *
-     *@return    max token frequency as an int
+     *@return    max token frequency as a long
      */
-    public int determineMaxTokenFrequency() {
+    public long determineMaxTokenFrequency() {
 
-        int maxToken = 0;
+        long maxToken = 0;
 
-        for (Map.Entry<Integer, Counter> entry : tokenSizes.entrySet()) {
-        //for (int i = 0; i < 2; i++) {
+        for (long sizeCount : sizeCounts) {
 
-            if (entry.getValue().getTokenCount() > maxToken) {
-                maxToken = entry.getValue().getTokenCount();
+            if (sizeCount > maxToken) {
+                maxToken = sizeCount;
             }
         }
 
@@ -143,85 +180,148 @@ public class TokenSizeAnalyzer implements Analyzer {
 
 
     /**
-     *  Adds token lengths to the tokenSizes map.
+     *  Adds token lengths to the size counts.
      *
      *@param  token  token
      */
     private void addToken(String token) {
 
-        int size = token.length();
-        Counter tokenCount = new Counter();
-
-        if (tokenSizes.containsKey(size)) {
+        addTokenSize(token.codePointCount(0, token.length()));
+    }
 
-            tokenSizes.get(size).increment();
 
-        } else {
+    /**
+     *  Adds a token length to the size counts.
+     *
+     *@param  size  token length
+     */
+    private void addTokenSize(int size) {
 
-            tokenSizes.put(size, tokenCount);
+        if (size >= sizeCounts.length) {
+            growSizeCounts(size);
         }
 
+        sizeCounts[size]++;
     }
 
 
     /**
-     *  Method calls a method to write the token information to the file. It
-     *  handles exceptions for writing output.
+     *  Method grows the size counts array so it can hold the given size.
      *
-     *@param  inputFilePath  input file path
+     *@param  size  token length
      */
-    public void writeOutputFile(String inputFilePath) {
+    private void growSizeCounts(int size) {
 
-        PrintWriter out = null;
+        sizeCounts = Arrays.copyOf(sizeCounts,
+                Math.max(sizeCounts.length * 2, size + 1));
+    }
 
-        String outputFilePath = properties.getProperty("output.dir")
-                 + properties.getProperty("output.file.token.size");
 
-        try {
+    /**
+     *  Method adds the token size counts of another TokenSizeAnalyzer to the
+     *  size counts.
+     *
+     *@param  other  TokenSizeAnalyzer to merge
+     */
+    public void merge(Analyzer other) {
 
-            out = new PrintWriter(
-                    new BufferedWriter(new FileWriter(outputFilePath)));
+        long[] otherSizeCounts = ((TokenSizeAnalyzer) other).sizeCounts;
 
-            writeTokens(out);
+        if (otherSizeCounts.length > sizeCounts.length) {
+            growSizeCounts(otherSizeCounts.length - 1);
+        }
 
-        } catch (IOException ioException) {
+        for (int size = 0; size < otherSizeCounts.length; size++) {
+            sizeCounts[size] += otherSizeCounts[size];
+        }
+    }
 
-            ioException.printStackTrace();
 
-        } catch (Exception exception) {
+    /**
+     *  Method estimates the memory of the size histogram.
+     *
+     *@return    footprint counts
+     */
+    public Map<String, Long> getFootprint() {
 
-            exception.printStackTrace();
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
 
-        } finally {
+        footprint.put("histogram bytes", (long) Long.BYTES
+                 * sizeCounts.length);
 
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (Exception exception) {
+        return footprint;
+    }
 
-                exception.printStackTrace();
-            }
 
+    /**
+     *  Method writes the count of every token size to a snapshot.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+
+        Snapshot.writeNumber(out, sizeCounts.length);
+
+        for (long sizeCount : sizeCounts) {
+            Snapshot.writeNumber(out, sizeCount);
+        }
+    }
+
+
+    /**
+     *  Method loads the count of every token size from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+
+        int sizeCount = Math.toIntExact(Snapshot.readNumber(in));
+
+        if (sizeCount > sizeCounts.length) {
+            growSizeCounts(sizeCount - 1);
         }
 
+        for (int size = 0; size < sizeCount; size++) {
+            sizeCounts[size] += Snapshot.readNumber(in);
+        }
+    }
+
+
+    /**
+     *  Method calls a method to write the token information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath  input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
+
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.token.size");
+
+        ReportWriter.writeReport(outputFilePath, this::writeTokens);
     }
 
 
     /**
      *  Writes sizes of tokens to the file
      *
-     *@param  out  PrintWriter
+     *@param  out  report writer
      */
-    private void writeTokenSize(PrintWriter out) {
+    private void writeTokenSize(ReportWriter out)
+             throws IOException {
 
         String delimiter = "\t";
 
-        for (Map.Entry<Integer, Counter> entry : tokenSizes.entrySet()) {
-        //for (int i = 0; i < 2; i++) {
+        for (int size = 0; size < sizeCounts.length; size++) {
 
-            out.println(entry.getKey() + delimiter
-                     + entry.getValue().getTokenCount());
+            if (sizeCounts[size] > 0) {
+                out.print(size);
+                out.print(delimiter);
+                out.print(sizeCounts[size]);
+                out.println();
+            }
         }
     }
 
@@ -229,22 +329,27 @@ public class TokenSizeAnalyzer implements Analyzer {
     /**
      *  Writes histogram to the file
      *
-     *@param  out  PrintWriter
+     *@param  out  report writer
      */
-    public void writeHistogram(PrintWriter out) {
+    public void writeHistogram(ReportWriter out)
+             throws IOException {
 
         double numberOfIcons = 0;
         double scalingFactor = determineScalingFactor();
         String delimiter = "\t";
 
-        for (Map.Entry<Integer, Counter> entry : tokenSizes.entrySet()) {
-        //for (int i = 0; i < 2; i++) {
+        for (int size = 0; size < sizeCounts.length; size++) {
 
-            numberOfIcons = (double) entry.getValue().getTokenCount() 
-                    * scalingFactor;
+            if (sizeCounts[size] > 0) {
 
-            out.println(entry.getKey() + delimiter
-                     + determineHistogramRow(numberOfIcons));
+                numberOfIcons = (double) sizeCounts[size] * scalingFactor;
+
+                out.print(size);
+                out.print(delimiter);
+                out.print(HISTOGRAM_ICON,
+                        determineHistogramRowLength(numberOfIcons));
+                out.println();
+            }
         }
 
     }
@@ -253,9 +358,10 @@ public class TokenSizeAnalyzer implements Analyzer {
     /**
      *  Writes output to the file
      *
-     *@param  out  PrintWriter
+     *@param  out  report writer
      */
-    private void writeTokens(PrintWriter out) {
+    private void writeTokens(ReportWriter out)
+             throws IOException {
 
         writeTokenSize(out);
 
@@ -7,22 +7,33 @@ import java.io.*;
  *  UniqueTokenAnalyzer class: This class will generate a file containing all
  *  the unique tokens in the input file. The file will have one token on each
  *  line. There will not be any duplicates in the file. This class implements
- *  the Analyzer interface.
+ *  the Analyzer interface. The unique tokens are kept as a bit set of
+ *  TokenDictionary ids, and the dictionary supplies the token text when the
+ *  file is written. When token.spill.size is set and the analyzer has a
+ *  dictionary of its own, the tokens are spilled to sorted runs on disk
+ *  whenever the dictionary grows past that size, and the runs are merged
+ *  when the file is written. With output.format.unique=binary the tokens are
+ *  written as a sorted string table instead of text.
  *
  *@author     Nicole LaBonte
  */
 
 public class UniqueTokenAnalyzer implements Analyzer {
 
-    private Set uniqueTokensList;
+    private TokenDictionary dictionary;
+    private BitSet uniqueTokenIds;
     private Properties properties;
+    private long spillSize;
+    private SortedTokenRuns runs;
 
 
     /**
      *  Basic constructor for UniqueTokenAnalyzer
      */
     public UniqueTokenAnalyzer() {
-        uniqueTokensList = new TreeSet();
+
+        dictionary = new TokenDictionary();
+        uniqueTokenIds = new BitSet();
     }
 
 
@@ -32,85 +43,294 @@ public class UniqueTokenAnalyzer implements Analyzer {
      *@param  properties  Description of the Parameter
      */
     public UniqueTokenAnalyzer(Properties properties) {
+
         this();
         this.properties = properties;
+
+        spillSize = Long.parseLong(properties.getProperty("token.spill.size",
+                "0"));
+
+        if (spillSize > 0) {
+            runs = new SortedTokenRuns(false);
+        }
     }
 
 
     /**
-     *  Gets the uniqueTokensList attribute of the UniqueTokenAnalyzer object
+     *  Constructor for a UniqueTokenAnalyzer that shares a token dictionary
+     *  with other analyzers. A shared dictionary is never spilled.
+     *
+     *@param  properties  Properties object
+     *@param  dictionary  shared token dictionary
+     */
+    public UniqueTokenAnalyzer(Properties properties,
+            TokenDictionary dictionary) {
+
+        this(properties);
+        this.dictionary = dictionary;
+        runs = null;
+    }
+
+
+    /**
+     *  Gets the uniqueTokensList attribute of the UniqueTokenAnalyzer object.
+     *  The sorted set is built from the token ids each time it is requested.
      *
      *@return    The uniqueTokensList value
      */
     public Set getUniqueTokensList() {
+
+        Set<String> uniqueTokensList = new TreeSet<String>();
+
+        if (runs != null) {
+
+            mergeRuns((token, length, value) -> uniqueTokensList.add(
+                    new String(token, 0, length, TokenBatch.TOKEN_CHARSET)));
+
+            return uniqueTokensList;
+        }
+
+        for (int id = uniqueTokenIds.nextSetBit(0); id >= 0;
+                id = uniqueTokenIds.nextSetBit(id + 1)) {
+            uniqueTokensList.add(dictionary.getToken(id));
+        }
+
         return uniqueTokensList;
     }
 
 
     /**
-     *  Method adds each unique token to the uniqueTokensList.
+     *  Method adds each unique token to the uniqueTokenIds.
      *
      *@param  token  String token
      */
     public void processToken(String token) {
-        uniqueTokensList.add(token);
+
+        uniqueTokenIds.set(dictionary.add(token));
+        spillIfFull();
     }
 
 
     /**
-     *  Method calls a method to write the token information to the file. It
-     *  handles exceptions for writing output.
+     *  Method adds the id of each token in the batch to the uniqueTokenIds.
      *
-     *@param  inputFilePath   input file path
+     *@param  batch  batch of tokens
      */
-    public void writeOutputFile(String inputFilePath) {
+    public void processTokens(TokenBatch batch) {
 
-        PrintWriter out = null;
+        for (int index = 0; index < batch.size(); index++) {
+            uniqueTokenIds.set(batch.getTokenId(index, dictionary));
+        }
+
+        spillIfFull();
+    }
+
+
+    /**
+     *  Method adds the unique tokens of another UniqueTokenAnalyzer to the
+     *  uniqueTokenIds.
+     *
+     *@param  other  UniqueTokenAnalyzer to merge
+     */
+    public void merge(Analyzer other) {
+
+        UniqueTokenAnalyzer otherAnalyzer = (UniqueTokenAnalyzer) other;
+        BitSet otherIds = otherAnalyzer.uniqueTokenIds;
+
+        for (int id = otherIds.nextSetBit(0); id >= 0;
+                id = otherIds.nextSetBit(id + 1)) {
+            uniqueTokenIds.set(dictionary.add(otherAnalyzer.dictionary, id));
+        }
+
+        if (runs != null && otherAnalyzer.runs != null) {
+            runs.addRuns(otherAnalyzer.runs);
+        }
+
+        spillIfFull();
+    }
+
+
+    /**
+     *  Method deletes the runs spilled to disk.
+     */
+    public void close() {
+
+        if (runs != null) {
+            runs.delete();
+        }
+    }
+
+
+    /**
+     *  Method estimates the memory of the unique tokens held in memory.
+     *
+     *@return    footprint counts
+     */
+    public Map<String, Long> getFootprint() {
+
+        Map<String, Long> footprint = new LinkedHashMap<String, Long>();
+
+        footprint.put("dictionary tokens", (long) dictionary.size());
+        footprint.put("dictionary bytes", dictionary.getMemorySize());
+        footprint.put("bit set bytes", (long) uniqueTokenIds.size()
+                 / Byte.SIZE);
+
+        return footprint;
+    }
+
+
+    /**
+     *  Method writes the unique tokens to a snapshot in sorted order.
+     *
+     *@param  out              snapshot output
+     *@exception  IOException  if the state cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+
+        if (runs != null) {
+            runs.writeState(out, dictionary, sortedIds(), null);
+        } else {
+            Snapshot.writeTokens(out, dictionary, sortedIds());
+        }
+    }
+
+
+    /**
+     *  Method loads the unique tokens from a snapshot.
+     *
+     *@param  in               snapshot input
+     *@exception  IOException  if the state cannot be read
+     */
+    public void readState(DataInput in) throws IOException {
+
+        for (int id : Snapshot.readTokens(in, dictionary)) {
+            uniqueTokenIds.set(id);
+        }
+
+        spillIfFull();
+    }
 
-        String outputFilePath = properties.getProperty("output.dir")
-                + properties.getProperty("output.file.unique");
+
+    /**
+     *  Method returns the ids of the unique tokens in memory sorted by
+     *  token.
+     *
+     *@return    sorted ids
+     */
+    private int[] sortedIds() {
+        return dictionary.sortIds(uniqueTokenIds.stream().toArray());
+    }
+
+
+    /**
+     *  Method writes the unique tokens in memory to a sorted run and starts
+     *  again with an empty dictionary once the dictionary and the bit set
+     *  hold more than the spill size.
+     */
+    private void spillIfFull() {
+
+        if (runs == null || dictionary.getMemorySize()
+                 + uniqueTokenIds.size() / 8 <= spillSize) {
+            return;
+        }
 
         try {
+            runs.writeRun(dictionary, sortedIds(), null);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
 
-            out = new PrintWriter(
-                    new BufferedWriter(new FileWriter(outputFilePath)));
+        dictionary = new TokenDictionary();
+        uniqueTokenIds = new BitSet();
+    }
 
-            writeTokens(out);
 
+    /**
+     *  Method merges the spilled runs with the unique tokens in memory and
+     *  passes each unique token to the handler in sorted order.
+     *
+     *@param  handler  receives each token
+     */
+    private void mergeRuns(SortedTokenRuns.EntryHandler handler) {
+
+        try {
+            runs.merge(dictionary, sortedIds(), null, handler);
         } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+
+    /**
+     *  Method calls a method to write the token information to the file. A
+     *  failure is thrown as an UncheckedIOException.
+     *
+     *@param  inputFilePath   input file path
+     */
+    public void writeOutputFile(String inputFilePath) {
 
-            ioException.printStackTrace();
+        String outputFilePath = properties.getProperty("output.dir")
+                 + properties.getProperty("output.file.unique");
 
-        } catch (Exception exception) {
+        if (SortedTableWriter.isBinary(properties, "output.format.unique")) {
+            ReportWriter.writeReport(outputFilePath, this::writeTable);
+        } else {
+            ReportWriter.writeReport(outputFilePath, this::writeTokens);
+        }
+    }
 
-            exception.printStackTrace();
 
-        } finally {
+    /**
+     *  Method writes all the unique tokens as a sorted string table.
+     *
+     *@param  out              report writer
+     *@exception  IOException  if the table cannot be written
+     */
+    private void writeTable(ReportWriter out) throws IOException {
 
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (Exception exception) {
+        try (SortedTableWriter table = new SortedTableWriter(
+                SortedTableWriter.TOKEN_SET)) {
 
-                exception.printStackTrace();
+            if (runs != null) {
+                runs.merge(dictionary, sortedIds(), null,
+                        (token, length, value) -> table.addToken(token, 0,
+                        length));
+            } else {
+
+                for (int id : sortedIds()) {
+                    table.addToken(dictionary.getKeyData(),
+                            dictionary.getKeyOffset(id),
+                            dictionary.getKeyLength(id));
+                }
             }
 
+            table.writeTo(out);
         }
-
     }
 
 
     /**
      *  Method writes all the unique tokens into a file.
      *
-     *@param  out  PrintWriter
+     *@param  out  report writer
      */
-    private void writeTokens(PrintWriter out) {
+    private void writeTokens(ReportWriter out)
+             throws IOException {
+
+        if (runs != null) {
+
+            runs.merge(dictionary, sortedIds(), null,
+                    (token, length, value) -> {
+                        out.print(token, 0, length);
+                        out.println();
+                    });
+
+            return;
+        }
 
-        for (Iterator tokenIterator = uniqueTokensList.iterator();
-                tokenIterator.hasNext(); ) {
-            out.println(tokenIterator.next());
+        for (int id : sortedIds()) {
+            out.printToken(dictionary, id);
+            out.println();
         }
 
     }
@@ -0,0 +1,181 @@
+package java112.analyzer;
+
+import java.nio.*;
+import jdk.incubator.vector.*;
+
+/**
+ *  VectorByteScanner class: A ByteScanner that uses the incubating JDK
+ *  Vector API. A block of 32 or 64 bytes, depending on the widest vector of
+ *  the processor, is loaded at once and classified with a few vector
+ *  compares into a bit mask of word characters and a bit mask of bytes that
+ *  are not ASCII. The end of a run is then found from the masks with
+ *  numberOfTrailingZeros, and the masks of a block are kept until the scan
+ *  moves past it, so the short runs of ordinary text cost a few bit
+ *  operations each. The masks are packed into longs with vector operations,
+ *  since VectorMask.toLong is not an intrinsic on JDK 17 and would allocate
+ *  for every block. The JVM must be started with --add-modules
+ *  jdk.incubator.vector; the class is only loaded through reflection, so
+ *  without the module the tokenizer keeps to its scalar loop.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class VectorByteScanner implements ByteScanner {
+
+    private final static VectorSpecies<Byte> SPECIES =
+            ByteVector.SPECIES_PREFERRED.length() <= Long.SIZE
+             ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+    private final static int LANES = SPECIES.length();
+
+    private final static long LANE_BITS = LANES == Long.SIZE ? -1L
+             : (1L << LANES) - 1;
+
+    private final static long GATHER_BITS = 0x0102040810204080L;
+
+    private final static LongVector BYTE_SHIFTS = LongVector.zero(
+            VectorSpecies.of(long.class, SPECIES.vectorShape())).addIndex(
+            Byte.SIZE);
+
+    private ByteBuffer classifiedBuffer;
+    private int blockStart;
+    private long wordBits;
+    private long nonAsciiBits;
+
+
+    /**
+     *  Returns the number of bytes classified at once.
+     *
+     *@return    The lane count
+     */
+    public static int getLaneCount() {
+        return LANES;
+    }
+
+
+    /**
+     *  Method skips ASCII word characters.
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         the first byte that is not an ASCII word character, or
+     *      the start of the last partial block
+     */
+    public int skipWordBytes(ByteBuffer buffer, int index, int limit) {
+
+        while (classify(buffer, index, limit)) {
+
+            long stops = (~wordBits & LANE_BITS) >>> (index - blockStart);
+
+            if (stops != 0) {
+                return index + Long.numberOfTrailingZeros(stops);
+            }
+
+            index = blockStart + LANES;
+        }
+
+        return index;
+    }
+
+
+    /**
+     *  Method skips ASCII bytes that are not word characters.
+     *
+     *@param  buffer  input bytes
+     *@param  index   first index to scan
+     *@param  limit   limit of the buffer
+     *@return         the first byte that is an ASCII word character or not
+     *      ASCII, or the start of the last partial block
+     */
+    public int skipSeparatorBytes(ByteBuffer buffer, int index, int limit) {
+
+        while (classify(buffer, index, limit)) {
+
+            long stops = (wordBits | nonAsciiBits) >>> (index - blockStart);
+
+            if (stops != 0) {
+                return index + Long.numberOfTrailingZeros(stops);
+            }
+
+            index = blockStart + LANES;
+        }
+
+        return index;
+    }
+
+
+    /**
+     *  Method forgets the classified block.
+     */
+    public void reset() {
+        classifiedBuffer = null;
+    }
+
+
+    /**
+     *  Method makes sure the block holding an index is classified. The block
+     *  that was classified last is used when it holds the index; otherwise a
+     *  new block starting at the index is loaded if it fits before the
+     *  limit.
+     *
+     *@param  buffer  input bytes
+     *@param  index   index to classify
+     *@param  limit   limit of the buffer
+     *@return         true if the masks hold the index
+     */
+    private boolean classify(ByteBuffer buffer, int index, int limit) {
+
+        if (buffer == classifiedBuffer && index >= blockStart
+                 && index < blockStart + LANES) {
+            return true;
+        }
+
+        if (index + LANES > limit) {
+            return false;
+        }
+
+        ByteVector bytes = ByteVector.fromByteBuffer(SPECIES, buffer, index,
+                ByteOrder.nativeOrder());
+        ByteVector lowerCase = bytes.or((byte) 0x20);
+
+        VectorMask<Byte> letters = lowerCase.compare(VectorOperators.GE,
+                (byte) 'a').and(lowerCase.compare(VectorOperators.LE,
+                (byte) 'z'));
+        VectorMask<Byte> digits = bytes.compare(VectorOperators.GE,
+                (byte) '0').and(bytes.compare(VectorOperators.LE, (byte) '9'));
+        VectorMask<Byte> underscores = bytes.compare(VectorOperators.EQ,
+                (byte) '_');
+
+        VectorMask<Byte> nonAscii = bytes.compare(VectorOperators.LT,
+                (byte) 0);
+
+        wordBits = toBits(letters.or(digits).or(underscores));
+        nonAsciiBits = nonAscii.anyTrue() ? toBits(nonAscii) : 0;
+        classifiedBuffer = buffer;
+        blockStart = index;
+
+        return true;
+    }
+
+
+    /**
+     *  Method turns a mask into a long with one bit for each lane. Each lane
+     *  becomes a 0 or 1 byte, and multiplying a long of eight such bytes by
+     *  0x0102040810204080 gathers their bits in the top byte without any
+     *  carries. The bytes of the longs are then shifted into place and
+     *  combined.
+     *
+     *@param  mask  lane mask
+     *@return       lane bits, lane 0 in the lowest bit
+     */
+    private static long toBits(VectorMask<Byte> mask) {
+
+        return ((ByteVector) mask.toVector()).and((byte) 1)
+                .reinterpretAsLongs().mul(GATHER_BITS)
+                .lanewise(VectorOperators.LSHR, Long.SIZE - Byte.SIZE)
+                .lanewise(VectorOperators.LSHL, BYTE_SHIFTS)
+                .reduceLanes(VectorOperators.OR);
+    }
+
+}
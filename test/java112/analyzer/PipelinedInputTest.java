@@ -0,0 +1,146 @@
+package java112.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+/**
+ *  PipelinedInputTest class: Checks that a failure on one of the stage
+ *  threads of a PipelinedInput is thrown by read on the calling thread,
+ *  instead of being taken for the end of the input.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class PipelinedInputTest {
+
+    private final static int BLOCK_SIZE = 1024;
+    private final static int WORD_COUNT = 10000;
+    private final static long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path directory;
+
+
+    /**
+     *  Method checks that an Error thrown on the tokenize thread is thrown
+     *  by read.
+     *
+     *@exception  IOException  if the input cannot be written
+     */
+    @Test
+    public void throwsTokenizeStageError() throws IOException {
+
+        AnalyzerSet analyzers = createAnalyzers();
+
+        analyzers.setMonitor(new PerformanceMonitor(
+                analyzers.getAnalyzers().size()) {
+
+            public void addBytes(long count) {
+                throw new OutOfMemoryError("injected");
+            }
+        });
+
+        PipelinedInput input = new PipelinedInput(writeInput(), BLOCK_SIZE,
+                2, 2, false);
+
+        try {
+            assertEquals("injected", assertThrows(OutOfMemoryError.class,
+                    () -> input.read(analyzers)).getMessage());
+        } finally {
+            analyzers.close();
+        }
+    }
+
+
+    /**
+     *  Method checks that an Error thrown by an analyzer in fan-out mode is
+     *  thrown by read, instead of leaving the other stages waiting for the
+     *  batches it never releases.
+     */
+    @Test
+    public void throwsFanOutAnalyzerError() {
+
+        assertTimeoutPreemptively(Duration.ofSeconds(TIMEOUT_SECONDS), () -> {
+
+            AnalyzerSet analyzers = createAnalyzers();
+
+            analyzers.getAnalyzers().add(new Analyzer() {
+
+                public void processToken(String token) {
+                    throw new OutOfMemoryError("injected");
+                }
+
+
+                public void processTokens(TokenBatch batch) {
+                    throw new OutOfMemoryError("injected");
+                }
+
+
+                public void writeOutputFile(String inputFilePath) {
+                }
+            });
+
+            PipelinedInput input = new PipelinedInput(writeInput(),
+                    BLOCK_SIZE, 2, 2, true);
+
+            try {
+                assertEquals("injected", assertThrows(OutOfMemoryError.class,
+                        () -> input.read(analyzers)).getMessage());
+            } finally {
+                analyzers.close();
+            }
+        });
+    }
+
+
+    /**
+     *  Method returns a set of analyzers with the default properties and no
+     *  keywords.
+     *
+     *@return                  analyzers for the tokens
+     *@exception  IOException  if the properties cannot be read
+     */
+    private AnalyzerSet createAnalyzers() throws IOException {
+
+        Properties properties = new Properties();
+
+        try (InputStream in = getClass().getResourceAsStream(
+                "/analyzer.properties")) {
+            properties.load(in);
+        }
+
+        return new AnalyzerSet(properties, new KeywordMatcher(
+                Collections.<String>emptyList()));
+    }
+
+
+    /**
+     *  Method writes an input file many blocks long.
+     *
+     *@return                  path of the input file
+     *@exception  IOException  if the file cannot be written
+     */
+    private String writeInput() throws IOException {
+
+        StringBuilder text = new StringBuilder();
+
+        for (int index = 0; index < WORD_COUNT; index++) {
+            text.append("word").append(index).append(' ');
+        }
+
+        Path inputFile = directory.resolve("input.txt");
+
+        Files.write(inputFile, text.toString().getBytes(
+                StandardCharsets.UTF_8));
+
+        return inputFile.toString();
+    }
+
+}
@@ -0,0 +1,270 @@
+package java112.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+/**
+ *  VectorByteScannerTest class: Checks the vector tokenizer backend against
+ *  the scalar one. Every byte value is scanned in a shuffled buffer, where
+ *  runs are short, and in runs longer than a block, from heap and direct
+ *  buffers, and the scans must stop where the scalar classification allows.
+ *  Random text is also tokenized with both backends, split into buffers at
+ *  random points, and must give the same tokens.
+ *
+ *@author     Nicole LaBonte
+ */
+
+public class VectorByteScannerTest {
+
+    private final static int BYTE_VALUES = 256;
+    private final static int TEXT_SIZE = 1 << 20;
+    private final static long SEED = 12345L;
+
+
+    /**
+     *  Method checks the scans of a buffer where every byte value appears
+     *  twice in a random order.
+     */
+    @Test
+    public void scansShuffledBytes() {
+
+        byte[] shuffled = shuffledBytes();
+
+        checkScans(ByteBuffer.wrap(shuffled), 1);
+        checkScans(directBuffer(shuffled), 1);
+    }
+
+
+    /**
+     *  Method checks the scans of runs of every byte value that are longer
+     *  than a block.
+     */
+    @Test
+    public void scansLongRuns() {
+
+        byte[] shuffled = shuffledBytes();
+        int runLength = VectorByteScanner.getLaneCount() + 3;
+        byte[] runs = new byte[BYTE_VALUES * runLength];
+
+        for (int index = 0; index < runs.length; index++) {
+            runs[index] = shuffled[index / runLength];
+        }
+
+        checkScans(ByteBuffer.wrap(runs), runLength);
+        checkScans(directBuffer(runs), runLength);
+    }
+
+
+    /**
+     *  Method checks that both backends give the same tokens for random
+     *  UTF-8 and US-ASCII text.
+     */
+    @Test
+    public void tokenizesLikeScalarBackend() {
+
+        byte[] text = randomText();
+
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8,
+                StandardCharsets.US_ASCII)) {
+
+            assertEquals(tokenize(text, charset,
+                    ByteTokenizer.SCALAR_BACKEND), tokenize(text, charset,
+                    ByteTokenizer.VECTOR_BACKEND), charset.name());
+        }
+    }
+
+
+    /**
+     *  Method scans a buffer with the vector scanner from the first, second
+     *  and last index of each run and compares the stops with the scalar
+     *  classification.
+     *
+     *@param  buffer     bytes to scan
+     *@param  runLength  length of the runs of equal bytes
+     */
+    private void checkScans(ByteBuffer buffer, int runLength) {
+
+        VectorByteScanner scanner = new VectorByteScanner();
+        int limit = buffer.limit();
+
+        for (int start = 0; start < limit; start++) {
+
+            int runIndex = start % runLength;
+
+            if (runIndex > 1 && runIndex < runLength - 1) {
+                continue;
+            }
+
+            int wordEnd = start;
+            int separatorEnd = start;
+
+            while (wordEnd < limit && isAsciiWord(buffer.get(wordEnd))) {
+                wordEnd++;
+            }
+
+            while (separatorEnd < limit && buffer.get(separatorEnd) >= 0
+                     && !isAsciiWord(buffer.get(separatorEnd))) {
+                separatorEnd++;
+            }
+
+            scanner.reset();
+
+            checkStop("word scan from " + start, start,
+                    scanner.skipWordBytes(buffer, start, limit), wordEnd,
+                    limit);
+            checkStop("separator scan from " + start, start,
+                    scanner.skipSeparatorBytes(buffer, start, limit),
+                    separatorEnd, limit);
+        }
+    }
+
+
+    /**
+     *  Method checks that a scan stopped at the end of the run, or before it
+     *  only within the last partial block, which is left to the scalar loop.
+     *
+     *@param  scan   description of the scan
+     *@param  start  first index scanned
+     *@param  stop   index the scan stopped at
+     *@param  end    end of the run
+     *@param  limit  limit of the buffer
+     */
+    private void checkStop(String scan, int start, int stop, int end,
+            int limit) {
+
+        if (stop == end) {
+            return;
+        }
+
+        assertTrue(stop >= start && stop < end
+                 && stop + VectorByteScanner.getLaneCount() > limit,
+                scan + " stopped at " + stop + " instead of " + end);
+    }
+
+
+    /**
+     *  Method tokenizes text in buffers of random sizes and returns the
+     *  tokens.
+     *
+     *@param  text     input bytes
+     *@param  charset  input charset
+     *@param  backend  tokenizer backend
+     *@return          the tokens in order
+     */
+    private List<String> tokenize(byte[] text, Charset charset,
+            String backend) {
+
+        List<String> tokens = new ArrayList<String>();
+        ByteTokenizer tokenizer = new ByteTokenizer(
+                (buffer, offset, length) -> {
+
+                    byte[] token = new byte[length];
+
+                    buffer.get(offset, token);
+                    tokens.add(new String(token, StandardCharsets.UTF_8));
+                }, charset, backend);
+        Random random = new Random(SEED);
+        int start = 0;
+
+        while (start < text.length) {
+
+            int end = Math.min(text.length, start + 1 + random.nextInt(
+                    8 * VectorByteScanner.getLaneCount()));
+
+            tokenizer.tokenize(ByteBuffer.wrap(text, start, end - start));
+
+            start = end;
+        }
+
+        tokenizer.finish();
+
+        return tokens;
+    }
+
+
+    /**
+     *  Method returns text of words, separators and multi-byte characters,
+     *  with a few malformed bytes.
+     *
+     *@return    random text
+     */
+    private byte[] randomText() {
+
+        String[] pieces = {"the", "Analyzer", "token_42", " ", "  ", ", ",
+                ".\n", "\t", "café", "naïve", "日本",
+                "—", "x", "0123456789", "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+                 + "abcdefghijklmnopqrstuvwxyz_0123456789"};
+        Random random = new Random(SEED);
+        ByteBuffer text = ByteBuffer.allocate(TEXT_SIZE);
+
+        while (text.remaining() > BYTE_VALUES) {
+
+            if (random.nextInt(100) == 0) {
+                text.put((byte) (0x80 | random.nextInt(0x80)));
+            } else {
+                text.put(pieces[random.nextInt(pieces.length)].getBytes(
+                        StandardCharsets.UTF_8));
+            }
+        }
+
+        return Arrays.copyOf(text.array(), text.position());
+    }
+
+
+    /**
+     *  Method returns every byte value twice in a random order.
+     *
+     *@return    shuffled bytes
+     */
+    private byte[] shuffledBytes() {
+
+        List<Byte> values = new ArrayList<Byte>();
+
+        for (int index = 0; index < 2 * BYTE_VALUES; index++) {
+            values.add((byte) index);
+        }
+
+        Collections.shuffle(values, new Random(SEED));
+
+        byte[] shuffled = new byte[values.size()];
+
+        for (int index = 0; index < shuffled.length; index++) {
+            shuffled[index] = values.get(index);
+        }
+
+        return shuffled;
+    }
+
+
+    /**
+     *  Method copies bytes into a direct buffer.
+     *
+     *@param  data  bytes to copy
+     *@return       direct buffer holding the bytes
+     */
+    private ByteBuffer directBuffer(byte[] data) {
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+
+        buffer.put(data).clear();
+
+        return buffer;
+    }
+
+
+    /**
+     *  Method determines if a byte is an ASCII word character without the
+     *  Vector API.
+     *
+     *@param  value  input byte
+     *@return        true if the byte is a-z, A-Z, 0-9 or underscore
+     */
+    private boolean isAsciiWord(byte value) {
+        return value >= 0 && ByteTokenizer.isWordCharacter(value);
+    }
+
+}